@@ -0,0 +1,54 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.benchmarks;
+
+import fr.inria.papart.procam.camera.Camera;
+import processing.core.PApplet;
+import processing.core.PImage;
+
+/**
+ * Camera without device, it only holds a calibration.
+ *
+ * @author Jeremy Laviole
+ */
+public class BenchmarkCamera extends Camera {
+
+    public BenchmarkCamera(PApplet parent, String calibrationFile) {
+        setParent(parent);
+        setCalibration(calibrationFile);
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void grab() {
+    }
+
+    @Override
+    public PImage getPImage() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.benchmarks;
+
+import java.io.File;
+
+/**
+ * Location of the stored calibrations used by the benchmarks. Set it with
+ * -Dpapart.calibration=path, the default is the data of the papart module.
+ *
+ * @author Jeremy Laviole
+ */
+public class BenchmarkData {
+
+    public static final String CALIBRATION_PROPERTY = "papart.calibration";
+    public static final String DEFAULT_CALIBRATION_FOLDER = "../papart/data/calibration";
+
+    public static final String PLANE_PROJECTION = "PlaneProjectionCalibration.xml";
+    public static final String TOUCH_2D = "Touch2DCalibration.xml";
+    public static final String TOUCH_3D = "Touch3DCalibration.xml";
+
+    /**
+     * @param fileName
+     * @return absolute path of a calibration file.
+     */
+    public static String calibration(String fileName) {
+        String folder = System.getProperty(CALIBRATION_PROPERTY, DEFAULT_CALIBRATION_FOLDER);
+        File file = new File(folder, fileName);
+        if (!file.exists()) {
+            throw new IllegalStateException("Calibration file not found: " + file.getAbsolutePath()
+                    + ", set -D" + CALIBRATION_PROPERTY + "=<papart/data/calibration>");
+        }
+        return file.getAbsolutePath();
+    }
+}
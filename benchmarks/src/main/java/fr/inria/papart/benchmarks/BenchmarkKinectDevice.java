@@ -0,0 +1,97 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.benchmarks;
+
+import fr.inria.papart.depthcam.devices.KinectDevice;
+import fr.inria.papart.multitouch.KinectTouchInput;
+import fr.inria.papart.procam.camera.Camera;
+import processing.core.PApplet;
+
+/**
+ * Kinect 360 or Kinect One without device: the sizes and calibrations of the
+ * real one, the frames are given to the analysis directly.
+ *
+ * @author Jeremy Laviole
+ */
+public class BenchmarkKinectDevice extends KinectDevice {
+
+    private final Type type;
+    private final Camera cameraRGB, cameraDepth;
+
+    public BenchmarkKinectDevice(PApplet parent, Type type) {
+        this.parent = parent;
+        this.type = type;
+        switch (type) {
+            case X360:
+                WIDTH = 640;
+                HEIGHT = 480;
+                RGB_WIDTH = 640;
+                RGB_HEIGHT = 480;
+                cameraRGB = new BenchmarkCamera(parent, BenchmarkData.calibration("calibration-kinect-RGB.yaml"));
+                cameraDepth = new BenchmarkCamera(parent, BenchmarkData.calibration("calibration-kinect-IR.yaml"));
+                break;
+            case ONE:
+                WIDTH = 512;
+                HEIGHT = 424;
+                RGB_WIDTH = 1920;
+                RGB_HEIGHT = 1080;
+                cameraRGB = new BenchmarkCamera(parent, BenchmarkData.calibration("camera-kinect2-rgb.yaml"));
+                cameraDepth = new BenchmarkCamera(parent, BenchmarkData.calibration("camera-kinect2-IR.yaml"));
+                break;
+            default:
+                throw new IllegalArgumentException("No benchmark device of type " + type);
+        }
+        SIZE = WIDTH * HEIGHT;
+        RGB_SIZE = RGB_WIDTH * RGB_HEIGHT;
+    }
+
+    @Override
+    public Camera getCameraRGB() {
+        return cameraRGB;
+    }
+
+    @Override
+    public Camera getCameraIR() {
+        return cameraDepth;
+    }
+
+    @Override
+    public Camera getCameraDepth() {
+        return cameraDepth;
+    }
+
+    /**
+     * @return size of the raw depth frame: 2 bytes per pixel for the Kinect
+     * 360, 3 for the Kinect One.
+     */
+    @Override
+    public int rawDepthSize() {
+        return type == Type.X360 ? SIZE * 2 : SIZE * 3;
+    }
+
+    @Override
+    public Type type() {
+        return type;
+    }
+
+    @Override
+    public void setTouch(KinectTouchInput kinectTouchInput) {
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.benchmarks;
+
+import fr.inria.papart.depthcam.analysis.Connexity;
+import fr.inria.papart.depthcam.devices.KinectDepthData;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Connexity of the valid 3D points of a frame analysed once, as computed by
+ * KinectDepthAnalysis.computeValidPointsConnexity.
+ *
+ * @author Jeremy Laviole
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ConnexityBenchmark {
+
+    private KinectDepthData depthData;
+    private Connexity connexity;
+
+    @Setup(Level.Trial)
+    public void setup(DepthFrameState frame) {
+        frame.analyse();
+        depthData = frame.depthAnalysis.getDepthData();
+        connexity = depthData.connexity;
+        connexity.setPrecision(frame.touch3DCalibration.getPrecision());
+    }
+
+    @Benchmark
+    public byte[] validPoints3D() {
+        connexity.reset();
+        connexity.compute(depthData.validPointsList3D);
+        return connexity.get();
+    }
+}
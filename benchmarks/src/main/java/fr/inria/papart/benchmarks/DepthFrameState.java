@@ -0,0 +1,87 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.benchmarks;
+
+import fr.inria.papart.benchmarks.SyntheticDepthFrames.Scene;
+import fr.inria.papart.calibration.PlanarTouchCalibration;
+import fr.inria.papart.calibration.PlaneAndProjectionCalibration;
+import fr.inria.papart.depthcam.analysis.KinectDepthAnalysis;
+import fr.inria.papart.depthcam.devices.KinectDevice;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import processing.core.PApplet;
+
+/**
+ * Depth analysis of a device and a scene, with the stored calibrations. The
+ * PApplet is never started, it only gives the time and loads the files.
+ *
+ * @author Jeremy Laviole
+ */
+@State(Scope.Benchmark)
+public class DepthFrameState {
+
+    @Param({"X360", "ONE"})
+    public KinectDevice.Type device;
+
+    @Param({"FLAT_TABLE", "ONE_HAND", "TEN_FINGERS", "FULL_ARMS"})
+    public Scene scene;
+
+    // Depth points in the float array only, or also in all the Vec3D.
+    @Param({"true", "false"})
+    public boolean primitiveStorage;
+
+    public PApplet applet;
+    public BenchmarkKinectDevice kinect;
+    public KinectDepthAnalysis depthAnalysis;
+    public PlaneAndProjectionCalibration planeAndProjCalibration;
+    public PlanarTouchCalibration touch2DCalibration;
+    public PlanarTouchCalibration touch3DCalibration;
+    public IplImage depthImage;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        applet = new PApplet();
+        kinect = new BenchmarkKinectDevice(applet, device);
+        depthAnalysis = new KinectDepthAnalysis(applet, kinect);
+        depthAnalysis.getDepthData().setPrimitiveStorage(primitiveStorage);
+
+        planeAndProjCalibration = new PlaneAndProjectionCalibration();
+        planeAndProjCalibration.loadFrom(applet, BenchmarkData.calibration(BenchmarkData.PLANE_PROJECTION));
+        touch2DCalibration = new PlanarTouchCalibration();
+        touch2DCalibration.loadFrom(applet, BenchmarkData.calibration(BenchmarkData.TOUCH_2D));
+        touch3DCalibration = new PlanarTouchCalibration();
+        touch3DCalibration.loadFrom(applet, BenchmarkData.calibration(BenchmarkData.TOUCH_3D));
+
+        depthImage = SyntheticDepthFrames.createDepthImage(kinect, planeAndProjCalibration, scene);
+    }
+
+    /**
+     * Same analysis as KinectTouchInput, with the precisions of the touch
+     * calibrations.
+     */
+    public void analyse() {
+        depthAnalysis.updateMT(depthImage, null, planeAndProjCalibration,
+                touch2DCalibration.getPrecision(), touch3DCalibration.getPrecision());
+    }
+}
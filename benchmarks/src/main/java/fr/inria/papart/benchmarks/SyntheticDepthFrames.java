@@ -0,0 +1,238 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.benchmarks;
+
+import fr.inria.papart.calibration.PlaneAndProjectionCalibration;
+import fr.inria.papart.depthcam.devices.KinectDevice;
+import fr.inria.papart.procam.ProjectiveDeviceP;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import static org.bytedeco.javacpp.opencv_core.IPL_DEPTH_16U;
+import static org.bytedeco.javacpp.opencv_core.IPL_DEPTH_8U;
+import toxi.geom.Plane;
+
+/**
+ * Depth frames of a table seen by a Kinect, with hands and arms above it.
+ * The table is the plane of a PlaneAndProjectionCalibration, the objects are
+ * capsules drawn in the image at a height above the table. The frames are in
+ * the raw format of the device, with a deterministic noise.
+ *
+ * @author Jeremy Laviole
+ */
+public class SyntheticDepthFrames {
+
+    public enum Scene {
+        /**
+         * The table only.
+         */
+        FLAT_TABLE,
+        /**
+         * One hand, the index touches the table.
+         */
+        ONE_HAND,
+        /**
+         * Two hands, the ten fingers touch the table.
+         */
+        TEN_FINGERS,
+        /**
+         * Two hands touching the table, and the forearms.
+         */
+        FULL_ARMS
+    }
+
+    // Heights above the table, in mm.
+    public static final float TOUCH_HEIGHT = 8f;
+    public static final float RAISED_FINGER_HEIGHT = 35f;
+    public static final float PALM_HEIGHT = 50f;
+    public static final float ARM_HEIGHT = 100f;
+
+    // Standard deviation of the depth noise at 1 meter, in mm.
+    public static final float NOISE_AT_1M = 1.5f;
+
+    /**
+     * Segment in the image, with a radius, at a height above the table.
+     * Coordinates and radius are in fraction of the image width.
+     */
+    static class Capsule {
+
+        final float x1, y1, x2, y2, radius, height;
+
+        Capsule(float x1, float y1, float x2, float y2, float radius, float height) {
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+            this.radius = radius;
+            this.height = height;
+        }
+
+        boolean contains(float x, float y) {
+            float dx = x2 - x1;
+            float dy = y2 - y1;
+            float lengthSq = dx * dx + dy * dy;
+            float t = lengthSq == 0 ? 0 : ((x - x1) * dx + (y - y1) * dy) / lengthSq;
+            t = Math.max(0, Math.min(1, t));
+            float px = x - (x1 + t * dx);
+            float py = y - (y1 + t * dy);
+            return px * px + py * py <= radius * radius;
+        }
+    }
+
+    static ArrayList<Capsule> createScene(Scene scene) {
+        ArrayList<Capsule> capsules = new ArrayList<>();
+        switch (scene) {
+            case FLAT_TABLE:
+                break;
+            case ONE_HAND:
+                addHand(capsules, 0.5f, 0.55f, 1, 1);
+                break;
+            case TEN_FINGERS:
+                addHand(capsules, 0.32f, 0.55f, -1, 5);
+                addHand(capsules, 0.68f, 0.55f, 1, 5);
+                break;
+            case FULL_ARMS:
+                addHand(capsules, 0.32f, 0.5f, -1, 5);
+                addHand(capsules, 0.68f, 0.5f, 1, 5);
+                capsules.add(new Capsule(0.32f, 0.55f, 0.2f, 1.1f, 0.05f, ARM_HEIGHT));
+                capsules.add(new Capsule(0.68f, 0.55f, 0.8f, 1.1f, 0.05f, ARM_HEIGHT));
+                break;
+        }
+        return capsules;
+    }
+
+    /**
+     * @param capsules
+     * @param x center of the palm.
+     * @param y center of the palm.
+     * @param side 1 for a right hand, -1 for a left hand.
+     * @param nbTouching number of fingers on the table, from the index.
+     */
+    private static void addHand(ArrayList<Capsule> capsules, float x, float y,
+            int side, int nbTouching) {
+        capsules.add(new Capsule(x, y, x, y + 0.03f, 0.045f, PALM_HEIGHT));
+
+        // Index, middle, ring, little finger then thumb. Angles from the
+        // vertical of the image, in degrees.
+        float[] angles = {-10, 8, 24, 40, -60};
+        float[] lengths = {0.1f, 0.11f, 0.1f, 0.08f, 0.08f};
+        for (int i = 0; i < angles.length; i++) {
+            float angle = (float) Math.toRadians(angles[i] * side);
+            float startX = x + (float) Math.sin(angle) * 0.035f;
+            float startY = y - (float) Math.cos(angle) * 0.035f;
+            float endX = x + (float) Math.sin(angle) * (0.035f + lengths[i]);
+            float endY = y - (float) Math.cos(angle) * (0.035f + lengths[i]);
+            float height = i < nbTouching ? TOUCH_HEIGHT : RAISED_FINGER_HEIGHT;
+            capsules.add(new Capsule(startX, startY, endX, endY, 0.011f, height));
+        }
+    }
+
+    /**
+     * Depth of each pixel, in mm, 0 when the table is not seen.
+     *
+     * @param device
+     * @param calibration position of the table.
+     * @param scene
+     * @param seed of the noise.
+     * @return the depth map.
+     */
+    public static float[] createDepthMap(KinectDevice device,
+            PlaneAndProjectionCalibration calibration, Scene scene, long seed) {
+        ProjectiveDeviceP intrinsics = device.getCameraDepth().getProjectiveDevice();
+        int w = device.depthWidth();
+        int h = device.depthHeight();
+        ArrayList<Capsule> capsules = createScene(scene);
+
+        Plane plane = calibration.getPlane();
+        // Plane: normal . p = offset, the camera is at the origin.
+        float offset = plane.normal.dot(plane);
+        float towardCamera = -Math.signum(offset);
+
+        Random random = new Random(seed);
+        float[] depth = new float[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                float rayX = (x - intrinsics.getCx()) / intrinsics.getFx();
+                float rayY = (y - intrinsics.getCy()) / intrinsics.getFy();
+                float normalDotRay = plane.normal.x * rayX + plane.normal.y * rayY + plane.normal.z;
+
+                float height = 0;
+                float u = (float) x / w;
+                float v = (float) y / w;
+                for (Capsule capsule : capsules) {
+                    if (capsule.height > height && capsule.contains(u, v)) {
+                        height = capsule.height;
+                    }
+                }
+
+                if (normalDotRay == 0) {
+                    continue;
+                }
+                float z = (offset + towardCamera * height) / normalDotRay;
+                if (z <= 0) {
+                    continue;
+                }
+                float sigma = NOISE_AT_1M * (z / 1000f) * (z / 1000f);
+                depth[y * w + x] = z + (float) random.nextGaussian() * sigma;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Depth frame in the raw format of the device: 2 bytes per pixel in mm,
+     * high byte first for the Kinect 360, 3 bytes per pixel in tenth of mm,
+     * low byte first for the Kinect One.
+     *
+     * @param device
+     * @param calibration position of the table.
+     * @param scene
+     * @return the raw depth frame.
+     */
+    public static IplImage createDepthImage(KinectDevice device,
+            PlaneAndProjectionCalibration calibration, Scene scene) {
+        float[] depth = createDepthMap(device, calibration, scene, scene.ordinal());
+        int w = device.depthWidth();
+        int h = device.depthHeight();
+
+        IplImage image;
+        if (device.type() == KinectDevice.Type.X360) {
+            image = IplImage.create(w, h, IPL_DEPTH_16U, 1);
+        } else {
+            image = IplImage.create(w, h, IPL_DEPTH_8U, 3);
+        }
+        ByteBuffer buffer = image.getByteBuffer();
+
+        for (int i = 0; i < depth.length; i++) {
+            if (device.type() == KinectDevice.Type.X360) {
+                int value = Math.min(0xFFFF, Math.round(depth[i]));
+                buffer.put(i * 2, (byte) (value >> 8));
+                buffer.put(i * 2 + 1, (byte) value);
+            } else {
+                int value = Math.min(0xFFFF, Math.round(depth[i] * 10));
+                buffer.put(i * 3, (byte) value);
+                buffer.put(i * 3 + 1, (byte) (value >> 8));
+                buffer.put(i * 3 + 2, (byte) 0);
+            }
+        }
+        return image;
+    }
+}
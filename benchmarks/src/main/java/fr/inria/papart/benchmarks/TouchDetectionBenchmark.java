@@ -0,0 +1,79 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.benchmarks;
+
+import fr.inria.papart.depthcam.devices.KinectDepthData;
+import fr.inria.papart.multitouch.TouchDetectionSimple2D;
+import fr.inria.papart.multitouch.TouchDetectionSimple3D;
+import fr.inria.papart.multitouch.TouchPoint;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Connected components and creation of the touch points, on a frame analysed
+ * once.
+ *
+ * @author Jeremy Laviole
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TouchDetectionBenchmark {
+
+    private TouchDetectionSimple2D touchDetection2D;
+    private TouchDetectionSimple3D touchDetection3D;
+    private KinectDepthData depthData;
+
+    @Setup(Level.Trial)
+    public void setup(DepthFrameState frame) {
+        frame.analyse();
+        depthData = frame.depthAnalysis.getDepthData();
+
+        int size = frame.depthAnalysis.getDepthSize();
+        touchDetection2D = new TouchDetectionSimple2D(size);
+        touchDetection2D.setCalibration(frame.touch2DCalibration);
+        touchDetection3D = new TouchDetectionSimple3D(size);
+        touchDetection3D.setCalibration(frame.touch3DCalibration);
+    }
+
+    @Benchmark
+    public ArrayList<TouchPoint> compute2D() {
+        return touchDetection2D.compute(depthData);
+    }
+
+    @Benchmark
+    public ArrayList<TouchPoint> compute3D() {
+        return touchDetection3D.compute(depthData);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import fr.inria.papart.benchmarks.BenchmarkData;
+import fr.inria.papart.calibration.PlanarTouchCalibration;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import processing.core.PApplet;
+import toxi.geom.Vec3D;
+
+/**
+ * Tracking of fingers moving in circles on the table, one frame per call.
+ * The new points come from a TouchPointPool, as in KinectTouchInput. In this
+ * package for TouchPoint.setDetection.
+ *
+ * @author Jeremy Laviole
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TrackingBenchmark {
+
+    public enum Tracker {
+        GREEDY, GRID
+    }
+
+    private static final int NB_FRAMES = 64;
+    private static final int FRAME_DURATION = 33;
+    // Fingers on a grid, in mm.
+    private static final float FINGER_SPACING = 25f;
+    private static final float CIRCLE_RADIUS = 15f;
+
+    @Param({"GREEDY", "GRID"})
+    public Tracker tracker;
+
+    @Param({"1", "10", "20"})
+    public int nbPoints;
+
+    private TouchDetection touchDetection;
+    private final GridTouchPointTracker gridTracker = new GridTouchPointTracker();
+    private final TouchPointPool touchPointPool = new TouchPointPool();
+
+    private Vec3D[][] positions;
+    private final ArrayList<TouchPoint> touchPoints = new ArrayList<>();
+    private final ArrayList<TouchPoint> newPoints = new ArrayList<>();
+    private int frame = 0;
+    private int time = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        PApplet applet = new PApplet();
+        PlanarTouchCalibration calibration = new PlanarTouchCalibration();
+        calibration.loadFrom(applet, BenchmarkData.calibration(BenchmarkData.TOUCH_2D));
+        touchDetection = new TouchDetectionSimple2D(1);
+        touchDetection.setCalibration(calibration);
+
+        // Closed trajectories, the sequence of frames loops without jumps.
+        int nbColumns = (int) Math.ceil(Math.sqrt(nbPoints));
+        positions = new Vec3D[NB_FRAMES][nbPoints];
+        for (int i = 0; i < nbPoints; i++) {
+            float centerX = (i % nbColumns) * FINGER_SPACING;
+            float centerY = (i / nbColumns) * FINGER_SPACING;
+            float phase = i * 0.7f;
+            for (int f = 0; f < NB_FRAMES; f++) {
+                float angle = phase + f * PApplet.TWO_PI / NB_FRAMES;
+                positions[f][i] = new Vec3D(
+                        centerX + CIRCLE_RADIUS * PApplet.cos(angle),
+                        centerY + CIRCLE_RADIUS * PApplet.sin(angle),
+                        800);
+            }
+        }
+    }
+
+    @Benchmark
+    public ArrayList<TouchPoint> trackPoints() {
+        frame = (frame + 1) % NB_FRAMES;
+        time += FRAME_DURATION;
+
+        newPoints.clear();
+        for (Vec3D position : positions[frame]) {
+            TouchPoint tp = touchPointPool.acquire();
+            tp.setDetection(touchDetection);
+            tp.setPositionKinect(position);
+            tp.setPosition(position);
+            tp.setCreationTime(time);
+            newPoints.add(tp);
+        }
+
+        if (tracker == Tracker.GRID) {
+            gridTracker.trackPoints(touchPoints, newPoints, time, touchPointPool);
+        } else {
+            TouchPointTracker.trackPoints(touchPoints, newPoints, time, touchPointPool);
+        }
+        touchPointPool.nextFrame();
+        return touchPoints;
+    }
+}
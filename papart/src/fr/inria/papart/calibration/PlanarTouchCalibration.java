@@ -39,6 +39,19 @@ public class PlanarTouchCalibration extends Calibration {
     static final String TRACKING_MAX_DIST_TIME_XML_NAME = "TrackingMaxDist";
     static final String SEARCH_DEPTH_XML_NAME = "SearchDepth";
     static final String PRECISION_XML_NAME = "Precision";
+    static final String COMPONENT_SEARCH_XML_NAME = "ComponentSearch";
+
+    /**
+     * Recursive search of the connected components, limited by the maximum
+     * recursion.
+     */
+    public static final int RECURSIVE_SEARCH = 0;
+
+    /**
+     * Flood fill search of the connected components, with the neighbours of
+     * the recursive search (search depth window). No recursion limit.
+     */
+    public static final int FLOOD_FILL_SEARCH = 1;
 
     // Variable parameters... going to a specific class for saving.  
     private float maximumDistance = 10f;    // in mm
@@ -48,6 +61,7 @@ public class PlanarTouchCalibration extends Calibration {
     private int searchDepth = 10;
     private int maximumRecursion = 500;
     private int precision = 2; // pixels
+    private int componentSearch = RECURSIVE_SEARCH;
 
     // tracking
     private int trackingForgetTime = 250; // ms 
@@ -73,6 +87,7 @@ public class PlanarTouchCalibration extends Calibration {
         xml.setInt(MAX_RECURSION_XML_NAME, maximumRecursion);
         xml.setInt(SEARCH_DEPTH_XML_NAME, searchDepth);
         xml.setInt(PRECISION_XML_NAME, precision);
+        xml.setInt(COMPONENT_SEARCH_XML_NAME, componentSearch);
 
         xml.setInt(TRACKING_FORGET_TIME_XML_NAME, trackingForgetTime);
         xml.setFloat(TRACKING_MAX_DIST_TIME_XML_NAME, trackingMaxDistance);
@@ -86,6 +101,7 @@ public class PlanarTouchCalibration extends Calibration {
 
         searchDepth = xml.getInt(SEARCH_DEPTH_XML_NAME);
         precision = xml.getInt(PRECISION_XML_NAME);
+        componentSearch = xml.getInt(COMPONENT_SEARCH_XML_NAME, RECURSIVE_SEARCH);
 
         trackingForgetTime = xml.getInt(TRACKING_FORGET_TIME_XML_NAME);
         trackingMaxDistance = xml.getFloat(TRACKING_MAX_DIST_TIME_XML_NAME);
@@ -99,6 +115,7 @@ public class PlanarTouchCalibration extends Calibration {
 
         this.searchDepth = calib.searchDepth;
         this.precision = calib.precision;
+        this.componentSearch = calib.componentSearch;
 
         this.trackingForgetTime = calib.trackingForgetTime;
         this.trackingMaxDistance = calib.trackingMaxDistance;
@@ -189,6 +206,22 @@ public class PlanarTouchCalibration extends Calibration {
         this.precision = precision;
     }
 
+    public int getComponentSearch() {
+        return componentSearch;
+    }
+
+    /**
+     * Algorithm used to find the connected components: RECURSIVE_SEARCH or
+     * FLOOD_FILL_SEARCH. The flood fill does not count the points twice, the
+     * minimum component size may need to be lowered.
+     *
+     * @param componentSearch
+     */
+    public void setComponentSearch(int componentSearch) {
+        assert (componentSearch == RECURSIVE_SEARCH || componentSearch == FLOOD_FILL_SEARCH);
+        this.componentSearch = componentSearch;
+    }
+
     public float getTrackingMaxDistance() {
         return this.trackingMaxDistance;
     }
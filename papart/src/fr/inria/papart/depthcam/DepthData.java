@@ -27,7 +27,6 @@ import fr.inria.papart.calibration.PlaneCalibration;
 import static fr.inria.papart.depthcam.analysis.DepthAnalysis.INVALID_COLOR;
 import static fr.inria.papart.depthcam.analysis.DepthAnalysis.INVALID_POINT;
 import fr.inria.papart.procam.ProjectiveDeviceP;
-import java.util.ArrayList;
 import java.util.Arrays;
 import toxi.geom.Vec3D;
 
@@ -38,11 +37,28 @@ import toxi.geom.Vec3D;
 public class DepthData {
 
     /**
-     * 3D points viewed by the depth camera.
+     * 3D points viewed by the depth camera, packed as x, y, z for each pixel.
+     * (0, 0, 0) is an invalid point.
+     */
+    public float[] depthPointsXYZ;
+
+    /**
+     * 3D points viewed by the depth camera, Vec3D view of depthPointsXYZ. In
+     * primitive storage mode only the valid points are up to date, the others
+     * can be outdated or null.
      */
     public Vec3D[] depthPoints;
     public Vec3D[] normals;
 
+    /**
+     * Normals of the depth points, packed as x, y, z for each pixel. (0, 0, 0)
+     * when there is no normal.
+     */
+    public float[] normalsXYZ;
+    private boolean hasNormals = false;
+
+    private boolean primitiveStorage = false;
+
     /**
      * Mask of valid Points
      */
@@ -58,7 +74,7 @@ public class DepthData {
     /**
      * List of valid points
      */
-    public ArrayList<Integer> validPointsList;
+    public IntList validPointsList;
 
     public ProjectiveDeviceP projectiveDevice;
 
@@ -70,18 +86,196 @@ public class DepthData {
         int height = source.getDepthHeight();
         this.source = source;
         int size = width * height;
+        depthPointsXYZ = new float[size * 3];
         depthPoints = new Vec3D[size];
         for (int i = 0; i < size; i++) {
             depthPoints[i] = new Vec3D();
         }
 
+        normals = new Vec3D[size];
+        normalsXYZ = new float[size * 3];
+
         validPointsMask = new boolean[size];
         pointColors = new int[size];
-        validPointsList = new ArrayList();
-        connexity = new Connexity(depthPoints, width, height);
+        validPointsList = new IntList(size / 4);
+        connexity = new Connexity(depthPointsXYZ, width, height);
 //        connexity = new Connexity(projectedPoints, width, height);
     }
 
+    /**
+     * In primitive storage mode the depth points are only stored in
+     * depthPointsXYZ. The Vec3D objects of depthPoints are created and updated
+     * only for the valid points. It avoids going through all the objects of
+     * the frame at each update.
+     *
+     * @param primitive
+     */
+    public void setPrimitiveStorage(boolean primitive) {
+        if (!primitive) {
+            for (int i = 0; i < depthPoints.length; i++) {
+                if (depthPoints[i] == null) {
+                    depthPoints[i] = new Vec3D();
+                }
+                getDepthPoint(i, depthPoints[i]);
+            }
+        }
+        this.primitiveStorage = primitive;
+    }
+
+    public boolean isPrimitiveStorage() {
+        return this.primitiveStorage;
+    }
+
+    /**
+     * Get the Vec3D to fill for a depth point. It is the point of depthPoints,
+     * or the temporary vector in primitive storage mode.
+     *
+     * @param offset
+     * @param tmp temporary vector used in primitive storage mode.
+     * @return
+     */
+    public Vec3D depthPointFor(int offset, Vec3D tmp) {
+        return primitiveStorage ? tmp : depthPoints[offset];
+    }
+
+    /**
+     * Get a Vec3D with the current value of a depth point. It is the point of
+     * depthPoints, or the temporary vector in primitive storage mode.
+     *
+     * @param offset
+     * @param tmp temporary vector used in primitive storage mode.
+     * @return
+     */
+    public Vec3D getDepthPointView(int offset, Vec3D tmp) {
+        return primitiveStorage ? getDepthPoint(offset, tmp) : depthPoints[offset];
+    }
+
+    /**
+     * Store a computed depth point.
+     *
+     * @param offset
+     * @param p
+     */
+    public void setDepthPoint(int offset, Vec3D p) {
+        int k = offset * 3;
+        depthPointsXYZ[k] = p.x;
+        depthPointsXYZ[k + 1] = p.y;
+        depthPointsXYZ[k + 2] = p.z;
+    }
+
+    /**
+     * Update the Vec3D view of a depth point, used in primitive storage mode
+     * for the valid points.
+     *
+     * @param offset
+     */
+    public void updateDepthPointView(int offset) {
+        if (!primitiveStorage) {
+            return;
+        }
+        if (depthPoints[offset] == null) {
+            depthPoints[offset] = new Vec3D();
+        }
+        getDepthPoint(offset, depthPoints[offset]);
+    }
+
+    /**
+     * @param offset
+     * @return true if depthPoints[offset] has the current value.
+     */
+    protected boolean isDepthPointViewUpToDate(int offset) {
+        return !primitiveStorage || validPointsMask[offset];
+    }
+
+    /**
+     * @param offset
+     * @param out filled with the depth point.
+     * @return out
+     */
+    public Vec3D getDepthPoint(int offset, Vec3D out) {
+        int k = offset * 3;
+        out.set(depthPointsXYZ[k], depthPointsXYZ[k + 1], depthPointsXYZ[k + 2]);
+        return out;
+    }
+
+    /**
+     * @param offset
+     * @return a copy of the depth point.
+     */
+    public Vec3D getDepthPoint(int offset) {
+        return getDepthPoint(offset, new Vec3D());
+    }
+
+    public float getDepthX(int offset) {
+        return depthPointsXYZ[offset * 3];
+    }
+
+    public float getDepthY(int offset) {
+        return depthPointsXYZ[offset * 3 + 1];
+    }
+
+    public float getDepthZ(int offset) {
+        return depthPointsXYZ[offset * 3 + 2];
+    }
+
+    /**
+     * @param offset
+     * @return true if there is a depth value for this point.
+     */
+    public boolean hasDepth(int offset) {
+        return depthPointsXYZ[offset * 3 + 2] != 0;
+    }
+
+    /**
+     * @param offset1
+     * @param offset2
+     * @return the squared distance between two depth points.
+     */
+    public float distanceSq(int offset1, int offset2) {
+        int k1 = offset1 * 3;
+        int k2 = offset2 * 3;
+        float dx = depthPointsXYZ[k1] - depthPointsXYZ[k2];
+        float dy = depthPointsXYZ[k1 + 1] - depthPointsXYZ[k2 + 1];
+        float dz = depthPointsXYZ[k1 + 2] - depthPointsXYZ[k2 + 2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Store a normal, normals are cleared with the depth.
+     *
+     * @param offset
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void setNormal(int offset, float x, float y, float z) {
+        int k = offset * 3;
+        normalsXYZ[k] = x;
+        normalsXYZ[k + 1] = y;
+        normalsXYZ[k + 2] = z;
+        hasNormals = true;
+    }
+
+    /**
+     * @param offset
+     * @return true if a normal is computed for this point.
+     */
+    public boolean hasNormal(int offset) {
+        int k = offset * 3;
+        return normalsXYZ[k] != 0 || normalsXYZ[k + 1] != 0 || normalsXYZ[k + 2] != 0;
+    }
+
+    /**
+     * @param offset
+     * @param out filled with the normal.
+     * @return out
+     */
+    public Vec3D getNormal(int offset, Vec3D out) {
+        int k = offset * 3;
+        out.set(normalsXYZ[k], normalsXYZ[k + 1], normalsXYZ[k + 2]);
+        return out;
+    }
+
     public DepthDataElement getElement(int i) {
         DepthDataElement dde = new DepthDataElement();
         fillDepthDataElement(dde, i);
@@ -90,7 +284,7 @@ public class DepthData {
 
     protected void fillDepthDataElement(DepthDataElement dde, int i) {
         dde.pointColor = pointColors[i];
-        dde.depthPoint = depthPoints[i];
+        dde.depthPoint = isDepthPointViewUpToDate(i) ? depthPoints[i] : getDepthPoint(i);
         dde.validPoint = validPointsMask[i];
         dde.neighbourSum = connexity.connexitySum[i];
         dde.neighbours = connexity.connexity[i];
@@ -109,6 +303,14 @@ public class DepthData {
     }
 
     public void clearDepth() {
+        Arrays.fill(depthPointsXYZ, 0);
+        if (hasNormals) {
+            Arrays.fill(normalsXYZ, 0);
+            hasNormals = false;
+        }
+        if (primitiveStorage) {
+            return;
+        }
         for (Vec3D pt : depthPoints) {
             pt.clear();
         }
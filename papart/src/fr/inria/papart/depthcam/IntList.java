@@ -0,0 +1,185 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.depthcam;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of int, used for lists of pixel offsets. The memory is kept
+ * when the list is cleared, so there is no allocation once the list reached
+ * its working size.
+ *
+ * @author Jeremy Laviole
+ */
+public class IntList {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] data;
+    private int size = 0;
+
+    // Used by sort.
+    private int[] sortBuffer;
+
+    public interface IntComparator {
+
+        public int compare(int a, int b);
+    }
+
+    public IntList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntList(int capacity) {
+        data = new int[Math.max(1, capacity)];
+    }
+
+    public void add(int value) {
+        if (size == data.length) {
+            ensureCapacity(size + 1);
+        }
+        data[size++] = value;
+    }
+
+    public void addAll(IntList list) {
+        ensureCapacity(size + list.size);
+        System.arraycopy(list.data, 0, data, size, list.size);
+        size += list.size;
+    }
+
+    /**
+     * Add the first elements of another list.
+     *
+     * @param list
+     * @param count number of elements to copy.
+     */
+    public void addAll(IntList list, int count) {
+        assert (count <= list.size);
+        ensureCapacity(size + count);
+        System.arraycopy(list.data, 0, data, size, count);
+        size += count;
+    }
+
+    public int get(int index) {
+        assert (index < size);
+        return data[index];
+    }
+
+    public void set(int index, int value) {
+        assert (index < size);
+        data[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Keep only the first elements.
+     *
+     * @param newSize
+     */
+    public void truncate(int newSize) {
+        assert (newSize <= size);
+        size = newSize;
+    }
+
+    public boolean contains(int value) {
+        for (int i = 0; i < size; i++) {
+            if (data[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    /**
+     * Direct access to the values, only the first size() are used.
+     *
+     * @return the internal array.
+     */
+    public int[] getArray() {
+        return data;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    /**
+     * Stable sort (merge sort), like Collections.sort.
+     *
+     * @param comparator
+     */
+    public void sort(IntComparator comparator) {
+        if (size < 2) {
+            return;
+        }
+        if (sortBuffer == null || sortBuffer.length < size) {
+            sortBuffer = new int[data.length];
+        }
+        mergeSort(comparator, 0, size);
+    }
+
+    private void mergeSort(IntComparator comparator, int begin, int end) {
+        if (end - begin < 2) {
+            return;
+        }
+        int middle = (begin + end) >>> 1;
+        mergeSort(comparator, begin, middle);
+        mergeSort(comparator, middle, end);
+
+        // Already in order.
+        if (comparator.compare(data[middle - 1], data[middle]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(data, begin, sortBuffer, begin, end - begin);
+        int i = begin;
+        int j = middle;
+        for (int k = begin; k < end; k++) {
+            if (j >= end || (i < middle && comparator.compare(sortBuffer[i], sortBuffer[j]) <= 0)) {
+                data[k] = sortBuffer[i++];
+            } else {
+                data[k] = sortBuffer[j++];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+}
@@ -19,7 +19,7 @@
  */
 package fr.inria.papart.depthcam.analysis;
 
-import fr.inria.papart.depthcam.analysis.DepthAnalysis;
+import fr.inria.papart.depthcam.IntList;
 import java.util.Arrays;
 import toxi.geom.Vec3D;
 
@@ -52,24 +52,51 @@ public class Connexity {
     public float DEFAULT_CONNEXITY_DIST = 10;
     public byte[] connexity;  // TODO: check for Byte instead of int
     public byte[] connexitySum;  // TODO: check for Byte instead of int
-    private Vec3D[] points;
-    private int precision;
+    // 3D points packed as x, y, z.
+    private float[] points;
+    private int precision = 1;
 
-    public Connexity(Vec3D[] points, int w, int h) {
+    // Points computed since the last reset, only these are cleared.
+    private final boolean[] isComputed;
+    private final IntList computedPoints = new IntList();
+    private boolean computedAll = false;
+
+    public Connexity(float[] pointsXYZ, int w, int h) {
         this.width = w;
         this.height = h;
-        this.points = points;
+        this.points = pointsXYZ;
         connexity = new byte[w * h];
         connexitySum = new byte[w * h];
+        isComputed = new boolean[w * h];
     }
 
-    public void setPoints(Vec3D[] points) {
-        this.points = points;
+    public void setPoints(float[] pointsXYZ) {
+        this.points = pointsXYZ;
     }
 
     public void reset() {
-        Arrays.fill(connexity, (byte) 0);
-        Arrays.fill(connexitySum, (byte) 0);
+        if (computedAll) {
+            Arrays.fill(connexity, (byte) 0);
+            Arrays.fill(connexitySum, (byte) 0);
+            Arrays.fill(isComputed, false);
+            computedAll = false;
+        } else {
+            for (int i = 0; i < computedPoints.size(); i++) {
+                int offset = computedPoints.get(i);
+                connexity[offset] = 0;
+                connexitySum[offset] = 0;
+                isComputed[offset] = false;
+            }
+        }
+        computedPoints.clear();
+    }
+
+    /**
+     * @param offset
+     * @return true if the connexity of this point is computed for this frame.
+     */
+    public boolean isComputed(int offset) {
+        return isComputed[offset];
     }
 
     public byte[] get() {
@@ -105,9 +132,10 @@ public class Connexity {
                 boolean valid = (c & direction) > 0;
 
                 if (valid) {
-                    int neighbourOffset = y1 * width + x1;
-                    output[connNo] = points[neighbourOffset];
-
+                    int neighbourOffset = (y1 * width + x1) * 3;
+                    output[connNo] = new Vec3D(points[neighbourOffset],
+                            points[neighbourOffset + 1],
+                            points[neighbourOffset + 2]);
                 }
                 connNo++;
             }
@@ -123,25 +151,75 @@ public class Connexity {
     void computeAll() {
         for (int y = 0; y < this.height; y++) {
             for (int x = 0; x < this.width; x++) {
-                compute(x, y);
+                computeImpl(x, y, y * width + x);
             }
         }
+        Arrays.fill(isComputed, true);
+        computedAll = true;
+    }
+
+    /**
+     * Compute the connexity of a list of points (e.g. the valid points), the
+     * points already computed are skipped.
+     *
+     * @param offsets
+     */
+    public void compute(IntList offsets) {
+        for (int i = 0; i < offsets.size(); i++) {
+            int offset = offsets.get(i);
+            compute(offset % width, offset / width);
+        }
     }
 
     void compute(int x, int y) {
+        compute(x, y, computedPoints);
+    }
+
+    /**
+     * Compute the connexity of a point from a parallel pass. Each stripe gives
+     * its own list of computed points, merged with addComputedPoints() after
+     * the pass. A point must be computed by one stripe only.
+     *
+     * @param x
+     * @param y
+     * @param stripeComputedPoints
+     */
+    public void compute(int x, int y, IntList stripeComputedPoints) {
+        int currentOffset = y * width + x;
+        if (isComputed[currentOffset]) {
+            return;
+        }
+        isComputed[currentOffset] = true;
+        stripeComputedPoints.add(currentOffset);
+        computeImpl(x, y, currentOffset);
+    }
+
+    /**
+     * Merge the points computed by a stripe, to clear them at the next reset.
+     *
+     * @param stripeComputedPoints
+     */
+    public void addComputedPoints(IntList stripeComputedPoints) {
+        computedPoints.addAll(stripeComputedPoints);
+    }
+
+    private void computeImpl(int x, int y, int currentOffset) {
         // Connexity map 
         //  0 1 2 
         //  3 x 4
         //  5 6 7
         // Todo: Unroll these for loops for optimisation...
-        int currentOffset = y * width + x;
 
-        if (points[currentOffset] == null
-                ||  !DepthAnalysis.isValidPoint(points[currentOffset])) {
+        int k = currentOffset * 3;
+        if (points[k + 2] == 0) {
             connexity[currentOffset] = 0;
             connexitySum[currentOffset] = 0;
             return;
         }
+        float px = points[k];
+        float py = points[k + 1];
+        float pz = points[k + 2];
+        float connexityDistSq = connexityDist * connexityDist;
 
         byte sum = 0;
         byte type = 0;
@@ -161,13 +239,12 @@ public class Connexity {
                     continue;
                 }
 
-                int offset = y1 * width + x1;
-//                if (kinectPoints[currentOffset].distanceTo(kinectPoints[offset]) < connexityDist) {
-//                    type = type | (1 << connNo);
-//                }
-                if (points[offset] != null
-                        && points[offset] != DepthAnalysis.INVALID_POINT
-                        && points[currentOffset].distanceTo(points[offset]) < connexityDist) {
+                int offset = (y1 * width + x1) * 3;
+                float dx = points[offset] - px;
+                float dy = points[offset + 1] - py;
+                float dz = points[offset + 2] - pz;
+                if (points[offset + 2] != 0
+                        && dx * dx + dy * dy + dz * dz < connexityDistSq) {
                     type = (byte) (type | 1 << connNo);
                     sum++;
                 }
@@ -185,6 +262,7 @@ public class Connexity {
     }
 
     public void setPrecision(int precision) {
+        assert (precision > 0);
         this.precision = precision;
         this.connexityDist = DEFAULT_CONNEXITY_DIST * precision;
     }
@@ -193,4 +271,8 @@ public class Connexity {
         this.connexityDist = dist;
     }
 
+    public float getConnexityDist() {
+        return this.connexityDist;
+    }
+
 }
@@ -72,17 +72,170 @@ public abstract class DepthAnalysis {
         public void execute(Vec3D p, PixelOffset px);
     }
 
+    /**
+     * Compute the connexity of a point, before its normal.
+     *
+     * @param px
+     */
+    protected void computeConnexity(PixelOffset px) {
+        depthData.connexity.compute(px.x, px.y);
+    }
+
     class ComputeNormal implements DepthPointManiplation {
 
         @Override
         public void execute(Vec3D p, PixelOffset px) {
 
-            depthData.connexity.compute(px.x, px.y);
-            Vec3D normal = computeNormalImpl(depthData.depthPoints[px.offset], px);
+            computeConnexity(px);
+            Vec3D normal = computeNormalImpl(p, px);
             depthData.normals[px.offset] = normal;
         }
     }
 
+    /**
+     * Normal estimation written in depthData.normalsXYZ, without allocation.
+     * It uses the central differences of the neighbours at the precision
+     * step, then the large square and one triangle like computeNormalImpl. The
+     * neighbours are the points closer than maxDist. Each point only writes
+     * its own normal, it can be used in the parallel passes.
+     */
+    class ComputeNormalMap implements DepthPointManiplation {
+
+        private final int precision;
+        private final float maxDistSq;
+        private final int width, height;
+
+        public ComputeNormalMap(int precision, float maxDist) {
+            this.precision = precision;
+            this.maxDistSq = maxDist * maxDist;
+            this.width = getDepthWidth();
+            this.height = getDepthHeight();
+        }
+
+        @Override
+        public void execute(Vec3D p, PixelOffset px) {
+            float[] pts = depthData.depthPointsXYZ;
+            int s = precision;
+            int c = px.offset;
+
+            int left = neighbour(px.x - s, px.y, c);
+            int right = neighbour(px.x + s, px.y, c);
+            int top = neighbour(px.x, px.y - s, c);
+            int bot = neighbour(px.x, px.y + s, c);
+
+            float nx, ny, nz;
+            if (left >= 0 && right >= 0 && top >= 0 && bot >= 0) {
+                // Central differences
+                nx = crossX(pts, left, right, top, bot);
+                ny = crossY(pts, left, right, top, bot);
+                nz = crossZ(pts, left, right, top, bot);
+            } else {
+                int topLeft = neighbour(px.x - s, px.y - s, c);
+                int topRight = neighbour(px.x + s, px.y - s, c);
+                int botLeft = neighbour(px.x - s, px.y + s, c);
+                int botRight = neighbour(px.x + s, px.y + s, c);
+
+                int a, b, d;
+                if (topLeft >= 0 && topRight >= 0 && botLeft >= 0 && botRight >= 0) {
+                    // Large square
+                    nx = crossX(pts, topLeft, topRight, topLeft, botLeft)
+                            + crossX(pts, botLeft, topRight, botLeft, botRight);
+                    ny = crossY(pts, topLeft, topRight, topLeft, botLeft)
+                            + crossY(pts, botLeft, topRight, botLeft, botRight);
+                    nz = crossZ(pts, topLeft, topRight, topLeft, botLeft)
+                            + crossZ(pts, botLeft, topRight, botLeft, botRight);
+                    setNormalized(c, nx, ny, nz);
+                    return;
+                }
+
+                // One triangle (a, b, d)
+                if (left >= 0) {
+                    if (top >= 0) {
+                        a = left;
+                        b = top;
+                        d = c;
+                    } else if (bot >= 0) {
+                        a = left;
+                        b = c;
+                        d = bot;
+                    } else {
+                        return;
+                    }
+                } else if (right >= 0) {
+                    if (top >= 0) {
+                        a = top;
+                        b = right;
+                        d = c;
+                    } else if (bot >= 0) {
+                        a = right;
+                        b = bot;
+                        d = c;
+                    } else {
+                        return;
+                    }
+                } else {
+                    return;
+                }
+                nx = crossX(pts, a, b, a, d);
+                ny = crossY(pts, a, b, a, d);
+                nz = crossZ(pts, a, b, a, d);
+            }
+            setNormalized(c, nx, ny, nz);
+        }
+
+        /**
+         * @return the offset of the neighbour, or -1 if it is not valid.
+         */
+        private int neighbour(int x, int y, int center) {
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                return -1;
+            }
+            int offset = y * width + x;
+            if (!depthData.hasDepth(offset)
+                    || depthData.distanceSq(offset, center) >= maxDistSq) {
+                return -1;
+            }
+            return offset;
+        }
+
+        private void setNormalized(int offset, float nx, float ny, float nz) {
+            float norm = nx * nx + ny * ny + nz * nz;
+            if (norm == 0) {
+                return;
+            }
+            float inv = 1f / (float) Math.sqrt(norm);
+            depthData.setNormal(offset, nx * inv, ny * inv, nz * inv);
+        }
+    }
+
+    // Cross product (u1 - u0) x (v1 - v0), of points packed as x, y, z.
+    private static float crossX(float[] p, int u0, int u1, int v0, int v1) {
+        u0 *= 3;
+        u1 *= 3;
+        v0 *= 3;
+        v1 *= 3;
+        return (p[u1 + 1] - p[u0 + 1]) * (p[v1 + 2] - p[v0 + 2])
+                - (p[u1 + 2] - p[u0 + 2]) * (p[v1 + 1] - p[v0 + 1]);
+    }
+
+    private static float crossY(float[] p, int u0, int u1, int v0, int v1) {
+        u0 *= 3;
+        u1 *= 3;
+        v0 *= 3;
+        v1 *= 3;
+        return (p[u1 + 2] - p[u0 + 2]) * (p[v1] - p[v0])
+                - (p[u1] - p[u0]) * (p[v1 + 2] - p[v0 + 2]);
+    }
+
+    private static float crossZ(float[] p, int u0, int u1, int v0, int v1) {
+        u0 *= 3;
+        u1 *= 3;
+        v0 *= 3;
+        v1 *= 3;
+        return (p[u1] - p[u0]) * (p[v1 + 1] - p[v0 + 1])
+                - (p[u1 + 1] - p[u0 + 1]) * (p[v1] - p[v0]);
+    }
+
     private Vec3D computeNormalImpl(Vec3D point, PixelOffset px) {
 
         Vec3D[] neighbours = depthData.connexity.getNeighbourList(px.x, px.y);
@@ -232,7 +385,10 @@ public abstract class DepthAnalysis {
     }
 
     /**
-     * Return the 3D points of the depth. 3D values in millimeters
+     * Return the 3D points of the depth. 3D values in millimeters. All the
+     * points are updated at each frame, unless the primitive storage of the
+     * depth data is enabled (getDepthData().setPrimitiveStorage(true)): then
+     * only the valid points are, use getDepthPointsXYZ() for the others.
      *
      * @return the array of 3D points.
      */
@@ -240,6 +396,16 @@ public abstract class DepthAnalysis {
         return depthData.depthPoints;
     }
 
+    /**
+     * Return the 3D points of the depth, packed as x, y, z. 3D values in
+     * millimeters.
+     *
+     * @return the array of 3D points.
+     */
+    public float[] getDepthPointsXYZ() {
+        return depthData.depthPointsXYZ;
+    }
+
     public KinectDepthData getDepthData() {
         return this.depthData;
     }
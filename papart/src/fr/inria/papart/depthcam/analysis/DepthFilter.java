@@ -0,0 +1,245 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.depthcam.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Temporal filter of the depth map, applied in place after the decoding of
+ * each frame. The filter is either an exponential smoothing or the median of
+ * the last frames. Missing values are filled with the last filtered value for
+ * a few frames, and the history of a pixel is reset when its depth changes
+ * more than the motion threshold (something moved).
+ *
+ * No allocation is done after the creation.
+ *
+ * @author Jeremy Laviole
+ */
+public class DepthFilter {
+
+    public static final int EXPONENTIAL = 0;
+    public static final int MEDIAN = 1;
+
+    public static final int MAX_HISTORY = 15;
+
+    private final int size;
+    private int mode = EXPONENTIAL;
+
+    // Exponential: weight of the new value.
+    private float alpha = 0.5f;
+    // In millimeters.
+    private float motionThreshold = 40f;
+    // Number of frames a missing value is filled.
+    private int maxHoleFrames = 3;
+
+    // Last output, 0 when there is no value.
+    private final float[] filtered;
+    private final byte[] holeAge;
+
+    // Median: history of the frames, the window of a pixel is contiguous
+    // (history[i * historySize + k]).
+    private int historySize;
+    private float[] history;
+    private int historyIndex = 0;
+    private final float[] window = new float[MAX_HISTORY];
+
+    /**
+     * @param size number of pixels of the depth map.
+     */
+    public DepthFilter(int size) {
+        this.size = size;
+        this.filtered = new float[size];
+        this.holeAge = new byte[size];
+        setHistorySize(5);
+    }
+
+    /**
+     * @param mode EXPONENTIAL or MEDIAN.
+     */
+    public void setMode(int mode) {
+        assert (mode == EXPONENTIAL || mode == MEDIAN);
+        this.mode = mode;
+        reset();
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * Weight of the new depth in the exponential mode, from 0 (no update) to 1
+     * (no filtering).
+     *
+     * @param alpha
+     */
+    public void setAlpha(float alpha) {
+        this.alpha = alpha;
+    }
+
+    public float getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * Depth difference, in millimeters, over which the filter is reset.
+     *
+     * @param threshold
+     */
+    public void setMotionThreshold(float threshold) {
+        this.motionThreshold = threshold;
+    }
+
+    public float getMotionThreshold() {
+        return motionThreshold;
+    }
+
+    /**
+     * Number of frames a missing depth is replaced by the last filtered one.
+     * 0 disables the hole filling.
+     *
+     * @param frames
+     */
+    public void setMaxHoleFrames(int frames) {
+        assert (frames >= 0 && frames < Byte.MAX_VALUE);
+        this.maxHoleFrames = frames;
+    }
+
+    public int getMaxHoleFrames() {
+        return maxHoleFrames;
+    }
+
+    /**
+     * Number of frames of the median filter.
+     *
+     * @param frames from 1 to MAX_HISTORY.
+     */
+    public void setHistorySize(int frames) {
+        assert (frames >= 1 && frames <= MAX_HISTORY);
+        this.historySize = frames;
+        this.history = new float[frames * size];
+        reset();
+    }
+
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    public void reset() {
+        Arrays.fill(filtered, 0);
+        Arrays.fill(holeAge, (byte) 0);
+        Arrays.fill(history, 0);
+        historyIndex = 0;
+    }
+
+    /**
+     * Filter the depth map, in place.
+     *
+     * @param depth depth in millimeters, 0 or less when not valid.
+     */
+    public void apply(float[] depth) {
+        assert (depth.length == size);
+        if (mode == MEDIAN) {
+            applyMedian(depth);
+        } else {
+            applyExponential(depth);
+        }
+    }
+
+    private void applyExponential(float[] depth) {
+        for (int i = 0; i < size; i++) {
+            float d = depth[i];
+            float f = filtered[i];
+
+            if (d <= 0) {
+                depth[i] = fillHole(i);
+                continue;
+            }
+            holeAge[i] = 0;
+
+            if (f <= 0 || Math.abs(d - f) > motionThreshold) {
+                f = d;
+            } else {
+                f += alpha * (d - f);
+            }
+            filtered[i] = f;
+            depth[i] = f;
+        }
+    }
+
+    private void applyMedian(float[] depth) {
+        for (int i = 0; i < size; i++) {
+            float d = depth[i];
+            float f = filtered[i];
+            int pixelOffset = i * historySize;
+
+            if (d <= 0) {
+                history[pixelOffset + historyIndex] = 0;
+                depth[i] = fillHole(i);
+                continue;
+            }
+            holeAge[i] = 0;
+
+            if (f <= 0 || Math.abs(d - f) > motionThreshold) {
+                // New object, forget the previous frames.
+                Arrays.fill(history, pixelOffset, pixelOffset + historySize, 0);
+            }
+            history[pixelOffset + historyIndex] = d;
+
+            f = median(pixelOffset);
+            filtered[i] = f;
+            depth[i] = f;
+        }
+        historyIndex = (historyIndex + 1) % historySize;
+    }
+
+    private float fillHole(int i) {
+        if (filtered[i] > 0 && holeAge[i] < maxHoleFrames) {
+            holeAge[i]++;
+            return filtered[i];
+        }
+        filtered[i] = 0;
+        return 0;
+    }
+
+    /**
+     * Median of the valid values of a pixel, sorted in place in the window.
+     *
+     * @param pixelOffset offset of the pixel in the history.
+     */
+    private float median(int pixelOffset) {
+        int n = 0;
+        for (int k = pixelOffset; k < pixelOffset + historySize; k++) {
+            float v = history[k];
+            if (v <= 0) {
+                continue;
+            }
+            // Insertion sort, the window is small.
+            int j = n - 1;
+            while (j >= 0 && window[j] > v) {
+                window[j + 1] = window[j];
+                j--;
+            }
+            window[j + 1] = v;
+            n++;
+        }
+        return window[n / 2];
+    }
+
+}
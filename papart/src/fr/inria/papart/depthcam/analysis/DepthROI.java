@@ -0,0 +1,203 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.depthcam.analysis;
+
+import fr.inria.papart.calibration.PlaneAndProjectionCalibration;
+import fr.inria.papart.procam.ProjectiveDeviceP;
+import java.util.Arrays;
+import processing.core.PMatrix3D;
+import processing.core.PVector;
+import toxi.geom.Plane;
+
+/**
+ * Bounding box, in the depth image, of the touch surface of a
+ * PlaneAndProjectionCalibration. The surface is the [0,1] area of the
+ * homography, extended to the height of the plane. The box is computed once
+ * and updated only when the calibration changes.
+ *
+ * @author Jeremy Laviole
+ */
+public class DepthROI {
+
+    // Bounds in pixels, min included, max excluded.
+    public int xMin, yMin, xMax, yMax;
+
+    // False when the surface cannot be projected, the whole image is used.
+    private boolean cropped = false;
+
+    // Calibration values used for the last computation.
+    private PlaneAndProjectionCalibration calibration = null;
+    private final float[] signature = new float[21];
+    private final float[] currentSignature = new float[21];
+
+    private final int width, height;
+
+    public DepthROI(int width, int height) {
+        this.width = width;
+        this.height = height;
+        setFullFrame();
+    }
+
+    public boolean isCropped() {
+        return cropped;
+    }
+
+    /**
+     * Update the bounds if the calibration changed since the last call.
+     *
+     * @param calib plane and homography of the touch surface.
+     * @param device depth camera.
+     * @param surfaceHeight height over the plane, in millimeters.
+     * @param uvMargin margin in the homography space (0.1 for 3D points).
+     * @param margin margin in pixels.
+     */
+    public void update(PlaneAndProjectionCalibration calib, ProjectiveDeviceP device,
+            float surfaceHeight, float uvMargin, int margin) {
+
+        fillSignature(calib, surfaceHeight, uvMargin, margin);
+        if (calib == calibration && Arrays.equals(signature, currentSignature)) {
+            return;
+        }
+        calibration = calib;
+        System.arraycopy(currentSignature, 0, signature, 0, signature.length);
+        compute(calib, device, surfaceHeight, uvMargin, margin);
+    }
+
+    private void fillSignature(PlaneAndProjectionCalibration calib,
+            float surfaceHeight, float uvMargin, int margin) {
+        PMatrix3D h = calib.getHomography();
+        Plane plane = calib.getPlane();
+        float[] s = currentSignature;
+        s[0] = h.m00;
+        s[1] = h.m01;
+        s[2] = h.m02;
+        s[3] = h.m03;
+        s[4] = h.m10;
+        s[5] = h.m11;
+        s[6] = h.m12;
+        s[7] = h.m13;
+        s[8] = h.m20;
+        s[9] = h.m21;
+        s[10] = h.m22;
+        s[11] = h.m23;
+        s[12] = plane.x;
+        s[13] = plane.y;
+        s[14] = plane.z;
+        s[15] = plane.normal.x;
+        s[16] = plane.normal.y;
+        s[17] = plane.normal.z;
+        s[18] = surfaceHeight;
+        s[19] = uvMargin;
+        s[20] = margin;
+    }
+
+    private void setFullFrame() {
+        xMin = 0;
+        yMin = 0;
+        xMax = width;
+        yMax = height;
+        cropped = false;
+    }
+
+    private void compute(PlaneAndProjectionCalibration calib, ProjectiveDeviceP device,
+            float surfaceHeight, float uvMargin, int margin) {
+
+        PMatrix3D h = calib.getHomography();
+        Plane plane = calib.getPlane();
+
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+
+        float[] corners = {-uvMargin, 1 + uvMargin};
+        PVector p = new PVector();
+        for (float u : corners) {
+            for (float v : corners) {
+                if (!pointOnPlane(h, plane, u, v, p)) {
+                    setFullFrame();
+                    return;
+                }
+                // Good orientation is on the opposite side of the normal.
+                for (int k = 0; k < 2; k++) {
+                    float d = k * surfaceHeight;
+                    PVector top = new PVector(p.x - plane.normal.x * d,
+                            p.y - plane.normal.y * d,
+                            p.z - plane.normal.z * d);
+                    if (top.z <= 0) {
+                        setFullFrame();
+                        return;
+                    }
+                    PVector px = device.worldToPixelReal(top);
+                    minX = Math.min(minX, px.x);
+                    minY = Math.min(minY, px.y);
+                    maxX = Math.max(maxX, px.x);
+                    maxY = Math.max(maxY, px.y);
+                }
+            }
+        }
+
+        xMin = clamp((int) Math.floor(minX) - margin, 0, width);
+        yMin = clamp((int) Math.floor(minY) - margin, 0, height);
+        xMax = clamp((int) Math.ceil(maxX) + margin + 1, 0, width);
+        yMax = clamp((int) Math.ceil(maxY) + margin + 1, 0, height);
+        cropped = true;
+    }
+
+    /**
+     * Point of the plane projected at (u, v) by the homography. Solves
+     * (h0 - u.h2).p = u.h23 - h03, (h1 - v.h2).p = v.h23 - h13 and n.p = n.p0.
+     *
+     * @return false if there is no single solution.
+     */
+    private static boolean pointOnPlane(PMatrix3D h, Plane plane, float u, float v, PVector out) {
+        double a00 = h.m00 - u * h.m20, a01 = h.m01 - u * h.m21, a02 = h.m02 - u * h.m22;
+        double a10 = h.m10 - v * h.m20, a11 = h.m11 - v * h.m21, a12 = h.m12 - v * h.m22;
+        double a20 = plane.normal.x, a21 = plane.normal.y, a22 = plane.normal.z;
+        double b0 = u * h.m23 - h.m03;
+        double b1 = v * h.m23 - h.m13;
+        double b2 = plane.normal.x * plane.x + plane.normal.y * plane.y + plane.normal.z * plane.z;
+
+        double det = a00 * (a11 * a22 - a12 * a21)
+                - a01 * (a10 * a22 - a12 * a20)
+                + a02 * (a10 * a21 - a11 * a20);
+        if (Math.abs(det) < 1e-12) {
+            return false;
+        }
+        out.x = (float) ((b0 * (a11 * a22 - a12 * a21)
+                - a01 * (b1 * a22 - a12 * b2)
+                + a02 * (b1 * a21 - a11 * b2)) / det);
+        out.y = (float) ((a00 * (b1 * a22 - a12 * b2)
+                - b0 * (a10 * a22 - a12 * a20)
+                + a02 * (a10 * b2 - b1 * a20)) / det);
+        out.z = (float) ((a00 * (a11 * b2 - b1 * a21)
+                - a01 * (a10 * b2 - b1 * a20)
+                + b0 * (a10 * a21 - a11 * a20)) / det);
+        return true;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public String toString() {
+        return "DepthROI [" + xMin + ", " + yMin + "] - [" + xMax + ", " + yMax + "]"
+                + (cropped ? "" : " full frame");
+    }
+}
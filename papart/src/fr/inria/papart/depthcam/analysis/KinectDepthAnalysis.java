@@ -21,12 +21,11 @@ package fr.inria.papart.depthcam.analysis;
 
 import fr.inria.papart.calibration.HomographyCalibration;
 import fr.inria.papart.calibration.PlaneAndProjectionCalibration;
+import fr.inria.papart.depthcam.IntList;
 import fr.inria.papart.depthcam.PixelOffset;
 import fr.inria.papart.depthcam.TouchAttributes;
-import fr.inria.papart.depthcam.devices.Kinect360;
 import fr.inria.papart.depthcam.devices.KinectDepthData;
 import fr.inria.papart.depthcam.devices.KinectDevice;
-import fr.inria.papart.depthcam.devices.KinectOne;
 import static fr.inria.papart.depthcam.analysis.DepthAnalysis.INVALID_POINT;
 import static fr.inria.papart.depthcam.analysis.DepthAnalysis.papplet;
 import fr.inria.papart.procam.ProjectiveDeviceP;
@@ -34,13 +33,18 @@ import fr.inria.papart.procam.Utils;
 import fr.inria.papart.procam.camera.Camera;
 import fr.inria.papart.procam.camera.CameraOpenKinect;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.bytedeco.javacpp.opencv_core;
 import org.bytedeco.javacpp.opencv_core.IplImage;
 import processing.core.PApplet;
@@ -56,19 +60,29 @@ public class KinectDepthAnalysis extends DepthAnalysis {
 
     // Configuration 
     private float closeThreshold = 300f, farThreshold = 12000f;
+    private boolean undistortDepth = false;
     protected ProjectiveDeviceP calibIR, calibRGB;
 
     // private variables 
     // Raw data from the Kinect Sensor
-    protected byte[] depthRaw;
     protected byte[] colorRaw;
 
+    // Depth in millimeters, decoded once per frame.
+    protected float[] depthMap;
+
     // static values
     protected static final float INVALID_DEPTH = -1;
 
     protected KinectDevice kinectDevice;
     protected DepthComputation depthComputationMethod;
 
+    // Connexity and normals of the 3D valid points in updateMT.
+    private boolean computeConnexity = false;
+    private boolean computeNormals = false;
+
+    // Optional temporal filter, applied after the decoding.
+    private DepthFilter depthFilter = null;
+
     public KinectDevice kinectDevice() {
         return this.kinectDevice;
     }
@@ -94,31 +108,159 @@ public class KinectDepthAnalysis extends DepthAnalysis {
         calibRGB = kinect.getCameraRGB().getProjectiveDevice();
         calibIR = kinect.getCameraDepth().getProjectiveDevice();
         initMemory();
-
-        // initThreadPool();
     }
 
-    // Thread version... No bonus whatsoever for now.
-    private int nbThreads = 16;
+    // Parallel version: the frame is split in stripes of rows.
+    private boolean useParallel = false;
+    private int nbThreads = Runtime.getRuntime().availableProcessors();
     private ExecutorService threadPool;
+    private final ArrayList<DepthPixelTask> stripeTasks = new ArrayList<>();
+
+    // Set during a parallel pass, read by the selection classes.
+    private boolean isParallelPass = false;
+    private int stripeBegin, stripeHeight, lastRow;
+
+    // Duration of the last updateRawDepth, in ns.
+    private long rawDepthTime = 0;
+
+    // Region of interest: only the pixels seen on the touch surface.
+    private boolean useROI = false;
+    private int roiMargin = 8;
+    private float roiHeight = 0;
+    private DepthROI surfaceROI;
+    // ROI of the current frame, null for the whole image.
+    private DepthROI frameROI = null;
+
+    /**
+     * Split the depth computations in row stripes processed by a thread pool.
+     * The valid points lists stay in the same order as in sequential mode.
+     *
+     * @param parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.useParallel = parallel;
+        if (parallel && threadPool == null) {
+            initThreadPool();
+        }
+    }
+
+    public boolean isParallel() {
+        return this.useParallel;
+    }
+
+    /**
+     * Number of threads (and stripes) used in parallel mode. Default is the
+     * number of available processors.
+     *
+     * @param nbThreads
+     */
+    public void setNbThreads(int nbThreads) {
+        assert (nbThreads > 0);
+        this.nbThreads = nbThreads;
+        if (threadPool != null) {
+            threadPool.shutdown();
+            initThreadPool();
+        }
+    }
+
+    public int getNbThreads() {
+        return this.nbThreads;
+    }
+
+    /**
+     * Restrict the updateMT passes to the part of the depth image where the
+     * touch surface is. The region is computed from the plane and homography
+     * of the calibration, and updated when they change.
+     *
+     * @param useROI
+     */
+    public void setUseROI(boolean useROI) {
+        this.useROI = useROI;
+    }
+
+    public boolean isUseROI() {
+        return this.useROI;
+    }
+
+    /**
+     * Margin around the touch surface, in pixels of the depth image.
+     *
+     * @param margin
+     */
+    public void setROIMargin(int margin) {
+        this.roiMargin = margin;
+    }
+
+    public int getROIMargin() {
+        return this.roiMargin;
+    }
+
+    /**
+     * Height of the volume over the surface kept in the region, in
+     * millimeters. The plane height is used when it is higher. 3D points over
+     * this height and outside of the region are not selected.
+     *
+     * @param height
+     */
+    public void setROIHeight(float height) {
+        this.roiHeight = height;
+    }
+
+    public float getROIHeight() {
+        return this.roiHeight;
+    }
+
+    /**
+     * @return the region used for the current frame, null when the whole
+     * image is used.
+     */
+    public DepthROI getFrameROI() {
+        return frameROI;
+    }
+
+    private void cropToSurface(PlaneAndProjectionCalibration calib) {
+        if (!useROI || !calib.isValid()) {
+            return;
+        }
+        // 0.1 margin of Select3DPointPlaneProjection.
+        surfaceROI.update(calib, calibIR,
+                Math.max(calib.getPlaneHeight(), roiHeight), 0.1f, roiMargin);
+        frameROI = surfaceROI.isCropped() ? surfaceROI : null;
+    }
 
     private void initThreadPool() {
-        threadPool = Executors.newFixedThreadPool(nbThreads);
+        threadPool = Executors.newFixedThreadPool(nbThreads, new ThreadFactory() {
+            private int threadId = 0;
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Depth analysis " + threadId++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        stripeTasks.clear();
+        for (int i = 0; i < nbThreads; i++) {
+            stripeTasks.add(new DepthPixelTask(i));
+        }
     }
 
     private void initMemory() {
         colorRaw = new byte[kinectDevice.colorSize() * 3];
-        depthRaw = new byte[kinectDevice.rawDepthSize()];
+        depthMap = new float[kinectDevice.depthSize()];
 
         depthData = new KinectDepthData(this);
         depthData.projectiveDevice = this.calibIR;
-
-        if (kinectDevice instanceof Kinect360) {
-            depthComputationMethod = new Kinect360Depth();
-        } else {
-            if (kinectDevice instanceof KinectOne) {
+        surfaceROI = new DepthROI(kinectDevice.depthWidth(), kinectDevice.depthHeight());
+
+        // By type, the raw format does not depend on the device class.
+        switch (kinectDevice.type()) {
+            case X360:
+                depthComputationMethod = new Kinect360Depth();
+                break;
+            case ONE:
                 depthComputationMethod = new KinectOneDepth();
-            }
+                break;
         }
 
         PixelOffset.initStaticMode(kinectDevice.depthWidth(), kinectDevice.depthHeight());
@@ -137,7 +279,7 @@ public class KinectDepthAnalysis extends DepthAnalysis {
 
         int worldToPixel = kinectDevice().getCameraDepth().getProjectiveDevice().worldToPixel(v2);
 
-        return Utils.toPVector(depthData.depthPoints[worldToPixel]);
+        return Utils.toPVector(depthData.getDepthPoint(worldToPixel));
     }
 
     public void update(IplImage depth) {
@@ -157,10 +299,18 @@ public class KinectDepthAnalysis extends DepthAnalysis {
         depthData.clear();
         depthData.timeStamp = papplet.millis();
         depthData.planeAndProjectionCalibration = calib;
+        cropToSurface(calib);
 //        computeDepthAndDo(skip2D, new DoNothing());
-        computeDepthAndDo(skip2D, new Select2DPointPlaneProjection());
-//        doForEachPoint(skip2D, new Select2DPointPlaneProjection());
-        doForEachPoint(skip3D, new Select3DPointPlaneProjection());
+//        computeDepthAndDo(skip2D, new Select2DPointPlaneProjection());
+//        doForEachPoint(skip3D, new Select3DPointPlaneProjection());
+        computeDepthAndDo(skip2D, new Select2D3DPointPlaneProjection(skip3D));
+
+        if (computeConnexity) {
+            computeValidPointsConnexity(skip3D);
+        }
+        if (computeNormals) {
+            computeNormals(skip3D);
+        }
 
         // Optimisations -- for demos
         //        depthData.connexity.setPrecision(skip3D);
@@ -184,6 +334,7 @@ public class KinectDepthAnalysis extends DepthAnalysis {
 //        depthData.clearColor();
         depthData.timeStamp = papplet.millis();
         depthData.planeAndProjectionCalibration = calib;
+        cropToSurface(calib);
         computeDepthAndDo(skip, new Select2DPointPlaneProjection());
 
         // TechFest Hacks
@@ -200,22 +351,29 @@ public class KinectDepthAnalysis extends DepthAnalysis {
 //        depthData.clearColor();
         depthData.timeStamp = papplet.millis();
         depthData.planeAndProjectionCalibration = calib;
+        cropToSurface(calib);
         computeDepthAndDo(skip, new Select3DPointPlaneProjection());
 //        doForEachValidPoint(skip, new SetImageData());
     }
 
     public void computeDepthAndDo(int precision, DepthPointManiplation manip) {
-        PixelList pixels = new PixelList(precision);
+        if (useParallel) {
+            doInParallel(precision, manip, PixelPass.COMPUTE_DEPTH);
+            return;
+        }
+        computeDepthAndDo(new PixelList(precision), manip);
+    }
 
+    private void computeDepthAndDo(PixelList pixels, DepthPointManiplation manip) {
+        Vec3D tmp = new Vec3D();
+        float[] rays = calibIR.getRays(undistortDepth);
         for (PixelOffset px : pixels) {
             float d = getDepth(px.offset);
             if (d != INVALID_DEPTH) {
-
-//                Vec3D pKinect = calibIR.pixelToWorld(px.x, px.y, d);
-//                depthData.depthPoints[px.offset] = pKinect;
-                calibIR.pixelToWorld(px.x, px.y, d, depthData.depthPoints[px.offset]);
-//                 System.out.println("Depth " + depthData.depthPoints[px.offset]);
-                manip.execute(depthData.depthPoints[px.offset], px);
+                Vec3D p = depthData.depthPointFor(px.offset, tmp);
+                pixelToWorld(rays, px.offset, d, p);
+                depthData.setDepthPoint(px.offset, p);
+                manip.execute(p, px);
             }
         }
     }
@@ -223,6 +381,8 @@ public class KinectDepthAnalysis extends DepthAnalysis {
     protected void computeDepthAndDo(int precision, DepthPointManiplation manip, InvalidPointManiplation invalidManip) {
 
         PixelList pixels = new PixelList(precision);
+        Vec3D tmp = new Vec3D();
+        float[] rays = calibIR.getRays(undistortDepth);
 
         for (PixelOffset px : pixels) {
 
@@ -232,8 +392,10 @@ public class KinectDepthAnalysis extends DepthAnalysis {
 //                depthData.depthPoints[px.offset] = pKinect;
 //                manip.execute(pKinect, px);
 
-                calibIR.pixelToWorld(px.x, px.y, d, depthData.depthPoints[px.offset]);
-                manip.execute(depthData.depthPoints[px.offset], px);
+                Vec3D p = depthData.depthPointFor(px.offset, tmp);
+                pixelToWorld(rays, px.offset, d, p);
+                depthData.setDepthPoint(px.offset, p);
+                manip.execute(p, px);
 
             } else {
                 invalidManip.execute(px);
@@ -241,18 +403,29 @@ public class KinectDepthAnalysis extends DepthAnalysis {
         }
     }
 
+    private static void pixelToWorld(float[] rays, int offset, float depth, Vec3D result) {
+        result.x = rays[offset * 2] * depth;
+        result.y = rays[offset * 2 + 1] * depth;
+        result.z = depth;
+    }
+
     protected void doForEachPoint(int precision, DepthPointManiplation manip) {
         if (precision <= 0) {
             return;
         }
-        PixelList pixels = new PixelList(precision);
+        if (useParallel) {
+            doInParallel(precision, manip, PixelPass.EACH_POINT);
+            return;
+        }
+        doForEachPoint(new PixelList(precision), manip);
+    }
 
+    private void doForEachPoint(PixelList pixels, DepthPointManiplation manip) {
+        Vec3D tmp = new Vec3D();
         for (PixelOffset px : pixels) {
-            Vec3D pKinect = depthData.depthPoints[px.offset];
-            if (pKinect != INVALID_POINT) {
-                manip.execute(pKinect, px);
+            if (depthData.hasDepth(px.offset)) {
+                manip.execute(depthData.getDepthPointView(px.offset, tmp), px);
             }
-
         }
     }
 
@@ -260,13 +433,18 @@ public class KinectDepthAnalysis extends DepthAnalysis {
         if (precision <= 0) {
             return;
         }
+        if (useParallel) {
+            doInParallel(precision, manip, PixelPass.EACH_VALID_POINT);
+            return;
+        }
+        doForEachValidPoint(new PixelList(precision), manip);
+    }
 
-        PixelList pixels = new PixelList(precision);
-
+    private void doForEachValidPoint(PixelList pixels, DepthPointManiplation manip) {
+        Vec3D tmp = new Vec3D();
         for (PixelOffset px : pixels) {
-            Vec3D pKinect = depthData.depthPoints[px.offset];
-            if (pKinect != INVALID_POINT && depthData.validPointsMask[px.offset] == true) {
-                manip.execute(pKinect, px);
+            if (depthData.validPointsMask[px.offset] && depthData.hasDepth(px.offset)) {
+                manip.execute(depthData.getDepthPointView(px.offset, tmp), px);
             }
         }
     }
@@ -275,23 +453,91 @@ public class KinectDepthAnalysis extends DepthAnalysis {
         if (precision <= 0) {
             return;
         }
-        PixelList pixels = new PixelList(precision);
+        if (useParallel) {
+            doInParallel(precision, manip, PixelPass.EACH_VALID_3D_POINT);
+            return;
+        }
+        doForEachValid3DPoint(new PixelList(precision), manip);
+    }
 
+    private void doForEachValid3DPoint(PixelList pixels, DepthPointManiplation manip) {
+        Vec3D tmp = new Vec3D();
         for (PixelOffset px : pixels) {
-            Vec3D pKinect = depthData.depthPoints[px.offset];
-            if (pKinect != INVALID_POINT && depthData.validPointsMask3D[px.offset] == true) {
-                manip.execute(pKinect, px);
+            if (depthData.validPointsMask3D[px.offset] && depthData.hasDepth(px.offset)) {
+                manip.execute(depthData.getDepthPointView(px.offset, tmp), px);
             }
         }
     }
 
+    /**
+     * Add a point to the 2D valid points. In parallel mode it goes to the
+     * buffer of its stripe, merged after the pass.
+     *
+     * @param px
+     */
+    protected void addValidPoint(PixelOffset px) {
+        depthData.validPointsMask[px.offset] = true;
+        depthData.updateDepthPointView(px.offset);
+        if (isParallelPass) {
+            stripeTasks.get((px.y - stripeBegin) / stripeHeight).validPoints.add(px.offset);
+        } else {
+            depthData.validPointsList.add(px.offset);
+        }
+    }
+
+    /**
+     * In parallel mode the computed point goes to the list of its stripe,
+     * merged after the pass.
+     *
+     * @param px
+     */
+    @Override
+    protected void computeConnexity(PixelOffset px) {
+        if (isParallelPass) {
+            IntList computed = stripeTasks.get((px.y - stripeBegin) / stripeHeight).connexityPoints;
+            depthData.connexity.compute(px.x, px.y, computed);
+        } else {
+            super.computeConnexity(px);
+        }
+    }
+
+    /**
+     * Add a point to the 3D valid points. In parallel mode it goes to the
+     * buffer of its stripe, merged after the pass.
+     *
+     * @param px
+     */
+    protected void addValidPoint3D(PixelOffset px) {
+        depthData.validPointsMask3D[px.offset] = true;
+        depthData.updateDepthPointView(px.offset);
+        if (isParallelPass) {
+            stripeTasks.get((px.y - stripeBegin) / stripeHeight).validPoints3D.add(px.offset);
+        } else {
+            depthData.validPointsList3D.add(px.offset);
+        }
+    }
+
+    /**
+     * Decode the depth image in depthMap, reading the native buffer directly.
+     *
+     * @param depthImage
+     */
     protected void updateRawDepth(opencv_core.IplImage depthImage) {
-//        ByteBuffer depthBuff = depthImage.imageData().asBuffer();
-//        System.out.println("depthRaw size " + depthRaw.length + " image data size " + depthImage.getByteBuffer().capacity());
-//        depthBuff.get(depthRaw);
+        long start = System.nanoTime();
+        frameROI = null;
+        depthComputationMethod.decode(depthImage.getByteBuffer(), depthMap);
+        if (depthFilter != null) {
+            depthFilter.apply(depthMap);
+        }
+        rawDepthTime = System.nanoTime() - start;
+    }
 
-        depthImage.getByteBuffer().get(depthRaw);
-//        depthImage.imageData().get(depthRaw);
+    /**
+     * @return the duration of the decoding (and filtering) of the last depth
+     * frame, in nanoseconds.
+     */
+    public long getRawDepthTime() {
+        return rawDepthTime;
     }
 
     protected void updateRawColor(opencv_core.IplImage colorImage) {
@@ -303,24 +549,34 @@ public class KinectDepthAnalysis extends DepthAnalysis {
      * @param offset
      * @return the depth (float).
      */
-    protected float getDepth(int offset) {
+    protected final float getDepth(int offset) {
+        return depthMap[offset];
+    }
 
-        return depthComputationMethod.findDepth(offset);
+    /**
+     * @return the depth of each pixel in millimeters, for the last frame.
+     */
+    public float[] getDepthMap() {
+        return depthMap;
     }
 
+    /**
+     * Decode a raw depth frame to depth values in millimeters.
+     */
     public interface DepthComputation {
 
-        public float findDepth(int offset);
+        public void decode(ByteBuffer rawDepth, float[] depth);
     }
 
     class Kinect360Depth implements DepthComputation {
 
         @Override
-        public float findDepth(int offset) {
-            float d = (depthRaw[offset * 2] & 0xFF) << 8
-                    | (depthRaw[offset * 2 + 1] & 0xFF);
-
-            return d;
+        public void decode(ByteBuffer rawDepth, float[] depth) {
+            // 2 bytes per pixel, high byte first.
+            ShortBuffer depthShorts = rawDepth.order(ByteOrder.BIG_ENDIAN).asShortBuffer();
+            for (int i = 0; i < depth.length; i++) {
+                depth[i] = depthShorts.get(i) & 0xFFFF;
+            }
         }
     }
 
@@ -329,14 +585,108 @@ public class KinectDepthAnalysis extends DepthAnalysis {
     class KinectOneDepth implements DepthComputation {
 
         @Override
-        public float findDepth(int offset) {
-            float d = (depthRaw[offset * 3 + 1] & 0xFF) * 256 + 
-                     (depthRaw[offset * 3] & 0xFF);
-            
-            return d / KINECT_ONE_DEPTH_RATIO; // / 65535f * 10000f;
+        public void decode(ByteBuffer rawDepth, float[] depth) {
+            // 3 bytes per pixel, low byte first.
+            int k = 0;
+            for (int i = 0; i < depth.length; i++) {
+                float d = (rawDepth.get(k + 1) & 0xFF) * 256
+                        + (rawDepth.get(k) & 0xFF);
+                depth[i] = d / KINECT_ONE_DEPTH_RATIO; // / 65535f * 10000f;
+                k += 3;
+            }
         }
     }
 
+    /**
+     * Compute the connexity of the 3D valid points in updateMT, used for the
+     * normals and the hand segmentation.
+     *
+     * @param compute
+     */
+    public void setComputeConnexity(boolean compute) {
+        this.computeConnexity = compute;
+    }
+
+    public boolean isComputeConnexity() {
+        return this.computeConnexity;
+    }
+
+    /**
+     * Compute the connexity only for the valid 3D points, instead of the
+     * whole image.
+     *
+     * @param precision skip value used to select the points.
+     */
+    public void computeValidPointsConnexity(int precision) {
+        depthData.connexity.setPrecision(precision);
+        depthData.connexity.compute(depthData.validPointsList3D);
+    }
+
+    /**
+     * Compute the normals of the 3D valid points in updateMT, see
+     * computeNormals.
+     *
+     * @param compute
+     */
+    public void setComputeNormals(boolean compute) {
+        this.computeNormals = compute;
+    }
+
+    public boolean isComputeNormals() {
+        return this.computeNormals;
+    }
+
+    /**
+     * Compute the normals of the valid 3D points, in depthData.normalsXYZ.
+     * Runs in stripes in parallel mode.
+     *
+     * @param precision skip value used to select the points.
+     */
+    public void computeNormals(int precision) {
+        float maxDist = depthData.connexity.DEFAULT_CONNEXITY_DIST * precision;
+        doForEachValid3DPoint(precision, new ComputeNormalMap(precision, maxDist));
+    }
+
+    /**
+     * Filter the depth map of each frame before the analysis.
+     *
+     * @param filter null to disable the filtering.
+     */
+    public void setDepthFilter(DepthFilter filter) {
+        this.depthFilter = filter;
+    }
+
+    /**
+     * Create and set a filter for this depth camera.
+     *
+     * @param mode DepthFilter.EXPONENTIAL or DepthFilter.MEDIAN.
+     * @return the filter, to set its parameters.
+     */
+    public DepthFilter useDepthFilter(int mode) {
+        DepthFilter filter = new DepthFilter(kinectDevice.depthSize());
+        filter.setMode(mode);
+        setDepthFilter(filter);
+        return filter;
+    }
+
+    public DepthFilter getDepthFilter() {
+        return this.depthFilter;
+    }
+
+    /**
+     * Use the distortion coefficients of the depth calibration when the 3D
+     * points are computed. The undistorted rays are computed once.
+     *
+     * @param undistort
+     */
+    public void setUndistortDepth(boolean undistort) {
+        this.undistortDepth = undistort;
+    }
+
+    public boolean isUndistortDepth() {
+        return this.undistortDepth;
+    }
+
     public void setNearFarValue(float near, float far) {
         this.closeThreshold = near;
         this.farThreshold = far;
@@ -353,8 +703,7 @@ public class KinectDepthAnalysis extends DepthAnalysis {
                 depthData.planeAndProjectionCalibration.project(p, depthData.projectedPoints[px.offset]);
 
                 if (isInside(depthData.projectedPoints[px.offset], 0.f, 1.f, 0.0f)) {
-                    depthData.validPointsMask[px.offset] = true;
-                    depthData.validPointsList.add(px.offset);
+                    addValidPoint(px);
                 }
             }
         }
@@ -375,10 +724,8 @@ public class KinectDepthAnalysis extends DepthAnalysis {
 
                 depthData.projectedPoints[px.offset] = projected;
                 depthData.touchAttributes[px.offset] = new TouchAttributes(touchSurface, underTouch, overTouch);
-                depthData.validPointsMask[px.offset] = touchSurface;
-
                 if (touchSurface) {
-                    depthData.validPointsList.add(px.offset);
+                    addValidPoint(px);
                 }
             }
         }
@@ -389,8 +736,7 @@ public class KinectDepthAnalysis extends DepthAnalysis {
         @Override
         public void execute(Vec3D p, PixelOffset px) {
             if (depthData.planeCalibration.hasGoodOrientation(p)) {
-                depthData.validPointsMask[px.offset] = true;
-                depthData.validPointsList.add(px.offset);
+                addValidPoint(px);
             }
         }
     }
@@ -400,8 +746,7 @@ public class KinectDepthAnalysis extends DepthAnalysis {
         @Override
         public void execute(Vec3D p, PixelOffset px) {
             if (depthData.planeCalibration.hasGoodOrientationAndDistance(p)) {
-                depthData.validPointsMask[px.offset] = true;
-                depthData.validPointsList.add(px.offset);
+                addValidPoint(px);
             }
         }
     }
@@ -418,8 +763,7 @@ public class KinectDepthAnalysis extends DepthAnalysis {
 
             // TODO: Find how to select the points... 
             if (projected.z > 10 && projected.x > 0 && projected.y > 0) {
-                depthData.validPointsMask[px.offset] = true;
-                depthData.validPointsList.add(px.offset);
+                addValidPoint(px);
             }
         }
     }
@@ -435,13 +779,53 @@ public class KinectDepthAnalysis extends DepthAnalysis {
                 depthData.planeAndProjectionCalibration.project(p, depthData.projectedPoints[px.offset]);
 
                 if (isInside(depthData.projectedPoints[px.offset], 0.f, 1.f, 0.1f)) {
-                    depthData.validPointsMask3D[px.offset] = true;
-                    depthData.validPointsList3D.add(px.offset);
+                    addValidPoint3D(px);
                 }
             }
         }
     }
 
+    /**
+     * Select2DPointPlaneProjection and Select3DPointPlaneProjection in one
+     * pass: the orientation is checked and the point is projected once. The
+     * 3D selection is done on the pixels of the skip3D grid, as the depth is
+     * only computed on the points of this pass it gives the same points as
+     * the two passes.
+     */
+    class Select2D3DPointPlaneProjection implements DepthPointManiplation {
+
+        private final int skip3D;
+
+        public Select2D3DPointPlaneProjection(int skip3D) {
+            this.skip3D = skip3D;
+        }
+
+        @Override
+        public void execute(Vec3D p, PixelOffset px) {
+            PlaneAndProjectionCalibration calib = depthData.planeAndProjectionCalibration;
+            if (!calib.hasGoodOrientation(p)) {
+                return;
+            }
+
+            boolean is3DPoint = skip3D > 0 && px.x % skip3D == 0 && px.y % skip3D == 0;
+            if (!is3DPoint && !calib.hasGoodDistance(p)) {
+                return;
+            }
+
+            Vec3D projected = depthData.projectedPoints[px.offset];
+            calib.project(p, projected);
+
+            // projected.z is the distance to the plane.
+            if (projected.z <= calib.getPlaneHeight()
+                    && isInside(projected, 0.f, 1.f, 0.0f)) {
+                addValidPoint(px);
+            }
+            if (is3DPoint && isInside(projected, 0.f, 1.f, 0.1f)) {
+                addValidPoint3D(px);
+            }
+        }
+    }
+
     class SetImageData implements DepthPointManiplation {
 
         @Override
@@ -452,7 +836,9 @@ public class KinectDepthAnalysis extends DepthAnalysis {
     }
 
     protected int getPixelColor(int offset) {
-        int colorOffset = kinectDevice.findColorOffset(depthData.depthPoints[offset]) * 3;
+        int colorOffset = kinectDevice.findColorOffset(depthData.getDepthX(offset),
+                depthData.getDepthY(offset),
+                depthData.getDepthZ(offset)) * 3;
         int c = (colorRaw[colorOffset + 2] & 0xFF) << 16
                 | (colorRaw[colorOffset + 1] & 0xFF) << 8
                 | (colorRaw[colorOffset + 0] & 0xFF);
@@ -465,11 +851,17 @@ public class KinectDepthAnalysis extends DepthAnalysis {
         int precision = 1;
         int begin = 0;
         int end;
+        int xBegin = 0;
+        int xEnd;
 
+        /**
+         * All the pixels, or the ones of the region of interest of the frame.
+         *
+         * @param precision
+         */
         public PixelList(int precision) {
-            this.precision = precision;
-            this.begin = 0;
-            this.end = calibIR.getHeight();
+            this(precision, frameROI != null ? frameROI.yMin : 0,
+                    frameROI != null ? frameROI.yMax : calibIR.getHeight());
         }
 
         /**
@@ -480,23 +872,41 @@ public class KinectDepthAnalysis extends DepthAnalysis {
          * @param end
          */
         public PixelList(int precision, int begin, int end) {
+            this(precision, begin, end,
+                    frameROI != null ? frameROI.xMin : 0,
+                    frameROI != null ? frameROI.xMax : calibIR.getWidth());
+        }
+
+        /**
+         * Begin and end are aligned on the precision grid, so that the same
+         * pixels as the whole image are visited.
+         *
+         * @param precision
+         * @param begin first row.
+         * @param end last row, excluded.
+         * @param xBegin first column.
+         * @param xEnd last column, excluded.
+         */
+        public PixelList(int precision, int begin, int end, int xBegin, int xEnd) {
             this.precision = precision;
-            this.begin = begin;
+            this.begin = (begin / precision) * precision;
             this.end = end;
+            this.xBegin = (xBegin / precision) * precision;
+            this.xEnd = xEnd;
         }
 
         @Override
         public Iterator<PixelOffset> iterator() {
             Iterator<PixelOffset> it = new Iterator<PixelOffset>() {
 
-                private int x = 0;
-                private int y = begin;
-                private int offset = 0;
                 private final int width = calibIR.getWidth();
+                private int x = xBegin;
+                private int y = begin;
+                private int offset = begin * width + xBegin;
 
                 @Override
                 public boolean hasNext() {
-                    return offset < width * end;
+                    return y < end && xBegin < xEnd;
                 }
 
                 @Override
@@ -508,10 +918,10 @@ public class KinectDepthAnalysis extends DepthAnalysis {
                     x += precision;
                     offset += precision;
 
-                    if (x >= width) {
-                        x = 0;
+                    if (x >= xEnd) {
+                        x = xBegin;
                         y += precision;
-                        offset = y * width;
+                        offset = y * width + xBegin;
                     }
 
                     return out;
@@ -526,72 +936,112 @@ public class KinectDepthAnalysis extends DepthAnalysis {
         }
     }
 
+    private enum PixelPass {
+        COMPUTE_DEPTH, EACH_POINT, EACH_VALID_POINT, EACH_VALID_3D_POINT
+    }
+
     /**
-     * Slower than sequential for now.
+     * Run a pass on stripes of rows, and merge the valid points of each stripe
+     * in order. The stripes are aligned on the precision so that the same
+     * pixels as the sequential version are visited.
      *
      * @param precision
      * @param manip
+     * @param pass
      */
-    protected void computeDepthAndDoParallel(int precision, DepthPointManiplation manip) {
-        ArrayList<FutureTask<DepthPixelTask>> tasks = new ArrayList<>();
+    private void doInParallel(int precision, DepthPointManiplation manip, PixelPass pass) {
+        if (threadPool == null) {
+            initThreadPool();
+        }
+        int firstRow = frameROI != null ? (frameROI.yMin / precision) * precision : 0;
+        lastRow = frameROI != null ? frameROI.yMax : calibIR.getHeight();
+        int nbRows = (lastRow - firstRow + precision - 1) / precision;
+        int rowsPerStripe = Math.max(1, (nbRows + nbThreads - 1) / nbThreads);
+        stripeBegin = firstRow;
+        stripeHeight = rowsPerStripe * precision;
+
         for (int i = 0; i < nbThreads; i++) {
-            DepthPixelTask depthPixelTask = new DepthPixelTask(i, nbThreads, precision, manip);
-            FutureTask<DepthPixelTask> task = new FutureTask<DepthPixelTask>(depthPixelTask);
-            threadPool.submit(task);
-            tasks.add(task);
+            stripeTasks.get(i).set(precision, manip, pass);
         }
+
+        isParallelPass = true;
         try {
-            for (FutureTask<DepthPixelTask> task : tasks) {
-                task.get();
+            for (Future<Void> result : threadPool.invokeAll(stripeTasks)) {
+                result.get();
             }
         } catch (ExecutionException e) {
+            throw new RuntimeException("Depth analysis failed in a stripe.", e.getCause());
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.getLogger(KinectDepthAnalysis.class.getName()).log(Level.SEVERE, null, e);
+        } finally {
+            isParallelPass = false;
+        }
+
+        for (DepthPixelTask task : stripeTasks) {
+            if (!task.validPoints.isEmpty()) {
+                depthData.validPointsList.addAll(task.validPoints);
+                task.validPoints.clear();
+            }
+            if (!task.validPoints3D.isEmpty()) {
+                depthData.validPointsList3D.addAll(task.validPoints3D);
+                task.validPoints3D.clear();
+            }
+            if (!task.connexityPoints.isEmpty()) {
+                depthData.connexity.addComputedPoints(task.connexityPoints);
+                task.connexityPoints.clear();
+            }
         }
     }
 
-    class DepthPixelTask implements Callable {
+    class DepthPixelTask implements Callable<Void> {
 
-        private int part;
-        private int nbThreads;
+        private final int part;
         private int precision;
         private DepthPointManiplation manip;
+        private PixelPass pass;
+
+        // Valid points found in this stripe, in row order.
+        final IntList validPoints = new IntList();
+        final IntList validPoints3D = new IntList();
+        // Points of this stripe with a computed connexity.
+        final IntList connexityPoints = new IntList();
 
-        public DepthPixelTask(int part, int nbThreads, int precision, DepthPointManiplation manip) {
+        public DepthPixelTask(int part) {
             this.part = part;
-            this.nbThreads = nbThreads;
+        }
+
+        void set(int precision, DepthPointManiplation manip, PixelPass pass) {
             this.precision = precision;
             this.manip = manip;
+            this.pass = pass;
         }
 
         @Override
-        public Object call() {
-
-            int nbParts = nbThreads;
-            int partSize = nbParts / calibIR.getHeight();
-            int begin = partSize * part;
-
-            int end;
-            if (part == nbThreads - 1) {
-                end = calibIR.getHeight();
-            } else {
-                end = partSize * (part + 1);
+        public Void call() {
+            int begin = Math.min(stripeBegin + stripeHeight * part, lastRow);
+            int end = Math.min(stripeBegin + stripeHeight * (part + 1), lastRow);
+            if (begin >= end) {
+                return null;
             }
 
             PixelList pixels = new PixelList(precision, begin, end);
-
-            for (PixelOffset px : pixels) {
-                float d = getDepth(px.offset);
-                if (d != INVALID_DEPTH) {
-//                    Vec3D pKinect = calibIR.pixelToWorld(px.x, px.y, d);
-//                    depthData.depthPoints[px.offset] = pKinect;
-
-                    calibIR.pixelToWorld(px.x, px.y, d, depthData.depthPoints[px.offset]);
-                    manip.execute(depthData.depthPoints[px.offset], px);
-                }
+            switch (pass) {
+                case COMPUTE_DEPTH:
+                    computeDepthAndDo(pixels, manip);
+                    break;
+                case EACH_POINT:
+                    doForEachPoint(pixels, manip);
+                    break;
+                case EACH_VALID_POINT:
+                    doForEachValidPoint(pixels, manip);
+                    break;
+                case EACH_VALID_3D_POINT:
+                    doForEachValid3DPoint(pixels, manip);
+                    break;
             }
             return null;
         }
-
     }
 
     public void undistortRGB(opencv_core.IplImage rgb, opencv_core.IplImage out) {
@@ -82,6 +82,7 @@ public class KinectOpenCV extends KinectDepthAnalysis {
         @Override
         public void execute(Vec3D p, PixelOffset px) {
             depthData.validPointsMask[px.offset] = true;
+            depthData.updateDepthPointView(px.offset);
             int outputOffset = px.offset * 3;
             int colorOffset = kinectDevice.findColorOffset(p) * 3;
             validPointsRaw[outputOffset + 2] = colorRaw[colorOffset + 2];
@@ -23,6 +23,7 @@ import static fr.inria.papart.depthcam.analysis.DepthAnalysis.papplet;
 import fr.inria.papart.calibration.HomographyCalibration;
 import fr.inria.papart.calibration.PlaneAndProjectionCalibration;
 import fr.inria.papart.calibration.PlaneCalibration;
+import fr.inria.papart.depthcam.IntList;
 import fr.inria.papart.depthcam.PixelOffset;
 import fr.inria.papart.depthcam.devices.KinectDevice;
 import fr.inria.papart.depthcam.devices.KinectOne;
@@ -118,11 +119,12 @@ public class KinectProcessing extends KinectDepthAnalysis {
         validPointsPImage.updatePixels();
     }
     
-    private void erodePoints2(ArrayList<Integer> validList, boolean[] arrayToErode, int skip) {
+    private void erodePoints2(IntList validList, boolean[] arrayToErode, int skip) {
 
         Arrays.fill(validCopy, false);
 
-        for (Integer idx : validList) {
+        for (int k = 0; k < validList.size(); k++) {
+            int idx = validList.get(k);
             PixelOffset po = PixelOffset.get(idx);
             int sum = 0;
 
@@ -170,8 +172,7 @@ public class KinectProcessing extends KinectDepthAnalysis {
                 depthData.planeAndProjectionCalibration.project(p, depthData.projectedPoints[px.offset]);
 
                 if (isInside(depthData.projectedPoints[px.offset], 0.f, 1.f, 0.0f)) {
-                    depthData.validPointsMask[px.offset] = true;
-                    depthData.validPointsList.add(px.offset);
+                    addValidPoint(px);
                 }
             }
         }
@@ -255,6 +256,7 @@ public class KinectProcessing extends KinectDepthAnalysis {
         @Override
         public void execute(Vec3D p, PixelOffset px) {
             depthData.validPointsMask[px.offset] = true;
+            depthData.updateDepthPointView(px.offset);
             setPixelColor(px.offset);
         }
     }
@@ -267,7 +269,9 @@ public class KinectProcessing extends KinectDepthAnalysis {
     }
 
     private void setPixelColor(int offset) {
-        int colorOffset = kinectDevice.findColorOffset(depthData.depthPoints[offset]) * 3;
+        int colorOffset = kinectDevice.findColorOffset(depthData.getDepthX(offset),
+                depthData.getDepthY(offset),
+                depthData.getDepthZ(offset)) * 3;
         int c = (colorRaw[colorOffset + 2] & 0xFF) << 16
                 | (colorRaw[colorOffset + 1] & 0xFF) << 8
                 | (colorRaw[colorOffset + 0] & 0xFF);
@@ -24,6 +24,7 @@ import fr.inria.papart.procam.Papart;
 import fr.inria.papart.procam.camera.Camera;
 import fr.inria.papart.procam.camera.CameraFactory;
 import fr.inria.papart.procam.camera.CameraOpenKinect;
+import fr.inria.papart.procam.camera.FrameRecorder;
 import processing.core.PApplet;
 import processing.core.PMatrix3D;
 
@@ -84,6 +85,16 @@ public class Kinect360 extends KinectDevice {
         ((CameraOpenKinect) this.getCameraRGB()).setTouch(kinectTouchInput);
     }
 
+    @Override
+    public boolean canRecord() {
+        return true;
+    }
+
+    @Override
+    protected void setRecorder(FrameRecorder recorder) {
+        camera.getDepthCamera().setRecorder(recorder);
+    }
+
     @Override
     public Type type() {
         return Type.X360;
@@ -28,10 +28,10 @@ import fr.inria.papart.depthcam.analysis.Connexity;
 import fr.inria.papart.depthcam.analysis.DepthAnalysis;
 import fr.inria.papart.depthcam.DepthData;
 import fr.inria.papart.depthcam.DepthDataElementKinect;
+import fr.inria.papart.depthcam.IntList;
 import fr.inria.papart.depthcam.TouchAttributes;
 import fr.inria.papart.procam.camera.Camera;
 import fr.inria.papart.procam.ProjectiveDeviceP;
-import java.util.ArrayList;
 import java.util.Arrays;
 import org.bytedeco.javacv.ProjectiveDevice;
 import toxi.geom.Vec3D;
@@ -60,7 +60,7 @@ public class KinectDepthData extends DepthData {
     /**
      * List of valid points
      */
-    public ArrayList<Integer> validPointsList3D;
+    public IntList validPointsList3D;
 
     public PlaneAndProjectionCalibration planeAndProjectionCalibration;
     public HomographyCalibration homographyCalibration;
@@ -80,21 +80,36 @@ public class KinectDepthData extends DepthData {
         }
         
         touchAttributes = new TouchAttributes[size];
-        validPointsList = new ArrayList();
         if (is3D) {
             validPointsMask3D = new boolean[size];
-            validPointsList3D = new ArrayList();
+            validPointsList3D = new IntList(size / 4);
         }
-        connexity = new Connexity(depthPoints, source.getDepthWidth(), source.getDepthHeight());
+        connexity = new Connexity(depthPointsXYZ, source.getDepthWidth(), source.getDepthHeight());
 //        connexity = new Connexity(projectedPoints, width, height);
     }
 
+    @Override
+    protected boolean isDepthPointViewUpToDate(int offset) {
+        return super.isDepthPointViewUpToDate(offset)
+                || (validPointsMask3D != null && validPointsMask3D[offset]);
+    }
+
     public DepthDataElementKinect getElementKinect(int i) {
         DepthDataElementKinect dde = new DepthDataElementKinect();
         fillDepthDataElement(dde, i);
         return dde;
     }
 
+    /**
+     * @param i
+     * @param dde element to fill.
+     * @return dde
+     */
+    public DepthDataElementKinect getElementKinect(int i, DepthDataElementKinect dde) {
+        fillDepthDataElement(dde, i);
+        return dde;
+    }
+
     protected void fillDepthDataElement(DepthDataElementKinect ddek, int i) {
         super.fillDepthDataElement(ddek, i);
         ddek.projectedPoint = projectedPoints[i];
@@ -116,6 +131,11 @@ public class KinectDepthData extends DepthData {
     public void clearDepth() {
         super.clearDepth();
 
+        // Projected points are only read for valid points, they are
+        // written before the points are selected.
+        if (isPrimitiveStorage()) {
+            return;
+        }
         for (Vec3D pt : projectedPoints) {
             pt.clear();
         }
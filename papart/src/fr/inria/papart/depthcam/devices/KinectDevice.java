@@ -23,6 +23,8 @@ import fr.inria.papart.calibration.HomographyCalibration;
 import fr.inria.papart.multitouch.KinectTouchInput;
 import fr.inria.papart.procam.HasExtrinsics;
 import fr.inria.papart.procam.camera.Camera;
+import fr.inria.papart.procam.camera.FrameRecorder;
+import java.io.IOException;
 import processing.core.PApplet;
 import processing.core.PMatrix3D;
 import processing.core.PVector;
@@ -74,6 +76,61 @@ public abstract class KinectDevice implements DepthCameraDevice {
         getCameraRGB().close();
     }
 
+    private FrameRecorder recorder = null;
+
+    /**
+     * @return true if the frames grabbed can be given to a recorder.
+     */
+    public boolean canRecord() {
+        return false;
+    }
+
+    /**
+     * Give the frames grabbed to a recorder, when canRecord().
+     *
+     * @param recorder null to stop.
+     */
+    protected void setRecorder(FrameRecorder recorder) {
+        throw new UnsupportedOperationException("This device cannot record its frames.");
+    }
+
+    /**
+     * Record the depth and color frames, they can be replayed by a
+     * KinectReplay.
+     *
+     * @param fileName
+     * @param compress compress each frame.
+     * @throws IOException
+     * @throws UnsupportedOperationException if the device cannot record, the
+     * file is not created.
+     */
+    public void startRecording(String fileName, boolean compress) throws IOException {
+        if (!canRecord()) {
+            throw new UnsupportedOperationException("This device cannot record its frames.");
+        }
+        stopRecording();
+        FrameRecorder newRecorder = new FrameRecorder(fileName, type(), compress);
+        try {
+            setRecorder(newRecorder);
+        } catch (RuntimeException e) {
+            newRecorder.close();
+            throw e;
+        }
+        recorder = newRecorder;
+    }
+
+    public void stopRecording() throws IOException {
+        if (recorder != null) {
+            setRecorder(null);
+            recorder.close();
+            recorder = null;
+        }
+    }
+
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
     public static KinectDevice createKinect360(PApplet parent) {
         return new Kinect360(parent);
     }
@@ -25,6 +25,7 @@ import fr.inria.papart.procam.camera.Camera;
 import fr.inria.papart.procam.camera.CameraFactory;
 import fr.inria.papart.procam.camera.CameraOpenCVDepth;
 import fr.inria.papart.procam.camera.CameraOpenKinectDepth;
+import fr.inria.papart.procam.camera.FrameRecorder;
 import processing.core.PApplet;
 
 /**
@@ -128,6 +129,16 @@ public final class KinectOne extends KinectDevice {
         ((CameraOpenCVDepth) cameraDepth).setTouchInput(kinectTouchInput);
     }
 
+    @Override
+    public boolean canRecord() {
+        return true;
+    }
+
+    @Override
+    protected void setRecorder(FrameRecorder recorder) {
+        ((CameraOpenCVDepth) cameraDepth).setRecorder(recorder);
+    }
+
     @Override
     public Type type() {
         return Type.ONE;
@@ -46,7 +46,7 @@ public class KinectPointCloud extends PointCloud implements PConstants {
 
     public void updateWith(KinectProcessing kinect) {
         boolean[] valid = kinect.getValidPoints();
-        Vec3D[] points = kinect.getDepthPoints();
+        float[] points = kinect.getDepthPointsXYZ();
         PImage colorsImg = kinect.getColouredDepthImage();
 
         nbVertices = 0;
@@ -56,12 +56,11 @@ public class KinectPointCloud extends PointCloud implements PConstants {
         for (int i = 0; i < kinect.getDepthSize(); i++) {
 
             if (valid[i]) {
-                Vec3D p = points[i];
                 int c = colorsImg.pixels[i];
 
-                verticesJava[k++] = p.x;
-                verticesJava[k++] = p.y;
-                verticesJava[k++] = -p.z;
+                verticesJava[k++] = points[i * 3];
+                verticesJava[k++] = points[i * 3 + 1];
+                verticesJava[k++] = -points[i * 3 + 2];
                 verticesJava[k++] = 1;
 
                 int c2 = javaToNativeARGB(c);
@@ -0,0 +1,105 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.depthcam.devices;
+
+import fr.inria.papart.multitouch.KinectTouchInput;
+import fr.inria.papart.procam.Papart;
+import fr.inria.papart.procam.camera.Camera;
+import fr.inria.papart.procam.camera.CameraFactory;
+import fr.inria.papart.procam.camera.CameraReplay;
+import fr.inria.papart.procam.camera.FrameRecording;
+import processing.core.PApplet;
+
+/**
+ * Kinect replaying the frames recorded with startRecording, without device.
+ * It has the type, the sizes and the calibrations of the recorded Kinect.
+ *
+ * @author Jeremy Laviole
+ */
+public class KinectReplay extends KinectDevice {
+
+    private final CameraReplay camera;
+    private final Type type;
+
+    public KinectReplay(PApplet parent, String fileName) {
+        this.parent = parent;
+        camera = (CameraReplay) CameraFactory.createCamera(Camera.Type.REPLAY, fileName);
+        camera.setParent(parent);
+        camera.start();
+
+        FrameRecording recording = camera.getRecording();
+        if (recording == null) {
+            throw new RuntimeException("KinectReplay: cannot read the recording " + fileName);
+        }
+        type = recording.getDeviceType();
+        WIDTH = recording.getDepthWidth();
+        HEIGHT = recording.getDepthHeight();
+        SIZE = WIDTH * HEIGHT;
+        RGB_WIDTH = recording.getColorWidth();
+        RGB_HEIGHT = recording.getColorHeight();
+        RGB_SIZE = RGB_WIDTH * RGB_HEIGHT;
+
+        if (type == Type.ONE) {
+            camera.setCalibration(Papart.calibrationFolder + "camera-kinect2-rgb.yaml");
+            camera.getDepthCamera().setCalibration(Papart.calibrationFolder + "camera-kinect2-IR.yaml");
+        } else {
+            camera.setCalibration(Papart.kinectRGBCalib);
+            camera.getDepthCamera().setCalibration(Papart.kinectIRCalib);
+        }
+        setStereoCalibration(Papart.kinectStereoCalib);
+    }
+
+    /**
+     * @return the camera replaying the frames, to set the speed.
+     */
+    public CameraReplay getCameraReplay() {
+        return camera;
+    }
+
+    @Override
+    public Camera getCameraRGB() {
+        return camera;
+    }
+
+    @Override
+    public Camera getCameraIR() {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Camera getCameraDepth() {
+        return camera.getDepthCamera();
+    }
+
+    @Override
+    public int rawDepthSize() {
+        return type == Type.ONE ? SIZE * 3 : SIZE * 2;
+    }
+
+    @Override
+    public void setTouch(KinectTouchInput kinectTouchInput) {
+        camera.setTouch(kinectTouchInput);
+    }
+
+    @Override
+    public Type type() {
+        return type;
+    }
+}
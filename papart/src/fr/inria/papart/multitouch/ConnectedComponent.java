@@ -19,14 +19,15 @@
  */
 package fr.inria.papart.multitouch;
 
-import java.util.ArrayList;
+import fr.inria.papart.depthcam.IntList;
 import toxi.geom.Vec3D;
 
 /**
+ * List of pixel offsets.
  *
  * @author Jeremy Laviole
  */
-public class ConnectedComponent extends ArrayList<Integer> {
+public class ConnectedComponent extends IntList {
 
     private int id;
 
@@ -40,8 +41,9 @@ public class ConnectedComponent extends ArrayList<Integer> {
     
     public Vec3D getMean(Vec3D[] array) {
         Vec3D mean = new Vec3D(0, 0, 0);
-        for (int offset : this) {
-            mean.addSelf(array[offset]);
+        int[] offsets = getArray();
+        for (int i = 0; i < size(); i++) {
+            mean.addSelf(array[offsets[i]]);
         }
         mean.scaleSelf(1.0f / this.size());
         return mean;
@@ -49,8 +51,9 @@ public class ConnectedComponent extends ArrayList<Integer> {
 
     public float getMinZ(Vec3D[] array) {
         float min = Float.MAX_VALUE;
-        for (int offset : this) {
-            float z = array[offset].z;
+        int[] offsets = getArray();
+        for (int i = 0; i < size(); i++) {
+            float z = array[offsets[i]].z;
             if (z < min) {
                 min = z;
             }
@@ -61,8 +64,9 @@ public class ConnectedComponent extends ArrayList<Integer> {
     public float getHeight(Vec3D[] array) {
         float min = Float.MAX_VALUE;
         float max = 0;
-        for (int offset : this) {
-            float z = array[offset].z;
+        int[] offsets = getArray();
+        for (int i = 0; i < size(); i++) {
+            float z = array[offsets[i]].z;
             if (z < min) {
                 min = z;
             }
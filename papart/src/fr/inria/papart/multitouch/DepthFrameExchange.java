@@ -0,0 +1,156 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import fr.inria.papart.procam.Utils;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import static org.bytedeco.javacpp.opencv_core.cvCopy;
+
+/**
+ * Triple buffer of depth and color frames, between one grabbing thread and
+ * one analysis thread. The grabbing thread never waits: it copies the frame
+ * in its buffer and swaps it with the middle one. The analysis thread takes
+ * the middle buffer when it is new, the frames it did not take in time are
+ * dropped.
+ *
+ * @author Jeremy Laviole
+ */
+public class DepthFrameExchange {
+
+    private static final int INDEX_MASK = 3;
+    private static final int NEW_FRAME = 4;
+
+    private final IplImage[] depthImages = new IplImage[3];
+    private final IplImage[] colorImages = new IplImage[3];
+    private final long[] grabTimes = new long[3];
+
+    // Owned by the grabbing thread.
+    private int writeIndex = 0;
+    // Shared, index of the last published frame and NEW_FRAME flag.
+    private final AtomicInteger middle = new AtomicInteger(1);
+    // Owned by the analysis thread.
+    private int readIndex = 2;
+
+    private volatile Thread reader = null;
+    private final AtomicInteger nbDropped = new AtomicInteger(0);
+
+    /**
+     * Copy and publish a frame, called by the grabbing thread.
+     *
+     * @param depthImage
+     * @param colorImage can be null.
+     * @param grabTime System.nanoTime() at the grab of the frame.
+     */
+    public void publish(IplImage depthImage, IplImage colorImage, long grabTime) {
+        depthImages[writeIndex] = copy(depthImage, depthImages[writeIndex]);
+        colorImages[writeIndex] = copy(colorImage, colorImages[writeIndex]);
+        grabTimes[writeIndex] = grabTime;
+
+        int previous = middle.getAndSet(writeIndex | NEW_FRAME);
+        if ((previous & NEW_FRAME) != 0) {
+            nbDropped.incrementAndGet();
+        }
+        writeIndex = previous & INDEX_MASK;
+
+        Thread waiting = reader;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+    }
+
+    private static IplImage copy(IplImage src, IplImage dst) {
+        if (src == null) {
+            return null;
+        }
+        if (dst == null
+                || dst.width() != src.width()
+                || dst.height() != src.height()
+                || dst.nChannels() != src.nChannels()
+                || dst.depth() != src.depth()) {
+            dst = Utils.createImageFrom(src);
+        }
+        cvCopy(src, dst);
+        return dst;
+    }
+
+    /**
+     * Take the last published frame, called by the analysis thread.
+     *
+     * @return true when a new frame is available in getDepthImage() and
+     * getColorImage().
+     */
+    public boolean take() {
+        if ((middle.get() & NEW_FRAME) == 0) {
+            return false;
+        }
+        readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+        return true;
+    }
+
+    /**
+     * Take the last published frame, waiting for it when there is none.
+     *
+     * @param timeout in milliseconds.
+     * @return false if there is no new frame after the timeout.
+     */
+    public boolean take(int timeout) {
+        reader = Thread.currentThread();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (!take()) {
+            long remaining = end - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * @return the depth image of the frame taken, do not modify.
+     */
+    public IplImage getDepthImage() {
+        return depthImages[readIndex];
+    }
+
+    /**
+     * @return the color image of the frame taken, null if none was given.
+     */
+    public IplImage getColorImage() {
+        return colorImages[readIndex];
+    }
+
+    /**
+     * @return System.nanoTime() at the grab of the frame taken.
+     */
+    public long getGrabTime() {
+        return grabTimes[readIndex];
+    }
+
+    /**
+     * @return number of frames published and never taken.
+     */
+    public int getNbDroppedFrames() {
+        return nbDropped.get();
+    }
+}
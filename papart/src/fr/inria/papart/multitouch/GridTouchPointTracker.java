@@ -0,0 +1,283 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import toxi.geom.Vec3D;
+
+/**
+ * Tracker with an optimal assignment, alternative to the greedy
+ * TouchPointTracker. The previous points are put in a grid of cells of the
+ * tracking distance, so only the close pairs are compared. The pairs are split
+ * in independent groups, and each group is solved with the Hungarian method:
+ * the total distance is minimal, two crossing fingers do not swap their IDs.
+ *
+ * One tracker per list of points, the memory is kept between the frames.
+ *
+ * @author Jeremy Laviole
+ */
+public class GridTouchPointTracker {
+
+    private final HungarianAssignment hungarian = new HungarianAssignment();
+
+    // Grid of the previous points, sorted by cell.
+    private long[] cellKeys = new long[16];
+    private int[] cellPoints = new int[16];
+
+    // Candidate pairs
+    private int nbEdges = 0;
+    private int[] edgeOld = new int[64];
+    private int[] edgeNew = new int[64];
+    private float[] edgeDist = new float[64];
+
+    // Groups: old points are nodes [0, nbOld[, new points [nbOld, nbOld + nbNew[
+    private int[] parent = new int[32];
+    private int[] localIndex = new int[32];
+    private int[] groupOld = new int[16];
+    private int[] groupNew = new int[16];
+
+    private float[] cost = new float[256];
+    private int[] assignment = new int[16];
+
+    // Time of the new points, used for the predicted positions.
+    private int frameTime;
+
+    /**
+     * Same steps as TouchPointTracker.trackPoints, with the optimal update.
+     *
+     * @param currentList
+     * @param newPoints
+     * @param currentTime
+     */
+    public void trackPoints(ArrayList<TouchPoint> currentList,
+            ArrayList<TouchPoint> newPoints, int currentTime) {
+        trackPoints(currentList, newPoints, currentTime, null);
+    }
+
+    /**
+     * @param currentList
+     * @param newPoints
+     * @param currentTime
+     * @param pool the merged and deleted points are released in it, can be
+     * null.
+     */
+    public void trackPoints(ArrayList<TouchPoint> currentList,
+            ArrayList<TouchPoint> newPoints, int currentTime, TouchPointPool pool) {
+
+        TouchPointTracker.deleteOldPoints(currentList, currentTime, pool);
+        updatePoints(currentList, newPoints);
+        TouchPointTracker.addNewPoints(currentList, newPoints, pool);
+        TouchPointTracker.setNonUpdatedPointsSpeed(currentList);
+    }
+
+    public void updatePoints(ArrayList<TouchPoint> currentList, ArrayList<TouchPoint> newPoints) {
+        int nbOld = currentList.size();
+        int nbNew = newPoints.size();
+        if (nbOld == 0 || nbNew == 0) {
+            return;
+        }
+        float maxDistance = newPoints.get(0).getDetection().getTrackingMaxDistance();
+        frameTime = newPoints.get(0).getCreationTime();
+
+        fillGrid(currentList, maxDistance);
+        findCandidates(currentList, newPoints, maxDistance);
+        if (nbEdges == 0) {
+            return;
+        }
+        makeGroups(nbOld, nbNew);
+
+        // Solve each group of connected points.
+        for (int node = 0; node < nbOld + nbNew; node++) {
+            if (find(node) == node) {
+                solveGroup(node, currentList, newPoints, maxDistance);
+            }
+        }
+    }
+
+    private Vec3D trackedPosition(TouchPoint tp) {
+        return tp.getTrackingPosition(frameTime);
+    }
+
+    private static long cellKey(Vec3D p, float cellSize) {
+        long cx = (long) Math.floor(p.x / cellSize);
+        long cy = (long) Math.floor(p.y / cellSize);
+        return (cx << 32) ^ (cy & 0xFFFFFFFFL);
+    }
+
+    private void fillGrid(ArrayList<TouchPoint> currentList, float cellSize) {
+        int nbOld = currentList.size();
+        if (cellKeys.length < nbOld) {
+            cellKeys = new long[nbOld * 2];
+            cellPoints = new int[nbOld * 2];
+        }
+        // Insertion sort by cell, the lists are small.
+        for (int i = 0; i < nbOld; i++) {
+            long key = cellKey(trackedPosition(currentList.get(i)), cellSize);
+            int j = i - 1;
+            while (j >= 0 && cellKeys[j] > key) {
+                cellKeys[j + 1] = cellKeys[j];
+                cellPoints[j + 1] = cellPoints[j];
+                j--;
+            }
+            cellKeys[j + 1] = key;
+            cellPoints[j + 1] = i;
+        }
+    }
+
+    private void findCandidates(ArrayList<TouchPoint> currentList,
+            ArrayList<TouchPoint> newPoints, float maxDistance) {
+        int nbOld = currentList.size();
+        float maxDistanceSq = maxDistance * maxDistance;
+        nbEdges = 0;
+
+        for (int j = 0; j < newPoints.size(); j++) {
+            Vec3D newPos = newPoints.get(j).getPositionKinect();
+            long cx = (long) Math.floor(newPos.x / maxDistance);
+            long cy = (long) Math.floor(newPos.y / maxDistance);
+
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    long key = ((cx + dx) << 32) ^ ((cy + dy) & 0xFFFFFFFFL);
+
+                    for (int k = firstInCell(key, nbOld); k < nbOld && cellKeys[k] == key; k++) {
+                        int i = cellPoints[k];
+                        float distSq = trackedPosition(currentList.get(i)).distanceToSquared(newPos);
+                        if (distSq < maxDistanceSq) {
+                            addEdge(i, j, (float) Math.sqrt(distSq));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int firstInCell(long key, int size) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cellKeys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void addEdge(int oldId, int newId, float distance) {
+        if (nbEdges == edgeOld.length) {
+            edgeOld = Arrays.copyOf(edgeOld, nbEdges * 2);
+            edgeNew = Arrays.copyOf(edgeNew, nbEdges * 2);
+            edgeDist = Arrays.copyOf(edgeDist, nbEdges * 2);
+        }
+        edgeOld[nbEdges] = oldId;
+        edgeNew[nbEdges] = newId;
+        edgeDist[nbEdges] = distance;
+        nbEdges++;
+    }
+
+    private void makeGroups(int nbOld, int nbNew) {
+        int nbNodes = nbOld + nbNew;
+        if (parent.length < nbNodes) {
+            parent = new int[nbNodes * 2];
+            localIndex = new int[nbNodes * 2];
+        }
+        for (int i = 0; i < nbNodes; i++) {
+            parent[i] = i;
+        }
+        for (int e = 0; e < nbEdges; e++) {
+            int a = find(edgeOld[e]);
+            int b = find(nbOld + edgeNew[e]);
+            if (a != b) {
+                parent[a] = b;
+            }
+        }
+    }
+
+    private int find(int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private void solveGroup(int root, ArrayList<TouchPoint> currentList,
+            ArrayList<TouchPoint> newPoints, float maxDistance) {
+        int nbOld = currentList.size();
+        int nbNew = newPoints.size();
+        int nbNodes = nbOld + nbNew;
+
+        if (groupOld.length < nbNodes) {
+            groupOld = new int[nbNodes];
+            groupNew = new int[nbNodes];
+        }
+
+        int groupOldSize = 0;
+        int groupNewSize = 0;
+        for (int node = 0; node < nbNodes; node++) {
+            if (find(node) != root) {
+                continue;
+            }
+            if (node < nbOld) {
+                localIndex[node] = groupOldSize;
+                groupOld[groupOldSize++] = node;
+            } else {
+                localIndex[node] = groupNewSize;
+                groupNew[groupNewSize++] = node - nbOld;
+            }
+        }
+        // Alone, no pair.
+        if (groupOldSize == 0 || groupNewSize == 0) {
+            return;
+        }
+
+        // Square matrix, not linked pairs cost the maximal distance.
+        int n = Math.max(groupOldSize, groupNewSize);
+        if (cost.length < n * n) {
+            cost = new float[n * n];
+            assignment = new int[n];
+        }
+        Arrays.fill(cost, 0, n * n, maxDistance);
+        for (int e = 0; e < nbEdges; e++) {
+            if (find(edgeOld[e]) != root) {
+                continue;
+            }
+            int row = localIndex[edgeOld[e]];
+            int col = localIndex[nbOld + edgeNew[e]];
+            cost[row * n + col] = edgeDist[e];
+        }
+
+        hungarian.solve(cost, n, assignment);
+
+        for (int row = 0; row < groupOldSize; row++) {
+            int col = assignment[row];
+            if (col < groupNewSize && cost[row * n + col] < maxDistance) {
+                TouchPoint oldPoint = currentList.get(groupOld[row]);
+                TouchPoint newPoint = newPoints.get(groupNew[col]);
+                // new points are marked for deletion after update.
+                oldPoint.updateWith(newPoint);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import java.util.Arrays;
+
+/**
+ * Minimum cost assignment on a square cost matrix (Hungarian method with
+ * potentials, O(n^3)). The work arrays are kept between the calls.
+ *
+ * @author Jeremy Laviole
+ */
+public class HungarianAssignment {
+
+    private double[] u = new double[0];
+    private double[] v = new double[0];
+    private double[] minv = new double[0];
+    private int[] p = new int[0];
+    private int[] way = new int[0];
+    private boolean[] used = new boolean[0];
+
+    /**
+     * @param cost n * n costs, row after row.
+     * @param n size of the matrix.
+     * @param result filled with the column assigned to each row.
+     */
+    public void solve(float[] cost, int n, int[] result) {
+        assert (cost.length >= n * n && result.length >= n);
+        ensureCapacity(n + 1);
+
+        // 1-indexed, row and column 0 are virtual.
+        Arrays.fill(u, 0, n + 1, 0);
+        Arrays.fill(v, 0, n + 1, 0);
+        Arrays.fill(p, 0, n + 1, 0);
+        Arrays.fill(way, 0, n + 1, 0);
+
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, 0, n + 1, Double.MAX_VALUE);
+            Arrays.fill(used, 0, n + 1, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                double delta = Double.MAX_VALUE;
+                int j1 = 0;
+                for (int j = 1; j <= n; j++) {
+                    if (used[j]) {
+                        continue;
+                    }
+                    double cur = cost[(i0 - 1) * n + (j - 1)] - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= n; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        for (int j = 1; j <= n; j++) {
+            result[p[j] - 1] = j - 1;
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (u.length >= size) {
+            return;
+        }
+        u = new double[size];
+        v = new double[size];
+        minv = new double[size];
+        p = new int[size];
+        way = new int[size];
+        used = new boolean[size];
+    }
+}
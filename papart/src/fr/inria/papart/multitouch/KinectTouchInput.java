@@ -23,6 +23,7 @@ import fr.inria.papart.calibration.PlanarTouchCalibration;
 import fr.inria.papart.depthcam.devices.KinectDepthData;
 import fr.inria.papart.depthcam.DepthDataElementKinect;
 import fr.inria.papart.depthcam.DepthPoint;
+import fr.inria.papart.depthcam.IntList;
 import org.bytedeco.javacpp.opencv_core.IplImage;
 
 import fr.inria.papart.procam.display.ARDisplay;
@@ -36,12 +37,20 @@ import fr.inria.papart.procam.ProjectiveDeviceP;
 import fr.inria.papart.procam.camera.CameraOpenKinect;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import processing.core.PApplet;
 import processing.core.PMatrix3D;
 import processing.core.PVector;
+import toxi.geom.Plane;
 import toxi.geom.Vec3D;
 
 /**
@@ -72,6 +81,38 @@ public class KinectTouchInput extends TouchInput {
     private final TouchDetectionSimple2D touchDetection2D;
     private final TouchDetectionSimple3D touchDetection3D;
 
+    // Optimal tracking, the greedy TouchPointTracker is used by default.
+    private boolean useOptimalTracking = false;
+    private final GridTouchPointTracker tracker2D = new GridTouchPointTracker();
+    private final GridTouchPointTracker tracker3D = new GridTouchPointTracker();
+
+    // Recycled touch points, null when not used.
+    private TouchPointPool touchPointPool = null;
+
+    // Bulk projection of the depth points: x, y, z and color.
+    public static final int PROJECTED_POINT_SIZE = 4;
+    private boolean useParallelProjection = false;
+    private ExecutorService projectionPool = null;
+    private final ArrayList<ProjectionTask> projectionTasks = new ArrayList<>();
+
+    // Prediction time for the Touch, in ms. One display frame when negative.
+    private int predictionDelay = -1;
+
+    // Last analysis, read by the rendering thread.
+    private volatile TouchFrame touchFrame = TouchFrame.EMPTY;
+    private int touchFrameVersion = 0;
+    private final TouchProjectionCache projectionCache = new TouchProjectionCache();
+
+    // Analysis in its own thread, null when done by the grabbing thread.
+    private volatile DepthFrameExchange frameExchange = null;
+
+    // Latency of the stages, and durations of the frame being analysed (ns).
+    private final TouchLatency latency = new TouchLatency();
+    private long lastGrabTime = 0;
+    private long decodeTime, analysisTime, detectionTime, trackingTime;
+    private int lastMeasuredVersion = 0;
+    private TouchAnalysisThread analysisThread = null;
+
     public KinectTouchInput(PApplet applet,
             KinectDevice kinectDevice,
             KinectDepthAnalysis depthAnalysis,
@@ -86,6 +127,70 @@ public class KinectTouchInput extends TouchInput {
     
     public void setPlaneAndProjCalibration(PlaneAndProjectionCalibration papc){
         this.planeAndProjCalibration = papc;
+        projectionCache.clear();
+    }
+
+    /**
+     * Use the GridTouchPointTracker: optimal assignment of the touch points,
+     * instead of the greedy one.
+     *
+     * @param optimal
+     */
+    public void setOptimalTracking(boolean optimal) {
+        this.useOptimalTracking = optimal;
+    }
+
+    public boolean isOptimalTracking() {
+        return this.useOptimalTracking;
+    }
+
+    /**
+     * Recycle the TouchPoints, their Touch and depth data elements. A deleted
+     * touch point is reused one frame after the frame that does not contain
+     * it anymore, the touches must not be kept longer by the application.
+     * Only the tracked touch points are recycled, the raw detections
+     * (find2DTouchRaw) are new points.
+     *
+     * @param pooling
+     */
+    public void setTouchPointPooling(boolean pooling) {
+        touchPointPool = pooling ? new TouchPointPool() : null;
+    }
+
+    public boolean isTouchPointPooling() {
+        return touchPointPool != null;
+    }
+
+    /**
+     * Associate the touch points using their predicted positions, and give
+     * the predicted position in Touch.predictedPosition.
+     *
+     * @param predictive
+     */
+    public void setPredictiveTracking(boolean predictive) {
+        touchDetection2D.setPredictive(predictive);
+        touchDetection3D.setPredictive(predictive);
+    }
+
+    public boolean isPredictiveTracking() {
+        return touchDetection2D.isPredictive();
+    }
+
+    /**
+     * Time of the Touch predicted position, after the current time. Set the
+     * latency between the camera and the projector to compensate it.
+     *
+     * @param delay in milliseconds, negative for one display frame.
+     */
+    public void setPredictionDelay(int delay) {
+        this.predictionDelay = delay;
+    }
+
+    public int getPredictionDelay() {
+        if (predictionDelay < 0) {
+            return (int) (1000f / parent.frameRate);
+        }
+        return predictionDelay;
     }
 
     public void setTouchDetectionCalibration(PlanarTouchCalibration touchCalib) {
@@ -96,13 +201,125 @@ public class KinectTouchInput extends TouchInput {
         this.touchDetection3D.setCalibration(touchCalib);
     }
 
+    /**
+     * Run the analysis in a dedicated thread. The grabbing thread gives the
+     * frames with publishFrame() and does not wait for the analysis, when the
+     * analysis is slower than the camera the older frames are dropped.
+     */
+    public void startAnalysisThread() {
+        if (analysisThread != null) {
+            return;
+        }
+        DepthFrameExchange exchange = new DepthFrameExchange();
+        analysisThread = new TouchAnalysisThread(this, exchange);
+        analysisThread.start();
+        frameExchange = exchange;
+    }
+
+    public void stopAnalysisThread() {
+        if (analysisThread == null) {
+            return;
+        }
+        frameExchange = null;
+        analysisThread.stopAnalysis();
+        try {
+            analysisThread.join();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(KinectTouchInput.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        analysisThread = null;
+    }
+
+    public boolean isAnalysisThreaded() {
+        return frameExchange != null;
+    }
+
+    /**
+     * Give a frame to the analysis thread. The images are copied, the caller
+     * can reuse them.
+     *
+     * @param depthImage
+     * @param colorImage
+     */
+    public void publishFrame(IplImage depthImage, IplImage colorImage) {
+        DepthFrameExchange exchange = frameExchange;
+        if (exchange != null) {
+            exchange.publish(depthImage, colorImage, lastGrabTime);
+        }
+    }
+
+    /**
+     * Called by the camera after the grab of a depth frame, it starts the
+     * latency measure of the frame.
+     *
+     * @param grabStart System.nanoTime() before the grab.
+     */
+    public void frameGrabbed(long grabStart) {
+        latency.record(TouchLatency.Stage.GRAB, grabStart);
+        this.lastGrabTime = grabStart;
+    }
+
+    /**
+     * Called by the camera after the copy and the recording of the grabbed
+     * depth frame.
+     *
+     * @param storeStart System.nanoTime() before the copy.
+     */
+    public void frameStored(long storeStart) {
+        latency.record(TouchLatency.Stage.STORE, storeStart);
+    }
+
+    /**
+     * Durations of the touch pipeline stages, always recorded. Use
+     * getLatency().report() or getLatency().drawOverlay() to see them.
+     *
+     * @return the latency of each stage.
+     */
+    public TouchLatency getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return number of frames dropped by the analysis thread.
+     */
+    public int getNbDroppedFrames() {
+        DepthFrameExchange exchange = frameExchange;
+        return exchange == null ? 0 : exchange.getNbDroppedFrames();
+    }
+
+    /**
+     * Touch points of the last analysis. It can be read from any thread
+     * without locking.
+     *
+     * @return the last TouchFrame, never modified.
+     */
+    public TouchFrame getTouchFrame() {
+        return touchFrame;
+    }
+
     @Override
     public void update() {
-        try {
-         
-            IplImage depthImage = kinectDevice.getCameraDepth().getIplImage();
-            IplImage colImage = kinectDevice.getCameraRGB().getIplImage();
+        update(kinectDevice.getCameraDepth().getIplImage(),
+                kinectDevice.getCameraRGB().getIplImage());
+    }
 
+    public void update(IplImage depthImage, IplImage colImage) {
+        update(depthImage, colImage, lastGrabTime);
+    }
+
+    /**
+     * Analysis of a depth frame, and tracking of the touch points.
+     *
+     * @param depthImage
+     * @param colImage
+     * @param grabTime System.nanoTime() at the grab of the frame.
+     */
+    public void update(IplImage depthImage, IplImage colImage, long grabTime) {
+        decodeTime = 0;
+        analysisTime = 0;
+        detectionTime = 0;
+        trackingTime = 0;
+        try {
             depthDataSem.acquire();
             if (colImage == null || depthImage == null) {
                  System.out.println("No Image.");
@@ -112,20 +329,38 @@ public class KinectTouchInput extends TouchInput {
             touch2DPrecision = touchDetection2D.getPrecision();
             touch3DPrecision = touchDetection3D.getPrecision();
             if (touch2DPrecision > 0 && touch3DPrecision > 0) {
-                
+                long start = System.nanoTime();
                 depthAnalysis.updateMT(depthImage, colImage, planeAndProjCalibration, touch2DPrecision, touch3DPrecision);
+                addAnalysisTime(start);
                 findAndTrack2D();
                 findAndTrack3D();
             } else {
                 if (touch2DPrecision > 0) {
+                    long start = System.nanoTime();
                     depthAnalysis.updateMT2D(depthImage, colImage, planeAndProjCalibration, touch2DPrecision);
+                    addAnalysisTime(start);
                     findAndTrack2D();
                 }
                 if (touch3DPrecision > 0) {
+                    long start = System.nanoTime();
                     depthAnalysis.updateMT3D(depthImage, colImage, planeAndProjCalibration, touch3DPrecision);
+                    addAnalysisTime(start);
                     findAndTrack3D();
                 }
             }
+            // The tracked points are linked to the touches only when the
+            // application reads them in the thread of the analysis.
+            touchFrame = new TouchFrame(touchPoints2D, touchPoints3D,
+                    parent.millis(), ++touchFrameVersion, grabTime,
+                    !isAnalysisThreaded());
+            if (touchPointPool != null) {
+                touchPointPool.nextFrame();
+            }
+
+            latency.recordNanos(TouchLatency.Stage.DECODE, decodeTime);
+            latency.recordNanos(TouchLatency.Stage.DEPTH_ANALYSIS, analysisTime);
+            latency.recordNanos(TouchLatency.Stage.CONNECTED_COMPONENTS, detectionTime);
+            latency.recordNanos(TouchLatency.Stage.TRACKING, trackingTime);
         } catch (InterruptedException ex) {
             Logger.getLogger(KinectTouchInput.class.getName()).log(Level.SEVERE, null, ex);
         } finally {
@@ -133,29 +368,108 @@ public class KinectTouchInput extends TouchInput {
         }
     }
 
+    private void addAnalysisTime(long start) {
+        long rawDepthTime = depthAnalysis.getRawDepthTime();
+        decodeTime += rawDepthTime;
+        analysisTime += System.nanoTime() - start - rawDepthTime;
+    }
+
     private static final Touch INVALID_TOUCH = new Touch();
 
+    // computeOutsiders, useRawDepth, screen size, location or plane and homography.
+    private static final int SIGNATURE_SIZE = 4 + 16 + 6;
+    // Filled at each projection, in projectTouchToScreen (synchronized).
+    private final float[] signature = new float[SIGNATURE_SIZE];
+    private final PMatrix3D signatureLocation = new PMatrix3D();
+
+    /**
+     * Touches of the last TouchFrame on a screen. The projection is done once
+     * per frame and screen location, the list is shared by the calls: it
+     * must not be modified, use TouchList.copy() to modify it.
+     *
+     * @param screen
+     * @param display
+     * @return the touches, read only.
+     */
     @Override
-    public TouchList projectTouchToScreen(Screen screen, BaseDisplay display) {
+    public synchronized TouchList projectTouchToScreen(Screen screen, BaseDisplay display) {
+        TouchFrame frame = touchFrame;
+        // The predictions depend on the rendering time.
+        int renderFrame = frame.hasPrediction() ? parent.frameCount : 0;
+        projectionSignature(screen, display, signature);
+
+        TouchList touchList = projectionCache.get(screen, display,
+                frame.version, renderFrame, signature);
+        if (touchList == null) {
+            long start = System.nanoTime();
+            touchList = projectTouchToScreen(frame, screen, display);
+            projectionCache.put(screen, display,
+                    frame.version, renderFrame, signature, touchList);
+            long end = latency.record(TouchLatency.Stage.PROJECTION, start);
+
+            if (frame.version != lastMeasuredVersion && frame.grabTime != 0) {
+                lastMeasuredVersion = frame.version;
+                latency.recordNanos(TouchLatency.Stage.GRAB_TO_TOUCH, end - frame.grabTime);
+            }
+        }
+        return touchList;
+    }
 
-        TouchList touchList = new TouchList();
+    private void projectionSignature(Screen screen, BaseDisplay display, float[] signature) {
+        Arrays.fill(signature, 0);
+        signature[0] = computeOutsiders ? 1 : 0;
+        signature[1] = useRawDepth ? 1 : 0;
+        signature[2] = screen.getSize().x;
+        signature[3] = screen.getSize().y;
 
-        try {
-            touchPointSemaphore.acquire();
-        } catch (InterruptedException ie) {
-            System.err.println("Semaphore Exception: " + ie);
+        if (useRawDepth) {
+            putMatrix(screen.getLocation(display.getCamera(), signatureLocation), signature, 4);
+        } else if (screen.getWorldToScreen() != null) {
+            putMatrix(screen.getWorldToScreen().getHomography(), signature, 4);
+            Plane plane = screen.getPlane();
+            signature[20] = plane.x;
+            signature[21] = plane.y;
+            signature[22] = plane.z;
+            signature[23] = plane.normal.x();
+            signature[24] = plane.normal.y();
+            signature[25] = plane.normal.z();
         }
+    }
 
-        for (TouchPoint tp : touchPoints2D) {
-            Touch touch = createTouch(screen, display, tp);
+    // Same order as PMatrix3D.get(float[]).
+    private static void putMatrix(PMatrix3D m, float[] out, int offset) {
+        out[offset] = m.m00;
+        out[offset + 1] = m.m01;
+        out[offset + 2] = m.m02;
+        out[offset + 3] = m.m03;
+        out[offset + 4] = m.m10;
+        out[offset + 5] = m.m11;
+        out[offset + 6] = m.m12;
+        out[offset + 7] = m.m13;
+        out[offset + 8] = m.m20;
+        out[offset + 9] = m.m21;
+        out[offset + 10] = m.m22;
+        out[offset + 11] = m.m23;
+        out[offset + 12] = m.m30;
+        out[offset + 13] = m.m31;
+        out[offset + 14] = m.m32;
+        out[offset + 15] = m.m33;
+    }
+
+    private TouchList projectTouchToScreen(TouchFrame frame, Screen screen, BaseDisplay display) {
+        TouchList touchList = new TouchList();
+        PMatrix3D screenInv = rawDepthScreenInverse(screen, display);
+
+        for (TouchPointState tp : frame.points2D) {
+            Touch touch = createTouch(screen, display, screenInv, tp);
             if (touch != INVALID_TOUCH) {
                 touchList.add(touch);
             }
         }
 
-        for (TouchPoint tp : touchPoints3D) {
+        for (TouchPointState tp : frame.points3D) {
             try {
-                Touch touch = createTouch(screen, display, tp);
+                Touch touch = createTouch(screen, display, screenInv, tp);
                 if (touch != INVALID_TOUCH) {
                     touchList.add(touch);
                 }
@@ -163,23 +477,51 @@ public class KinectTouchInput extends TouchInput {
 //                System.err.println("Intersection fail. " + e);
             }
         }
-
-        touchPointSemaphore.release();
         return touchList;
     }
 
-    private Touch createTouch(Screen screen, BaseDisplay display, TouchPoint tp) {
-        Touch touch = tp.getTouch();
-        boolean hasProjectedPos = projectPositionAndSpeed(screen, display, touch, tp);
+    private Touch createTouch(Screen screen, BaseDisplay display,
+            PMatrix3D screenInv, TouchPointState tp) {
+        Touch touch = new Touch();
+        boolean hasProjectedPos = projectPositionAndSpeed(screen, display, screenInv, touch, tp);
         if (!hasProjectedPos) {
             return INVALID_TOUCH;
         }
-        touch.isGhost = tp.isToDelete();
-        touch.is3D = tp.is3D();
-        touch.touchPoint = tp;
+        projectPrediction(screen, display, screenInv, touch, tp);
+        touch.id = tp.id;
+        touch.isGhost = tp.isGhost;
+        touch.is3D = tp.is3D;
+        touch.createTime = tp.createTime;
+        touch.attachment = tp.attachment;
+        touch.touchPoint = tp.touchPoint;
+        touch.pointPosition.set(tp.position.x, tp.position.y, tp.position.z);
         return touch;
     }
 
+    private void projectPrediction(Screen screen,
+            BaseDisplay display, PMatrix3D screenInv,
+            Touch touch, TouchPointState tp) {
+        if (!tp.hasPrediction()) {
+            touch.predictedPosition.set(touch.position);
+            return;
+        }
+
+        Vec3D predicted = tp.getPredictedPositionKinect(
+                parent.millis() + getPredictionDelay(), new Vec3D());
+        Vec3D predictedNorm = planeAndProjCalibration.project(predicted);
+
+        PVector paperScreenCoord = projectPointToScreen(screen,
+                display, screenInv,
+                predicted,
+                predictedNorm);
+
+        if (paperScreenCoord == NO_INTERSECTION) {
+            touch.predictedPosition.set(touch.position);
+        } else {
+            touch.predictedPosition.set(paperScreenCoord);
+        }
+    }
+
     // TODO: Raw Depth is for Kinect Only, find a cleaner solution.
 //    private ProjectiveDeviceP pdp;
     private boolean useRawDepth = false;
@@ -190,24 +532,24 @@ public class KinectTouchInput extends TouchInput {
     }
 
     private boolean projectPositionAndSpeed(Screen screen,
-            BaseDisplay display,
-            Touch touch, TouchPoint tp) {
+            BaseDisplay display, PMatrix3D screenInv,
+            Touch touch, TouchPointState tp) {
 
-        boolean hasProjectedPos = projectPosition(screen, display, touch, tp);
+        boolean hasProjectedPos = projectPosition(screen, display, screenInv, touch, tp);
         if (hasProjectedPos) {
-            projectSpeed(screen, display, touch, tp);
+            projectSpeed(screen, display, screenInv, touch, tp);
         }
         return hasProjectedPos;
     }
 
     private boolean projectPosition(Screen screen,
-            BaseDisplay display,
-            Touch touch, TouchPoint tp) {
+            BaseDisplay display, PMatrix3D screenInv,
+            Touch touch, TouchPointState tp) {
 
         PVector paperScreenCoord = projectPointToScreen(screen,
-                display,
-                tp.getPositionKinect(),
-                tp.getPositionVec3D());
+                display, screenInv,
+                tp.positionKinect,
+                tp.position);
 
         touch.setPosition(paperScreenCoord);
 
@@ -215,13 +557,13 @@ public class KinectTouchInput extends TouchInput {
     }
 
     private boolean projectSpeed(Screen screen,
-            BaseDisplay display,
-            Touch touch, TouchPoint tp) {
+            BaseDisplay display, PMatrix3D screenInv,
+            Touch touch, TouchPointState tp) {
 
         PVector paperScreenCoord = projectPointToScreen(screen,
-                display,
-                tp.getPreviousPositionKinect(),
-                tp.getPreviousPositionVec3D());
+                display, screenInv,
+                tp.previousPositionKinect,
+                tp.previousPosition);
 
         if (paperScreenCoord == NO_INTERSECTION) {
             touch.defaultPrevPos();
@@ -236,9 +578,9 @@ public class KinectTouchInput extends TouchInput {
             depthDataSem.acquire();
             KinectDepthData depthData = depthAnalysis.getDepthData();
             ArrayList<DepthDataElementKinect> output = new ArrayList<>();
-            ArrayList<Integer> list = depthData.validPointsList3D;
-            for (Integer i : list) {
-                output.add(depthData.getElementKinect(i));
+            IntList list = depthData.validPointsList3D;
+            for (int i = 0; i < list.size(); i++) {
+                output.add(depthData.getElementKinect(list.get(i)));
             }
             depthDataSem.release();
             return output;
@@ -273,9 +615,10 @@ public class KinectTouchInput extends TouchInput {
             depthDataSem.acquire();
             KinectDepthData depthData = depthAnalysis.getDepthData();
             ArrayList<DepthPoint> projected = new ArrayList<DepthPoint>();
-            ArrayList<Integer> list = is2D ? depthData.validPointsList : depthData.validPointsList3D;
-            for (Integer i : list) {
-                DepthPoint depthPoint = tryCreateDepthPoint(display, screen, i);
+            IntList list = is2D ? depthData.validPointsList : depthData.validPointsList3D;
+            PMatrix3D screenInv = rawDepthScreenInverse(screen, display);
+            for (int i = 0; i < list.size(); i++) {
+                DepthPoint depthPoint = tryCreateDepthPoint(display, screen, screenInv, list.get(i));
                 if (depthPoint != null) {
                     projected.add(depthPoint);
                 }
@@ -291,10 +634,11 @@ public class KinectTouchInput extends TouchInput {
         }
     }
 
-    private DepthPoint tryCreateDepthPoint(ARDisplay display, Screen screen, int offset) {
+    private DepthPoint tryCreateDepthPoint(ARDisplay display, Screen screen,
+            PMatrix3D screenInv, int offset) {
         Vec3D projectedPt = depthAnalysis.getDepthData().projectedPoints[offset];
 
-        PVector screenPosition = projectPointToScreen(screen, display,
+        PVector screenPosition = projectPointToScreen(screen, display, screenInv,
                 depthAnalysis.getDepthData().depthPoints[offset],
                 projectedPt);
 
@@ -306,6 +650,196 @@ public class KinectTouchInput extends TouchInput {
         return new DepthPoint(screenPosition.x, screenPosition.y, screenPosition.z, c);
     }
 
+    /**
+     * Use a thread pool in projectDepthData(display, screen, is2D, out). Only
+     * the raw depth projection is done in parallel, the projection through
+     * the display is not thread safe.
+     *
+     * @param parallel
+     */
+    public void setParallelProjection(boolean parallel) {
+        this.useParallelProjection = parallel;
+        if (parallel && projectionPool == null) {
+            initProjectionPool();
+        }
+    }
+
+    public boolean isParallelProjection() {
+        return this.useParallelProjection;
+    }
+
+    private void initProjectionPool() {
+        int nbThreads = Runtime.getRuntime().availableProcessors();
+        projectionPool = Executors.newFixedThreadPool(nbThreads, new ThreadFactory() {
+            private int threadId = 0;
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Depth projection " + threadId++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        projectionTasks.clear();
+        for (int i = 0; i < nbThreads; i++) {
+            projectionTasks.add(new ProjectionTask());
+        }
+    }
+
+    /**
+     * Project the valid points on a screen, in a float array. Each point is
+     * stored as x, y, z in the screen and its color: read it with
+     * Float.floatToRawIntBits. The screen transform is computed once, and in
+     * raw depth mode no object is created for the points.
+     *
+     * @param display
+     * @param screen
+     * @param is2D the 2D valid points, or the 3D ones.
+     * @param out PROJECTED_POINT_SIZE floats per point, the points that do
+     * not fit are not projected.
+     * @return the number of points in out.
+     */
+    public int projectDepthData(ARDisplay display, Screen screen, boolean is2D, float[] out) {
+        try {
+            depthDataSem.acquire();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(KinectTouchInput.class.getName()).log(Level.SEVERE, null, ex);
+            return 0;
+        }
+        try {
+            KinectDepthData depthData = depthAnalysis.getDepthData();
+            IntList list = is2D ? depthData.validPointsList : depthData.validPointsList3D;
+            int nbPoints = Math.min(list.size(), out.length / PROJECTED_POINT_SIZE);
+
+            PMatrix3D screenInv = rawDepthScreenInverse(screen, display);
+            if (screenInv == null) {
+                return projectDepthPoints(display, screen, list, nbPoints, out);
+            }
+            float[] transform = screenInv.get(null);
+            if (useParallelProjection && nbPoints >= projectionTasks.size() * 64) {
+                return projectRawDepthPointsParallel(transform, screen.getSize(), list, nbPoints, out);
+            }
+            return projectRawDepthPoints(transform, screen.getSize(), list, 0, nbPoints, out);
+        } finally {
+            depthDataSem.release();
+        }
+    }
+
+    private int projectDepthPoints(ARDisplay display, Screen screen,
+            IntList list, int nbPoints, float[] out) {
+        KinectDepthData depthData = depthAnalysis.getDepthData();
+        int k = 0;
+        for (int i = 0; i < nbPoints; i++) {
+            int offset = list.get(i);
+            PVector screenPosition = projectPointToScreen(screen, display, null,
+                    depthData.depthPoints[offset],
+                    depthData.projectedPoints[offset]);
+            if (screenPosition == NO_INTERSECTION) {
+                continue;
+            }
+            out[k++] = screenPosition.x;
+            out[k++] = screenPosition.y;
+            out[k++] = screenPosition.z;
+            out[k++] = Float.intBitsToFloat(depthData.pointColors[offset]);
+        }
+        return k / PROJECTED_POINT_SIZE;
+    }
+
+    /**
+     * Raw depth projection of the points [begin, end[ of the list, stored
+     * from the point begin in out.
+     */
+    private int projectRawDepthPoints(float[] m, PVector screenSize,
+            IntList list, int begin, int end, float[] out) {
+        KinectDepthData depthData = depthAnalysis.getDepthData();
+        float[] xyz = depthData.depthPointsXYZ;
+        int[] colors = depthData.pointColors;
+        float sizeX = screenSize.x;
+        float sizeY = screenSize.y;
+        boolean keepOutsiders = computeOutsiders;
+
+        int k = begin * PROJECTED_POINT_SIZE;
+        for (int i = begin; i < end; i++) {
+            int offset = list.get(i);
+            int p = offset * 3;
+            float x = xyz[p];
+            float y = xyz[p + 1];
+            float z = xyz[p + 2];
+
+            float sx = m[0] * x + m[1] * y + m[2] * z + m[3];
+            float sy = m[4] * x + m[5] * y + m[6] * z + m[7];
+            float sz = m[8] * x + m[9] * y + m[10] * z + m[11];
+
+            if (!keepOutsiders
+                    && !(sx >= 0 && sx <= sizeX && sy >= 0 && sy <= sizeY)) {
+                continue;
+            }
+            out[k++] = sx;
+            out[k++] = sy;
+            out[k++] = sz;
+            out[k++] = Float.intBitsToFloat(colors[offset]);
+        }
+        return k / PROJECTED_POINT_SIZE - begin;
+    }
+
+    private int projectRawDepthPointsParallel(float[] transform, PVector screenSize,
+            IntList list, int nbPoints, float[] out) {
+        int nbTasks = projectionTasks.size();
+        int chunkSize = (nbPoints + nbTasks - 1) / nbTasks;
+        for (int i = 0; i < nbTasks; i++) {
+            projectionTasks.get(i).set(transform, screenSize, list,
+                    Math.min(i * chunkSize, nbPoints),
+                    Math.min((i + 1) * chunkSize, nbPoints), out);
+        }
+        try {
+            for (Future<Integer> result : projectionPool.invokeAll(projectionTasks)) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Depth projection failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.getLogger(KinectTouchInput.class.getName()).log(Level.SEVERE, null, e);
+            return 0;
+        }
+
+        // Each chunk is stored from its first point, put them together.
+        int nbProjected = 0;
+        for (ProjectionTask task : projectionTasks) {
+            System.arraycopy(out, task.begin * PROJECTED_POINT_SIZE,
+                    out, nbProjected * PROJECTED_POINT_SIZE,
+                    task.nbProjected * PROJECTED_POINT_SIZE);
+            nbProjected += task.nbProjected;
+        }
+        return nbProjected;
+    }
+
+    class ProjectionTask implements Callable<Integer> {
+
+        private float[] transform;
+        private PVector screenSize;
+        private IntList list;
+        private float[] out;
+        int begin, end;
+        int nbProjected;
+
+        void set(float[] transform, PVector screenSize, IntList list,
+                int begin, int end, float[] out) {
+            this.transform = transform;
+            this.screenSize = screenSize;
+            this.list = list;
+            this.begin = begin;
+            this.end = end;
+            this.out = out;
+        }
+
+        @Override
+        public Integer call() {
+            nbProjected = projectRawDepthPoints(transform, screenSize, list, begin, end, out);
+            return nbProjected;
+        }
+    }
+
     /**
      * *
      *
@@ -326,6 +860,27 @@ public class KinectTouchInput extends TouchInput {
 
     private PVector projectPointToScreen(Screen screen,
             BaseDisplay display, Vec3D pKinect, Vec3D pNorm) {
+        return projectPointToScreen(screen, display,
+                rawDepthScreenInverse(screen, display), pKinect, pNorm);
+    }
+
+    /**
+     * @return the inverse of the screen location in raw depth mode, null
+     * otherwise.
+     */
+    private PMatrix3D rawDepthScreenInverse(Screen screen, BaseDisplay display) {
+        if (!useRawDepth) {
+            return null;
+        }
+        // TODO: Here change the display.getCamera() to 
+        // another way to get the screen location... 
+        PMatrix3D transfo = screen.getLocation(display.getCamera());
+        transfo.invert();
+        return transfo;
+    }
+
+    private PVector projectPointToScreen(Screen screen,
+            BaseDisplay display, PMatrix3D screenInv, Vec3D pKinect, Vec3D pNorm) {
 
         PVector paperScreenCoord;
         if (useRawDepth) {
@@ -338,12 +893,7 @@ public class KinectTouchInput extends TouchInput {
 //                    p.y / (float) pdp.getHeight());
             paperScreenCoord = new PVector();
             PVector pKinectP = new PVector(pKinect.x, pKinect.y, pKinect.z);
-
-            // TODO: Here change the display.getCamera() to 
-            // another way to get the screen location... 
-            PMatrix3D transfo = screen.getLocation(display.getCamera());
-            transfo.invert();
-            transfo.mult(pKinectP, paperScreenCoord);
+            screenInv.mult(pKinectP, paperScreenCoord);
 
             // TODO: check bounds too ?!
         } else {
@@ -405,21 +955,55 @@ public class KinectTouchInput extends TouchInput {
 
     protected void findAndTrack2D() {
         assert (touch2DPrecision != 0);
+        long start = System.nanoTime();
+        touchDetection2D.setTouchPointPool(touchPointPool);
         ArrayList<TouchPoint> newList = touchDetection2D.compute(
                 depthAnalysis.getDepthData());
-        TouchPointTracker.trackPoints(touchPoints2D, newList,
-                parent.millis());
+        touchDetection2D.setTouchPointPool(null);
+        long detected = System.nanoTime();
+        detectionTime += detected - start;
+        if (useOptimalTracking) {
+            tracker2D.trackPoints(touchPoints2D, newList, parent.millis(), touchPointPool);
+        } else {
+            TouchPointTracker.trackPoints(touchPoints2D, newList,
+                    parent.millis(), touchPointPool);
+        }
+        copyDepthDataElements(touchPoints2D);
+        trackingTime += System.nanoTime() - detected;
     }
 
     protected void findAndTrack3D() {
         assert (touch3DPrecision != 0);
+        long start = System.nanoTime();
+        touchDetection3D.setTouchPointPool(touchPointPool);
         ArrayList<TouchPoint> newList = touchDetection3D.compute(
                 depthAnalysis.getDepthData());
-        TouchPointTracker.trackPoints(touchPoints3D,
-                newList,
-                parent.millis());
+        touchDetection3D.setTouchPointPool(null);
+        long detected = System.nanoTime();
+        detectionTime += detected - start;
+        if (useOptimalTracking) {
+            tracker3D.trackPoints(touchPoints3D, newList, parent.millis(), touchPointPool);
+        } else {
+            TouchPointTracker.trackPoints(touchPoints3D,
+                    newList,
+                    parent.millis(), touchPointPool);
+        }
+        copyDepthDataElements(touchPoints3D);
+        trackingTime += System.nanoTime() - detected;
+    }
+
+    // The depth data elements of the points merged or dropped by the
+    // tracking are never copied.
+    private static void copyDepthDataElements(ArrayList<TouchPoint> touchPoints) {
+        for (TouchPoint tp : touchPoints) {
+            tp.copyDepthDataElements();
+        }
     }
 
+    /**
+     * @return the tracked points, modified by the analysis without lock. Read
+     * getTouchFrame() or projectTouchToScreen() instead, they return copies.
+     */
     public ArrayList<TouchPoint> getTouchPoints2D() {
         return this.touchPoints2D;
     }
@@ -436,6 +1020,10 @@ public class KinectTouchInput extends TouchInput {
         return useRawDepth;
     }
 
+    /**
+     * Kept for compatibility, the analysis does not take this lock: it does
+     * not guard the tracked points. Use getTouchFrame() instead.
+     */
     public void lock() {
         try {
             touchPointSemaphore.acquire();
@@ -0,0 +1,149 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations, in microseconds, with a fixed memory. The buckets
+ * are linear up to 128 us, then each power of two is split in 64 buckets:
+ * the percentiles have an error below 2%. The values can be recorded from
+ * any thread, without lock or allocation.
+ *
+ * @author Jeremy Laviole
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+    // Up to 2^36 us, about 19 hours.
+    private static final int MAX_MAGNITUDE = 36 - SUB_BUCKET_BITS;
+    private static final int NB_BUCKETS = (MAX_MAGNITUDE + 2) * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NB_BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalTime = new AtomicLong();
+    private final AtomicLong maxTime = new AtomicLong();
+
+    /**
+     * @param nanos duration in nanoseconds.
+     */
+    public void recordNanos(long nanos) {
+        record(nanos / 1000);
+    }
+
+    /**
+     * @param micros duration in microseconds.
+     */
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts.incrementAndGet(bucketIndex(micros));
+        totalCount.incrementAndGet();
+        totalTime.addAndGet(micros);
+
+        long max = maxTime.get();
+        while (micros > max && !maxTime.compareAndSet(max, micros)) {
+            max = maxTime.get();
+        }
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        if (magnitude > MAX_MAGNITUDE) {
+            return NB_BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> magnitude);
+        return magnitude * SUB_BUCKET_HALF + subBucket;
+    }
+
+    /**
+     * @return the highest value of a bucket.
+     */
+    static long bucketValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+
+    /**
+     * @param percentile from 0 to 100.
+     * @return the duration in microseconds under which this percentage of
+     * the values are, 0 when empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketValue(i), maxTime.get());
+            }
+        }
+        return maxTime.get();
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return the mean duration in microseconds.
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalTime.get() / count;
+    }
+
+    /**
+     * @return the longest duration in microseconds.
+     */
+    public long getMax() {
+        return maxTime.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalTime.set(0);
+        maxTime.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "p50 " + getValueAtPercentile(50) + " us, p99 " + getValueAtPercentile(99)
+                + " us, max " + getMax() + " us, count " + getCount();
+    }
+}
@@ -36,17 +36,105 @@ public class Touch {
     public PVector position = new PVector();
     public PVector pposition = new PVector();
     public PVector speed = new PVector();
+
+    /**
+     * Position predicted for the next display frame, equal to the position
+     * when the tracking is not predictive.
+     */
+    public PVector predictedPosition = new PVector();
     
-    // TODO: find a solution for this !
-    // Always has a TouchPoint linked ? Not clean. 
+    /**
+     * Position of the touch point, normalized in the touch plane.
+     */
+    public PVector pointPosition = new PVector();
+
+    /**
+     * The tracked point of the touch. Null for the depth camera touches when
+     * the analysis runs in its own thread.
+     *
+     * @deprecated not thread safe, the tracked points are updated by the
+     * analysis. Use createTime and the attached object instead.
+     */
+    @Deprecated
     public TouchPoint touchPoint;
 
+    public int createTime = TouchPoint.NO_TIME;
+    // Object attached to the tracked point, null for untracked touches.
+    public TouchAttachment attachment;
+
     public PVector size;
 
     // TODO: implementation of this. 
     public boolean isObject;
     public int id;
 
+    /**
+     * Set back the state of a new Touch, used when the TouchPoint is
+     * recycled.
+     */
+    void reset() {
+        is3D = false;
+        isGhost = false;
+        position.set(0, 0, 0);
+        pposition.set(0, 0, 0);
+        speed.set(0, 0, 0);
+        predictedPosition.set(0, 0, 0);
+        pointPosition.set(0, 0, 0);
+        touchPoint = null;
+        createTime = TouchPoint.NO_TIME;
+        attachment = null;
+        size = null;
+        isObject = false;
+        id = TouchPoint.NO_ID;
+    }
+
+    /**
+     * @return a copy of this touch, linked to the same TouchPoint and
+     * attachment.
+     */
+    public Touch copy() {
+        Touch touch = new Touch();
+        touch.is3D = is3D;
+        touch.isGhost = isGhost;
+        touch.position.set(position);
+        touch.pposition.set(pposition);
+        touch.speed.set(speed);
+        touch.predictedPosition.set(predictedPosition);
+        touch.pointPosition.set(pointPosition);
+        touch.touchPoint = touchPoint;
+        touch.createTime = createTime;
+        touch.attachment = attachment;
+        touch.size = size == null ? null : size.get();
+        touch.isObject = isObject;
+        touch.id = id;
+        return touch;
+    }
+
+    public boolean isYoung(int currentTime) {
+        return createTime == TouchPoint.NO_TIME
+                || currentTime - createTime < TouchPoint.SHORT_TIME_PERIOD;
+    }
+
+    public Object getAttachedObject() {
+        if (attachment != null && attachment.object != null) {
+            return attachment.object;
+        }
+        // Objects attached with the deprecated TouchPoint field.
+        return touchPoint == null ? null : touchPoint.attachedObject;
+    }
+
+    /**
+     * Attach an object to the tracked point, it is found in the touches of
+     * the next frames.
+     *
+     * @param attachedObject
+     */
+    public void setAttachedObject(Object attachedObject) {
+        if (attachment != null) {
+            attachment.object = attachedObject;
+        }
+    }
+
     public void setPosition(PVector v) {
         setPosition(v.x, v.y, v.z);
     }
@@ -61,7 +149,7 @@ public class Touch {
 
     @Override
     public String toString() {
-        return "Position " + position + " Speed " + speed + " Touch info " + touchPoint;
+        return "Position " + position + " Speed " + speed + " Touch id " + id;
     }
 
     public void setPrevPos(PVector prevPosition) {
@@ -86,11 +174,16 @@ public class Touch {
         speed.x *= scales.x;
         speed.y *= scales.y;
         speed.z *= scales.z;
+
+        predictedPosition.x *= scales.x;
+        predictedPosition.y *= scales.y;
+        predictedPosition.z *= scales.z;
     }
 
     public void invertY(float sizeY) {
         position.y = sizeY - position.y;
         pposition.y = sizeY - pposition.y;
         speed.y = -speed.y;
+        predictedPosition.y = sizeY - predictedPosition.y;
     }
 }
@@ -0,0 +1,72 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Analysis of the depth frames published by the grabbing thread, the last
+ * frame is analysed and the older ones are dropped.
+ *
+ * @author Jeremy Laviole
+ */
+class TouchAnalysisThread extends Thread {
+
+    // Time to check the stop flag when no frame arrives, in ms.
+    private static final int WAIT_TIMEOUT = 100;
+
+    private final KinectTouchInput touchInput;
+    private final DepthFrameExchange frames;
+    private volatile boolean stop = false;
+
+    public TouchAnalysisThread(KinectTouchInput touchInput, DepthFrameExchange frames) {
+        super("Touch analysis");
+        this.touchInput = touchInput;
+        this.frames = frames;
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        while (!stop) {
+            if (!frames.take(WAIT_TIMEOUT)) {
+                continue;
+            }
+            try {
+                touchInput.lock();
+                touchInput.update(frames.getDepthImage(), frames.getColorImage(),
+                        frames.getGrabTime());
+                if (frames.getColorImage() != null) {
+                    touchInput.getTouch2DColors(frames.getColorImage());
+                }
+            } catch (Exception e) {
+                System.err.println("Touch analysis Error ! " + e);
+                e.printStackTrace();
+            } finally {
+                touchInput.unlock();
+            }
+        }
+    }
+
+    public void stopAnalysis() {
+        this.stop = true;
+        LockSupport.unpark(this);
+    }
+}
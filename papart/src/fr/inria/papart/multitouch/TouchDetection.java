@@ -24,10 +24,10 @@ import fr.inria.papart.calibration.PlaneCalibration;
 import fr.inria.papart.depthcam.devices.KinectDepthData;
 import fr.inria.papart.depthcam.analysis.DepthAnalysis;
 import fr.inria.papart.depthcam.DepthData;
+import fr.inria.papart.depthcam.IntList;
+import fr.inria.papart.depthcam.IntList.IntComparator;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashSet;
 import processing.core.PApplet;
 import processing.core.PVector;
 import toxi.geom.Vec3D;
@@ -52,8 +52,16 @@ public abstract class TouchDetection {
 // set by calling function
     protected KinectDepthData depthData;
 
-    protected final HashSet<Integer> toVisit = new HashSet<>();
+    // Starting points of the connected components, set by setSearchParameters.
+    protected IntList toVisit;
     protected PointValidityCondition currentPointValidityCondition;
+    // Points that extend the flood fill search.
+    private final IntList floodFillQueue = new IntList();
+
+    // Connected components, reused from frame to frame.
+    private final ArrayList<ConnectedComponent> componentPool = new ArrayList<>();
+    private final ArrayList<ConnectedComponent> connectedComponents = new ArrayList<>();
+    private int nbComponentsUsed = 0;
 
     public interface PointValidityCondition {
 
@@ -82,11 +90,29 @@ public abstract class TouchDetection {
         return !depthData.validPointsList.isEmpty();
     }
 
+    /**
+     * The connected components are reused at the next call.
+     *
+     * @return the connected components of this frame.
+     */
     protected ArrayList<ConnectedComponent> findConnectedComponents() {
         clearMemory();
+        nbComponentsUsed = 0;
         setSearchParameters();
-        ArrayList<ConnectedComponent> connectedComponents = computeAllConnectedComponents();
-        return connectedComponents;
+        return computeAllConnectedComponents();
+    }
+
+    protected ConnectedComponent acquireComponent() {
+        ConnectedComponent cc;
+        if (nbComponentsUsed < componentPool.size()) {
+            cc = componentPool.get(nbComponentsUsed);
+            cc.clear();
+        } else {
+            cc = new ConnectedComponent();
+            componentPool.add(cc);
+        }
+        nbComponentsUsed++;
+        return cc;
     }
 
     protected abstract void setSearchParameters();
@@ -110,11 +136,16 @@ public abstract class TouchDetection {
 
     protected ArrayList<ConnectedComponent> computeAllConnectedComponents() {
 
-        ArrayList<ConnectedComponent> connectedComponents = new ArrayList<ConnectedComponent>();
+        connectedComponents.clear();
 
-        // recursive search for each component. 
-        while (toVisit.size() > 0) {
-            int startingPoint = toVisit.iterator().next();
+        // recursive search for each component, from each point not already
+        // in a component.
+        int[] points = toVisit.getArray();
+        for (int i = 0; i < toVisit.size(); i++) {
+            int startingPoint = points[i];
+            if (assignedPoints[startingPoint]) {
+                continue;
+            }
             ConnectedComponent cc = findConnectedComponent(startingPoint);
             connectedComponents.add(cc);
         }
@@ -135,7 +166,12 @@ public abstract class TouchDetection {
 
         w = depthData.source.getDepthWidth();
         h = depthData.source.getDepthHeight();
-        ConnectedComponent cc = findNeighboursRec(startingPoint, 0, getX(startingPoint), getY(startingPoint));
+        ConnectedComponent cc = acquireComponent();
+        if (calib.getComponentSearch() == PlanarTouchCalibration.FLOOD_FILL_SEARCH) {
+            findNeighboursFloodFill(cc, startingPoint);
+        } else {
+            findNeighboursRec(cc, startingPoint, 0, getX(startingPoint), getY(startingPoint));
+        }
         cc.setId(currentCompo);
         currentCompo++;
         return cc;
@@ -144,7 +180,6 @@ public abstract class TouchDetection {
     private void addPointInConnectedComponent(ConnectedComponent cc, int point) {
         assignedPoints[point] = true;
         connectedComponentImage[point] = currentCompo;
-        toVisit.remove(point);
         cc.add(point);
     }
 
@@ -157,8 +192,22 @@ public abstract class TouchDetection {
     }
 
     public ConnectedComponent findNeighboursRec(int currentPoint, int recLevel, int x, int y) {
-
         ConnectedComponent neighbourList = new ConnectedComponent();
+        findNeighboursRec(neighbourList, currentPoint, recLevel, x, y);
+        return neighbourList;
+    }
+
+    /**
+     * Recursive search, the points are added to neighbourList in the order of
+     * the search.
+     *
+     * @param neighbourList
+     * @param currentPoint
+     * @param recLevel
+     * @param x
+     * @param y
+     */
+    protected void findNeighboursRec(ConnectedComponent neighbourList, int currentPoint, int recLevel, int x, int y) {
 
         // At least one point in connected compo !
         if (recLevel == 0) {
@@ -167,13 +216,13 @@ public abstract class TouchDetection {
 
         if (recLevel == calib.getMaximumRecursion()) {
             addPointInConnectedComponent(neighbourList, currentPoint);
-            return neighbourList;
+            return;
         }
 
         // do nothing on borders -> dead zone optimization ?!
         if (x - searchDepth < 0 || x + searchDepth > w - 1
                 || y - searchDepth < 0 || y + searchDepth > h - 1) {
-            return neighbourList;
+            return;
         }
 
         assert (assignedPoints[currentPoint] == true);
@@ -203,11 +252,10 @@ public abstract class TouchDetection {
                     // Remove If present -> it might not be the case often. 
 //                    toVisit.remove(offset);
                     addPointInConnectedComponent(neighbourList, offset);
-                    neighbourList.add((Integer) offset);
+                    neighbourList.add(offset);
 
                     if (isBorderY || isBorderX) {
-                        ConnectedComponent subNeighbours = findNeighboursRec(offset, recLevel + 1, i, j);
-                        neighbourList.addAll(subNeighbours);
+                        findNeighboursRec(neighbourList, offset, recLevel + 1, i, j);
                     }
 //                    ConnectedComponent subNeighbours = findNeighboursRec(offset, recLevel + 1, i, j);
 //                    neighbourList.addAll(subNeighbours);
@@ -215,8 +263,48 @@ public abstract class TouchDetection {
                 } // if is ValidPoint
             } // for j
         } // for i
+    }
 
-        return neighbourList;
+    /**
+     * Iterative search, with the same neighbours as the recursive search: the
+     * points in the searchDepth window at the precision step, the points on
+     * the border of the window extend the search, and no search from the
+     * dead zone on the borders of the image. There is no recursion limit.
+     *
+     * @param cc
+     * @param startingPoint
+     */
+    protected void findNeighboursFloodFill(ConnectedComponent cc, int startingPoint) {
+        addPointInConnectedComponent(cc, startingPoint);
+        floodFillQueue.clear();
+        floodFillQueue.add(startingPoint);
+
+        for (int k = 0; k < floodFillQueue.size(); k++) {
+            int currentPoint = floodFillQueue.get(k);
+            int x = getX(currentPoint);
+            int y = getY(currentPoint);
+
+            if (x - searchDepth < 0 || x + searchDepth > w - 1
+                    || y - searchDepth < 0 || y + searchDepth > h - 1) {
+                continue;
+            }
+
+            for (int j = y - searchDepth; j <= y + searchDepth; j += precision) {
+                boolean isBorderY = (j == y - searchDepth) || (j == y + searchDepth);
+
+                for (int i = x - searchDepth; i <= x + searchDepth; i += precision) {
+                    boolean isBorderX = (i == x - searchDepth) || (i == x + searchDepth);
+
+                    int offset = j * w + i;
+                    if (currentPointValidityCondition.checkPoint(offset, currentPoint)) {
+                        addPointInConnectedComponent(cc, offset);
+                        if (isBorderY || isBorderX) {
+                            floodFillQueue.add(offset);
+                        }
+                    }
+                }
+            }
+        }
     }
 
     static public final int constrain(int amt, int low, int high) {
@@ -227,7 +315,7 @@ public abstract class TouchDetection {
     protected TouchPoint createTouchPoint(ConnectedComponent connectedComponent) {
         Vec3D meanProj = connectedComponent.getMean(depthData.projectedPoints);
         Vec3D meanKinect = connectedComponent.getMean(depthData.depthPoints);
-        TouchPoint tp = new TouchPoint();
+        TouchPoint tp = touchPointPool != null ? touchPointPool.acquire() : new TouchPoint();
         tp.setDetection(this);
         tp.setPosition(meanProj);
         tp.setPositionKinect(meanKinect);
@@ -277,6 +365,10 @@ public abstract class TouchDetection {
 
     public float sideError = 0.2f;
 
+    private boolean predictive = false;
+
+    private TouchPointPool touchPointPool = null;
+
     public boolean isInside(Vec3D v, float min, float max) {
         return v.x > min - sideError && v.x < max + sideError && v.y < max + sideError && v.y > min - sideError;
     }
@@ -298,6 +390,33 @@ public abstract class TouchDetection {
         return calib.getPrecision();
     }
 
+    /**
+     * Predictive tracking: the touch points keep a constant velocity model,
+     * and are compared to the new points at their predicted position.
+     *
+     * @param predictive
+     */
+    public void setPredictive(boolean predictive) {
+        this.predictive = predictive;
+    }
+
+    public boolean isPredictive() {
+        return this.predictive;
+    }
+
+    /**
+     * The touch points are taken from this pool, null to create new ones.
+     *
+     * @param pool
+     */
+    public void setTouchPointPool(TouchPointPool pool) {
+        this.touchPointPool = pool;
+    }
+
+    public TouchPointPool getTouchPointPool() {
+        return this.touchPointPool;
+    }
+
     public int getTrackingForgetTime() {
         return calib.getTrackingForgetTime();
     }
@@ -319,7 +438,7 @@ public abstract class TouchDetection {
         }
     }
 
-    class ClosestComparator implements Comparator {
+    class ClosestComparator implements IntComparator {
 
         public Vec3D[] projPoints;
 
@@ -327,10 +446,11 @@ public abstract class TouchDetection {
             projPoints = proj;
         }
 
-        public int compare(Object tp1, Object tp2) {
+        @Override
+        public int compare(int tp1, int tp2) {
 
-            Vec3D pos1 = projPoints[(Integer) tp1];
-            Vec3D pos2 = projPoints[(Integer) tp2];
+            Vec3D pos1 = projPoints[tp1];
+            Vec3D pos2 = projPoints[tp2];
             if (pos1.z > pos2.z) {
                 return 1;
             }
@@ -338,7 +458,7 @@ public abstract class TouchDetection {
         }
     }
 
-    class ClosestComparatorY implements Comparator {
+    class ClosestComparatorY implements IntComparator {
 
         public Vec3D[] projPoints;
 
@@ -347,10 +467,10 @@ public abstract class TouchDetection {
         }
 
         @Override
-        public int compare(Object tp1, Object tp2) {
+        public int compare(int tp1, int tp2) {
 
-            Vec3D pos1 = projPoints[(Integer) tp1];
-            Vec3D pos2 = projPoints[(Integer) tp2];
+            Vec3D pos1 = projPoints[tp1];
+            Vec3D pos2 = projPoints[tp2];
             if (pos1.y < pos2.y) {
                 return 1;
             }
@@ -362,7 +482,7 @@ public abstract class TouchDetection {
         }
     }
 
-    class ClosestComparatorHeight implements Comparator {
+    class ClosestComparatorHeight implements IntComparator {
 
         public Vec3D[] points;
         PlaneCalibration calibration;
@@ -374,10 +494,10 @@ public abstract class TouchDetection {
         }
 
         @Override
-        public int compare(Object tp1, Object tp2) {
+        public int compare(int tp1, int tp2) {
 
-            float d1 = calibration.getPlane().distanceTo(points[(Integer) tp1]);
-            float d2 = calibration.getPlane().distanceTo(points[(Integer) tp2]);
+            float d1 = calibration.getPlane().distanceTo(points[tp1]);
+            float d2 = calibration.getPlane().distanceTo(points[tp2]);
             if (d1 < d2) {
                 return 1;
             }
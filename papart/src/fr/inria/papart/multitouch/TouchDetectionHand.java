@@ -22,7 +22,6 @@ package fr.inria.papart.multitouch;
 import fr.inria.papart.depthcam.devices.KinectDepthData;
 import fr.inria.papart.depthcam.analysis.DepthAnalysis;
 import java.util.ArrayList;
-import java.util.HashSet;
 import toxi.geom.Vec3D;
 
 /**
@@ -59,11 +58,9 @@ public class TouchDetectionHand extends TouchDetectionSimple2D {
     
     @Override
     protected void setSearchParameters() {
-        this.toVisit.clear();
-        this.toVisit.addAll(depthData.validPointsList);
+        this.toVisit = depthData.validPointsList;
 
         currentPointValidityCondition = new CheckTouchPoint();
-        int firstPoint = toVisit.iterator().next();
 //        setPrecisionFrom(firstPoint);
 //        calib.setSearchDepth(precision * 7);// TODO: FIX this value !
 //        maximumRecursion = 100; // TODO: fix this value.
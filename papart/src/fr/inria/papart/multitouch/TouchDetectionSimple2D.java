@@ -23,7 +23,6 @@ import fr.inria.papart.depthcam.DepthData;
 import fr.inria.papart.depthcam.analysis.DepthAnalysis;
 import fr.inria.papart.depthcam.devices.KinectDepthData;
 import java.util.ArrayList;
-import java.util.HashSet;
 
 /**
  *
@@ -51,8 +50,7 @@ public class TouchDetectionSimple2D extends TouchDetection {
 
     @Override
     protected void setSearchParameters() {
-        this.toVisit.clear();
-        this.toVisit.addAll(depthData.validPointsList);
+        this.toVisit = depthData.validPointsList;
         
 //        int firstPoint = toVisit.iterator().next();
 //        maxDistance = 10;
@@ -23,9 +23,6 @@ import fr.inria.papart.depthcam.analysis.DepthAnalysis;
 import fr.inria.papart.depthcam.DepthData;
 import fr.inria.papart.depthcam.devices.KinectDepthData;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
 
 /**
  *
@@ -35,6 +32,7 @@ public class TouchDetectionSimple3D extends TouchDetection {
 
     protected int MINIMUM_COMPONENT_SIZE_3D = 50;
     protected int COMPONENT_SIZE_FOR_POSITION = 10;
+    private final ConnectedComponent subCompo = new ConnectedComponent();
 
     public TouchDetectionSimple3D(int size) {
         super(size);
@@ -62,8 +60,7 @@ public class TouchDetectionSimple3D extends TouchDetection {
 
     @Override
     protected void setSearchParameters() {
-        this.toVisit.clear();
-        this.toVisit.addAll(depthData.validPointsList3D);
+        this.toVisit = depthData.validPointsList3D;
 
 //        int firstPoint = toVisit.iterator().next();
 //        setPrecisionFrom(firstPoint);
@@ -78,13 +75,12 @@ public class TouchDetectionSimple3D extends TouchDetection {
         ClosestComparatorHeight closestComparator = new ClosestComparatorHeight(depthData.projectedPoints, depthData.planeAndProjectionCalibration.getPlaneCalibration());
 
         // get a subset of the points.
-        Collections.sort(connectedComponent, closestComparator);
+        connectedComponent.sort(closestComparator);
 
         int max = COMPONENT_SIZE_FOR_POSITION > connectedComponent.size() ? connectedComponent.size() : COMPONENT_SIZE_FOR_POSITION;
         //  Get a sublist
-        List<Integer> subList = connectedComponent.subList(0, max);
-        ConnectedComponent subCompo = new ConnectedComponent();
-        subCompo.addAll(subList);
+        subCompo.clear();
+        subCompo.addAll(connectedComponent, max);
 
         TouchPoint tp = super.createTouchPoint(subCompo);
 
@@ -98,12 +94,10 @@ public class TouchDetectionSimple3D extends TouchDetection {
 
         @Override
         public boolean checkPoint(int offset, int currentPoint) {
-            float distanceToCurrent = depthData.depthPoints[offset].distanceTo(depthData.depthPoints[currentPoint]);
-
             return !assignedPoints[offset] // not assigned  
                     && depthData.validPointsMask3D[offset] // is valid
                     && (depthData.depthPoints[offset] != DepthAnalysis.INVALID_POINT) // not invalid point (invalid depth)
-                    && distanceToCurrent < calib.getMaximumDistance();
+                    && depthData.depthPoints[offset].distanceTo(depthData.depthPoints[currentPoint]) < calib.getMaximumDistance();
         }
     }
 
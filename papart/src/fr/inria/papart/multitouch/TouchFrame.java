@@ -0,0 +1,107 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Touch points published after the analysis of a depth frame. The lists are
+ * read only, a new TouchFrame with a higher version is published for each
+ * analysed frame.
+ *
+ * @author Jeremy Laviole
+ */
+public class TouchFrame {
+
+    public static final TouchFrame EMPTY = new TouchFrame(
+            new ArrayList<TouchPoint>(), new ArrayList<TouchPoint>(), 0, 0, 0);
+
+    public final List<TouchPointState> points2D;
+    public final List<TouchPointState> points3D;
+    public final int time;
+    public final int version;
+    // System.nanoTime() at the grab of the depth frame, 0 if unknown.
+    public final long grabTime;
+    private final boolean hasPrediction;
+
+    /**
+     * @param touchPoints2D copied.
+     * @param touchPoints3D copied.
+     * @param time time of the analysis, in ms.
+     * @param version number of the frame, increasing.
+     * @param grabTime System.nanoTime() at the grab of the depth frame.
+     */
+    public TouchFrame(List<TouchPoint> touchPoints2D,
+            List<TouchPoint> touchPoints3D, int time, int version, long grabTime) {
+        this(touchPoints2D, touchPoints3D, time, version, grabTime, false);
+    }
+
+    /**
+     * @param touchPoints2D copied.
+     * @param touchPoints3D copied.
+     * @param time time of the analysis, in ms.
+     * @param version number of the frame, increasing.
+     * @param grabTime System.nanoTime() at the grab of the depth frame.
+     * @param linkTouchPoints keep the tracked points in the states, only when
+     * the analysis and the rendering share a thread.
+     */
+    public TouchFrame(List<TouchPoint> touchPoints2D,
+            List<TouchPoint> touchPoints3D, int time, int version,
+            long grabTime, boolean linkTouchPoints) {
+        this.points2D = copy(touchPoints2D, linkTouchPoints);
+        this.points3D = copy(touchPoints3D, linkTouchPoints);
+        this.time = time;
+        this.version = version;
+        this.grabTime = grabTime;
+        this.hasPrediction = hasPrediction(points2D) || hasPrediction(points3D);
+    }
+
+    private static List<TouchPointState> copy(List<TouchPoint> touchPoints,
+            boolean linkTouchPoints) {
+        ArrayList<TouchPointState> states = new ArrayList<>(touchPoints.size());
+        for (TouchPoint tp : touchPoints) {
+            states.add(new TouchPointState(tp, linkTouchPoints));
+        }
+        return Collections.unmodifiableList(states);
+    }
+
+    private static boolean hasPrediction(List<TouchPointState> states) {
+        for (TouchPointState state : states) {
+            if (state.hasPrediction()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if a point has a prediction, its projection depends on
+     * the time.
+     */
+    public boolean hasPrediction() {
+        return hasPrediction;
+    }
+
+    public int size() {
+        return points2D.size() + points3D.size();
+    }
+}
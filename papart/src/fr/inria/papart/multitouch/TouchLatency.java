@@ -0,0 +1,158 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import processing.core.PGraphics;
+
+/**
+ * Durations of the stages of the touch pipeline, from the grab of a depth
+ * frame to the drawing of its touches. Each stage has a LatencyHistogram.
+ *
+ * @author Jeremy Laviole
+ */
+public class TouchLatency {
+
+    public enum Stage {
+        /**
+         * Grab of the depth frame by the camera.
+         */
+        GRAB,
+        /**
+         * Copy of the depth frame for the other threads, and its recording.
+         */
+        STORE,
+        /**
+         * Decoding and filtering of the raw depth.
+         */
+        DECODE,
+        /**
+         * Depth points computation and selection.
+         */
+        DEPTH_ANALYSIS,
+        /**
+         * Connected components and creation of the touch points.
+         */
+        CONNECTED_COMPONENTS,
+        TRACKING,
+        /**
+         * Projection of the touches of a frame on a screen.
+         */
+        PROJECTION,
+        /**
+         * Drawing of a PaperTouchScreen.
+         */
+        DRAW,
+        /**
+         * From the grab of a frame to the first projection of its touches.
+         */
+        GRAB_TO_TOUCH
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private volatile boolean enabled = true;
+
+    public TouchLatency() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Record the time since start.
+     *
+     * @param stage
+     * @param start System.nanoTime() at the beginning of the stage.
+     * @return System.nanoTime() at the end, to start the next stage.
+     */
+    public long record(Stage stage, long start) {
+        long now = System.nanoTime();
+        if (enabled) {
+            histograms[stage.ordinal()].recordNanos(now - start);
+        }
+        return now;
+    }
+
+    /**
+     * @param stage
+     * @param nanos duration in nanoseconds.
+     */
+    public void recordNanos(Stage stage, long nanos) {
+        if (enabled) {
+            histograms[stage.ordinal()].recordNanos(nanos);
+        }
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * @return one line per stage: p50, p99 and max in milliseconds.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = get(stage);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            sb.append(String.format("%-20s p50 %6.2f  p99 %6.2f  max %6.2f ms%n",
+                    stage,
+                    histogram.getValueAtPercentile(50) / 1000f,
+                    histogram.getValueAtPercentile(99) / 1000f,
+                    histogram.getMax() / 1000f));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Draw the report, at the end of the draw() of the sketch.
+     *
+     * @param g
+     * @param x
+     * @param y
+     */
+    public void drawOverlay(PGraphics g, float x, float y) {
+        g.pushStyle();
+        g.fill(255);
+        g.textSize(12);
+        g.text(report(), x, y);
+        g.popStyle();
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+}
@@ -30,6 +30,18 @@ import processing.core.PVector;
  */
 public class TouchList extends ArrayList<Touch> {
 
+    /**
+     * @return a copy of the list and its touches.
+     */
+    public TouchList copy() {
+        TouchList copy = new TouchList();
+        copy.ensureCapacity(size());
+        for (Touch touch : this) {
+            copy.add(touch.copy());
+        }
+        return copy;
+    }
+
     public void scaleBy(PVector scales) {
         for (Touch touch : this) {
             touch.scaleBy(scales);
@@ -43,7 +55,7 @@ public class TouchList extends ArrayList<Touch> {
     public void removeYoungOnes(int currentTime) {
         for (Iterator<Touch> it = this.iterator(); it.hasNext();) {
             Touch touch = it.next();
-            if (touch.touchPoint.isYoung(currentTime)) {
+            if (touch.isYoung(currentTime)) {
                 it.remove();
             }
         }
@@ -52,7 +64,7 @@ public class TouchList extends ArrayList<Touch> {
     public TouchList getOldOnes(int currentTime) {
         TouchList old = new TouchList();
         for (Touch touch : this) {
-            if (!touch.touchPoint.isYoung(currentTime)) {
+            if (!touch.isYoung(currentTime)) {
                 old.add(touch);
             }
         }
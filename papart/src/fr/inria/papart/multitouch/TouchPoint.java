@@ -22,6 +22,7 @@ package fr.inria.papart.multitouch;
 import fr.inria.papart.depthcam.devices.KinectDepthData;
 import fr.inria.papart.depthcam.DepthDataElementKinect;
 import fr.inria.papart.depthcam.DepthPoint;
+import fr.inria.papart.depthcam.IntList;
 import java.util.ArrayList;
 import processing.core.PVector;
 import toxi.geom.Vec3D;
@@ -53,6 +54,12 @@ public class TouchPoint extends DepthPoint {
 //    private PVector speedKinect = new PVector();
     private ArrayList<DepthDataElementKinect> depthDataElements = new ArrayList<DepthDataElementKinect>();
 
+    // Offsets of the component, the elements are copied from the depth data
+    // only for the points kept by the tracking. The elements are reused.
+    private IntList componentPoints = new IntList();
+    private KinectDepthData elementsSource = null;
+    private ArrayList<DepthDataElementKinect> elementPool = new ArrayList<DepthDataElementKinect>();
+
     private float confidence;
 //    public float size;
     private boolean is3D;
@@ -72,10 +79,20 @@ public class TouchPoint extends DepthPoint {
     public boolean isUpdated = false;
 
     public int attachedValue = -1;
+    /**
+     * @deprecated not shared with the touches of the analysis thread, use
+     * setAttachedObject().
+     */
+    @Deprecated
     public Object attachedObject;
+    private TouchAttachment attachment = new TouchAttachment();
 
     private TouchDetection detection;
 
+    // Prediction, when the detection is predictive.
+    private TouchPointPredictor predictor = null;
+    private final Vec3D trackingPosition = new Vec3D();
+
 // filtering 
     private OneEuroFilter[] filters;
     public static float filterFreq = 30f;
@@ -90,6 +107,11 @@ public class TouchPoint extends DepthPoint {
     }
 
     public TouchPoint() {
+    }
+
+    // The filters are created at the first update, most of the new points
+    // are merged in tracked points and never filtered.
+    private void initFilters() {
         try {
             filters = new OneEuroFilter[NUMBER_OF_FILTERS];
             for (int i = 0; i < NUMBER_OF_FILTERS; i++) {
@@ -100,6 +122,49 @@ public class TouchPoint extends DepthPoint {
         }
     }
 
+    /**
+     * Set back the state of a new TouchPoint, used by TouchPointPool.
+     */
+    void reset() {
+        colorPt = 0;
+        position.set(0, 0, 0);
+        normal.set(0, 0, 0);
+        previousPosition.set(0, 0, 0);
+        speed.set(0, 0, 0);
+        if (positionKinect != null) {
+            positionKinect.clear();
+            previousPositionKinect.clear();
+        }
+        componentPoints.clear();
+        elementsSource = null;
+        depthDataElements.clear();
+
+        confidence = 0;
+        is3D = false;
+        isCloseToPlane = false;
+        id = NO_ID;
+        updateTime = 0;
+        deletionTime = 0;
+        createTime = -1;
+        toDelete = false;
+        isUpdated = false;
+        attachedValue = -1;
+        attachedObject = null;
+        // The Touches of the previous uses keep the old attachment.
+        attachment = new TouchAttachment();
+        detection = null;
+        predictor = null;
+
+        if (filters != null) {
+            for (OneEuroFilter filter : filters) {
+                filter.reset();
+            }
+        }
+        if (touch != null) {
+            touch.reset();
+        }
+    }
+
     @Override
     public void setPosition(Vec3D pos) {
         super.setPosition(pos);
@@ -113,12 +178,53 @@ public class TouchPoint extends DepthPoint {
     }
 
     public float distanceTo(TouchPoint tp) {
-        return this.positionKinect.distanceTo(tp.positionKinect);
+        return getTrackingPosition(tp.createTime).distanceTo(tp.positionKinect);
+    }
+
+    /**
+     * Position compared to the new points: the predicted position at this
+     * time in predictive mode, the last position otherwise.
+     *
+     * @param time
+     * @return the position in the depth camera space, do not modify.
+     */
+    public Vec3D getTrackingPosition(int time) {
+        if (predictor == null) {
+            return positionKinect;
+        }
+        return predictor.predict(time, trackingPosition);
+    }
+
+    public boolean hasPrediction() {
+        return predictor != null;
+    }
+
+    /**
+     * @param time
+     * @param out filled with the position predicted at this time, or the last
+     * position when there is no prediction.
+     * @return out
+     */
+    public Vec3D getPredictedPositionKinect(int time, Vec3D out) {
+        if (predictor == null) {
+            out.set(positionKinect);
+            return out;
+        }
+        return predictor.predict(time, out);
+    }
+
+    public TouchPointPredictor getPredictor() {
+        return predictor;
     }
 
     public void setPositionKinect(Vec3D pos) {
-        this.positionKinect = new Vec3D(pos);
-        this.previousPositionKinect = new Vec3D(pos);
+        if (this.positionKinect == null) {
+            this.positionKinect = new Vec3D(pos);
+            this.previousPositionKinect = new Vec3D(pos);
+        } else {
+            this.positionKinect.set(pos);
+            this.previousPositionKinect.set(pos);
+        }
     }
 
     public Vec3D getPositionKinect() {
@@ -142,6 +248,9 @@ public class TouchPoint extends DepthPoint {
     }
 
     public void filter() {
+        if (filters == null) {
+            initFilters();
+        }
         try {
             position.x = (float) filters[0].filter(position.x);
             position.y = (float) filters[1].filter(position.y);
@@ -162,6 +271,11 @@ public class TouchPoint extends DepthPoint {
         this.setUpdated(true);
         tp.setUpdated(true);
 
+        if (predictor == null && detection != null && detection.isPredictive()) {
+            predictor = new TouchPointPredictor();
+            predictor.update(positionKinect, updateTime);
+        }
+
         // mark the last update as the creation of the other point. 
         this.updateTime = tp.createTime;
         // not deleted soon, TODO: -> need better way
@@ -171,6 +285,9 @@ public class TouchPoint extends DepthPoint {
         tp.toDelete = true;
 
         updatePosition(tp);
+        if (predictor != null) {
+            predictor.update(positionKinect, updateTime);
+        }
 
         // TODO: check performance ?!
         updateDepthPoints(tp);
@@ -202,8 +319,8 @@ public class TouchPoint extends DepthPoint {
         assert (tp.is3D == this.is3D);
 
         // save the previous position
-        previousPosition = position.get();
-        previousPositionKinect = positionKinect.copy();
+        previousPosition.set(position);
+        previousPositionKinect.set(positionKinect);
 
         this.position.set(tp.position);
         this.positionKinect.set(tp.positionKinect);
@@ -215,7 +332,12 @@ public class TouchPoint extends DepthPoint {
     }
 
     private void updateDepthPoints(TouchPoint tp) {
-        this.depthDataElements = tp.getDepthDataElements();
+        // Exchange the lists, the other point is not used anymore.
+        IntList points = this.componentPoints;
+        this.componentPoints = tp.componentPoints;
+        tp.componentPoints = points;
+        this.elementsSource = tp.elementsSource;
+        tp.elementsSource = null;
     }
 
     public boolean isObselete(int currentTime) {
@@ -245,6 +367,10 @@ public class TouchPoint extends DepthPoint {
         }
     }
 
+    public int getCreationTime() {
+        return this.createTime;
+    }
+
     public void setCreationTime(int timeStamp) {
         this.createTime = timeStamp;
         this.updateTime = timeStamp;
@@ -254,17 +380,75 @@ public class TouchPoint extends DepthPoint {
         return this.speed;
     }
 
+    /**
+     * Keep the points of the component, the depth data elements are copied
+     * by copyDepthDataElements() or getDepthDataElements().
+     *
+     * @param depthData
+     * @param connectedComponent
+     */
     public void setDepthDataElements(KinectDepthData depthData, ConnectedComponent connectedComponent) {
+        componentPoints.clear();
+        componentPoints.addAll(connectedComponent);
+        elementsSource = depthData;
+    }
+
+    /**
+     * Copy the depth data elements of the last detection, while the depth
+     * data still holds its frame. KinectTouchInput calls it after the
+     * tracking, for the points it keeps. The vectors are copied in the
+     * elements.
+     */
+    void copyDepthDataElements() {
+        if (elementsSource == null) {
+            return;
+        }
+        KinectDepthData depthData = elementsSource;
+        elementsSource = null;
         depthDataElements.clear();
-        for (Integer i : connectedComponent) {
-            depthDataElements.add(depthData.getElementKinect(i));
+        for (int i = 0; i < componentPoints.size(); i++) {
+            if (i == elementPool.size()) {
+                elementPool.add(new DepthDataElementKinect());
+            }
+            DepthDataElementKinect dde = elementPool.get(i);
+            Vec3D depthPoint = dde.depthPoint;
+            Vec3D projectedPoint = dde.projectedPoint;
+            depthData.getElementKinect(componentPoints.get(i), dde);
+            dde.depthPoint = copyTo(dde.depthPoint, depthPoint);
+            dde.projectedPoint = copyTo(dde.projectedPoint, projectedPoint);
+            depthDataElements.add(dde);
+        }
+    }
+
+    private static Vec3D copyTo(Vec3D src, Vec3D dst) {
+        if (src == null) {
+            return null;
+        }
+        if (dst == null) {
+            return new Vec3D(src);
         }
+        return dst.set(src);
     }
 
+    /**
+     * The elements of the tracked points are copied at the end of the
+     * analysis. The elements of the other points (raw detections) are copied
+     * at the first call, it must be done before the next analysis.
+     *
+     * @return the depth data elements of the touch.
+     */
     public ArrayList<DepthDataElementKinect> getDepthDataElements() {
+        copyDepthDataElements();
         return this.depthDataElements;
     }
 
+    /**
+     * @return the offsets of the depth points of the touch.
+     */
+    public IntList getComponentPoints() {
+        return this.componentPoints;
+    }
+
     protected void setUpdated(boolean updated) {
         this.isUpdated = updated;
     }
@@ -301,9 +485,16 @@ public class TouchPoint extends DepthPoint {
         this.toDelete = true;
         TouchPoint.count--;
         this.deletionTime = time;
-        if (this.attachedObject != null) {
-            if (this.attachedObject instanceof TouchPointEventHandler) {
-                ((TouchPointEventHandler) this.attachedObject).delete();
+        deleteAttached(this.attachment.object);
+        if (this.attachedObject != this.attachment.object) {
+            deleteAttached(this.attachedObject);
+        }
+    }
+
+    private static void deleteAttached(Object attachedObject) {
+        if (attachedObject != null) {
+            if (attachedObject instanceof TouchPointEventHandler) {
+                ((TouchPointEventHandler) attachedObject).delete();
             }
         }
     }
@@ -316,6 +507,21 @@ public class TouchPoint extends DepthPoint {
         return this.updateTime;
     }
 
+    public Object getAttachedObject() {
+        return attachment.object;
+    }
+
+    public void setAttachedObject(Object attachedObject) {
+        this.attachment.object = attachedObject;
+    }
+
+    /**
+     * @return the attachment shared with the Touches of this point.
+     */
+    public TouchAttachment getAttachment() {
+        return attachment;
+    }
+
     @Override
     public String toString() {
         return "Touch Point, kinect: " + positionKinect + " , proj: " + position + "confidence " + confidence + " ,close to Plane : " + isCloseToPlane;
@@ -338,6 +544,9 @@ public class TouchPoint extends DepthPoint {
             createTouch();
         }
         touch.id = this.id;
+        touch.createTime = this.createTime;
+        touch.attachment = this.attachment;
+        touch.pointPosition.set(this.position);
         return touch;
     }
 
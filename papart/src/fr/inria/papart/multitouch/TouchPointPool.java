@@ -0,0 +1,81 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import java.util.ArrayList;
+
+/**
+ * Recycled TouchPoints. The points are acquired by the TouchDetection, and
+ * released by the tracking when they are merged in a tracked point or
+ * deleted. The released points can still be read through the last published
+ * TouchFrame and the touches projected from it: they are reset with their
+ * Touch and depth data elements, and acquired again, only once the next
+ * frame is published (nextFrame()).
+ *
+ * @author Jeremy Laviole
+ */
+public class TouchPointPool {
+
+    private final ArrayList<TouchPoint> freePoints = new ArrayList<>();
+    // Released during the analysis of the current frame.
+    private ArrayList<TouchPoint> releasedPoints = new ArrayList<>();
+    // Released during the analysis of the last published frame.
+    private ArrayList<TouchPoint> pendingPoints = new ArrayList<>();
+
+    public TouchPoint acquire() {
+        if (freePoints.isEmpty()) {
+            return new TouchPoint();
+        }
+        return freePoints.remove(freePoints.size() - 1);
+    }
+
+    public void release(TouchPoint tp) {
+        releasedPoints.add(tp);
+    }
+
+    /**
+     * To call after the publication of a TouchFrame. The points released
+     * before the previous publication are not in the last two frames, they
+     * are recycled.
+     */
+    public void nextFrame() {
+        for (TouchPoint tp : pendingPoints) {
+            tp.reset();
+            freePoints.add(tp);
+        }
+        pendingPoints.clear();
+
+        ArrayList<TouchPoint> points = pendingPoints;
+        pendingPoints = releasedPoints;
+        releasedPoints = points;
+    }
+
+    public int getNbFreePoints() {
+        return freePoints.size();
+    }
+
+    /**
+     * @return the number of released points waiting for a frame to be
+     * recycled.
+     */
+    public int getNbPendingPoints() {
+        return releasedPoints.size() + pendingPoints.size();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import toxi.geom.Vec3D;
+
+/**
+ * Constant velocity Kalman filter of a touch position, in the depth camera
+ * space (millimeters). Each axis is filtered separately, with a position,
+ * a velocity and their 2x2 covariance.
+ *
+ * @author Jeremy Laviole
+ */
+public class TouchPointPredictor {
+
+    // Variance of the acceleration, in (mm/s^2)^2.
+    public static float processNoise = 2.5e7f;
+    // Variance of the measured position, in mm^2.
+    public static float measurementNoise = 9f;
+    // Variance of the initial velocity, in (mm/s)^2.
+    public static float initialVelocityNoise = 1e6f;
+
+    // Maximal prediction, in ms.
+    public static int maxPredictionTime = 200;
+
+    private final float[] position = new float[3];
+    private final float[] velocity = new float[3];
+    // Covariance: position, position-velocity, velocity.
+    private final float[] p00 = new float[3];
+    private final float[] p01 = new float[3];
+    private final float[] p11 = new float[3];
+
+    private int lastTime;
+    private boolean initialized = false;
+
+    public TouchPointPredictor() {
+    }
+
+    /**
+     * Copy of the state of a predictor, to predict from another thread.
+     *
+     * @param other
+     */
+    public TouchPointPredictor(TouchPointPredictor other) {
+        System.arraycopy(other.position, 0, position, 0, 3);
+        System.arraycopy(other.velocity, 0, velocity, 0, 3);
+        System.arraycopy(other.p00, 0, p00, 0, 3);
+        System.arraycopy(other.p01, 0, p01, 0, 3);
+        System.arraycopy(other.p11, 0, p11, 0, 3);
+        this.lastTime = other.lastTime;
+        this.initialized = other.initialized;
+    }
+
+    /**
+     * Add a measured position.
+     *
+     * @param measure position in the depth camera space.
+     * @param time in milliseconds.
+     */
+    public void update(Vec3D measure, int time) {
+        if (!initialized) {
+            for (int i = 0; i < 3; i++) {
+                position[i] = get(measure, i);
+                velocity[i] = 0;
+                p00[i] = measurementNoise;
+                p01[i] = 0;
+                p11[i] = initialVelocityNoise;
+            }
+            lastTime = time;
+            initialized = true;
+            return;
+        }
+
+        float dt = Math.max(0, time - lastTime) / 1000f;
+        float dt2 = dt * dt;
+        lastTime = time;
+
+        for (int i = 0; i < 3; i++) {
+            // Prediction
+            position[i] += velocity[i] * dt;
+            float c00 = p00[i] + 2 * dt * p01[i] + dt2 * p11[i] + processNoise * dt2 * dt2 / 4;
+            float c01 = p01[i] + dt * p11[i] + processNoise * dt2 * dt / 2;
+            float c11 = p11[i] + processNoise * dt2;
+
+            // Correction
+            float innovation = get(measure, i) - position[i];
+            float s = c00 + measurementNoise;
+            float k0 = c00 / s;
+            float k1 = c01 / s;
+            position[i] += k0 * innovation;
+            velocity[i] += k1 * innovation;
+            p00[i] = c00 - k0 * c00;
+            p01[i] = c01 - k0 * c01;
+            p11[i] = c11 - k1 * c01;
+        }
+    }
+
+    /**
+     * Position predicted at a given time, limited to maxPredictionTime after
+     * the last update.
+     *
+     * @param time in milliseconds.
+     * @param out filled with the prediction.
+     * @return out
+     */
+    public Vec3D predict(int time, Vec3D out) {
+        float dt = Math.min(Math.max(0, time - lastTime), maxPredictionTime) / 1000f;
+        out.x = position[0] + velocity[0] * dt;
+        out.y = position[1] + velocity[1] * dt;
+        out.z = position[2] + velocity[2] * dt;
+        return out;
+    }
+
+    /**
+     * @param out filled with the velocity, in millimeters per second.
+     * @return out
+     */
+    public Vec3D getVelocity(Vec3D out) {
+        out.set(velocity[0], velocity[1], velocity[2]);
+        return out;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public int getLastTime() {
+        return lastTime;
+    }
+
+    private static float get(Vec3D v, int axis) {
+        return axis == 0 ? v.x : axis == 1 ? v.y : v.z;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import toxi.geom.Vec3D;
+
+/**
+ * Copy of the positions of a TouchPoint at the end of an analysis. It is not
+ * modified after its creation, and can be read from any thread.
+ *
+ * @author Jeremy Laviole
+ */
+public class TouchPointState {
+
+    public final int id;
+    public final int createTime;
+    // Shared with the tracked point, set by the application.
+    public final TouchAttachment attachment;
+    public final boolean is3D;
+    public final boolean isGhost;
+
+    // Depth camera space, and normalized plane space.
+    public final Vec3D positionKinect;
+    public final Vec3D position;
+    public final Vec3D previousPositionKinect;
+    public final Vec3D previousPosition;
+
+    // Copy of the predictor, null without prediction.
+    public final TouchPointPredictor predictor;
+
+    /**
+     * @deprecated the tracked point, modified by the analysis. Null when the
+     * analysis runs in its own thread.
+     */
+    @Deprecated
+    public final TouchPoint touchPoint;
+
+    public TouchPointState(TouchPoint tp) {
+        this(tp, false);
+    }
+
+    /**
+     * @param tp tracked point to copy.
+     * @param linkTouchPoint keep a reference to the tracked point, when it is
+     * read in the thread of the analysis.
+     */
+    public TouchPointState(TouchPoint tp, boolean linkTouchPoint) {
+        this.id = tp.getID();
+        this.createTime = tp.getCreationTime();
+        this.attachment = tp.getAttachment();
+        this.is3D = tp.is3D();
+        this.isGhost = tp.isToDelete();
+        this.positionKinect = new Vec3D(tp.getPositionKinect());
+        this.position = tp.getPositionVec3D();
+        this.previousPositionKinect = new Vec3D(tp.getPreviousPositionKinect());
+        this.previousPosition = tp.getPreviousPositionVec3D();
+        this.predictor = tp.hasPrediction() ? new TouchPointPredictor(tp.getPredictor()) : null;
+        this.touchPoint = linkTouchPoint ? tp : null;
+    }
+
+    public boolean hasPrediction() {
+        return predictor != null;
+    }
+
+    /**
+     * @param time
+     * @param out filled with the position predicted at this time, or the last
+     * position when there is no prediction.
+     * @return out
+     */
+    public Vec3D getPredictedPositionKinect(int time, Vec3D out) {
+        if (predictor == null) {
+            out.set(positionKinect);
+            return out;
+        }
+        return predictor.predict(time, out);
+    }
+}
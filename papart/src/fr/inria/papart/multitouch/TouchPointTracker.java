@@ -37,10 +37,22 @@ public class TouchPointTracker {
      */
     public static void trackPoints(ArrayList<TouchPoint> currentList,
             ArrayList<TouchPoint> newPoints, int currentTime) {
+        trackPoints(currentList, newPoints, currentTime, null);
+    }
+
+    /**
+     * @param currentList
+     * @param newPoints
+     * @param currentTime
+     * @param pool the merged and deleted points are released in it, can be
+     * null.
+     */
+    public static void trackPoints(ArrayList<TouchPoint> currentList,
+            ArrayList<TouchPoint> newPoints, int currentTime, TouchPointPool pool) {
 
-        deleteOldPoints(currentList, currentTime);
+        deleteOldPoints(currentList, currentTime, pool);
         updatePoints(currentList, newPoints);
-        addNewPoints(currentList, newPoints);
+        addNewPoints(currentList, newPoints, pool);
         setNonUpdatedPointsSpeed(currentList);
     }
 
@@ -67,11 +79,19 @@ public class TouchPointTracker {
     }
 
     public static void addNewPoints(ArrayList<TouchPoint> currentList, ArrayList<TouchPoint> newPoints) {
+        addNewPoints(currentList, newPoints, null);
+    }
+
+    public static void addNewPoints(ArrayList<TouchPoint> currentList,
+            ArrayList<TouchPoint> newPoints, TouchPointPool pool) {
 
         // Add the new ones ?
         for (TouchPoint tp : newPoints) {
             if (!tp.isToDelete()) {
                 currentList.add(tp);
+            } else if (pool != null) {
+                // merged in a tracked point.
+                pool.release(tp);
             }
         }
     }
@@ -88,6 +108,11 @@ public class TouchPointTracker {
     }
 
     public static void deleteOldPoints(ArrayList<TouchPoint> currentList, int currentTime) {
+        deleteOldPoints(currentList, currentTime, null);
+    }
+
+    public static void deleteOldPoints(ArrayList<TouchPoint> currentList,
+            int currentTime, TouchPointPool pool) {
         // Clear the old ones 
         for (Iterator<TouchPoint> it = currentList.iterator();
                 it.hasNext();) {
@@ -97,6 +122,9 @@ public class TouchPointTracker {
             if (tp.isObselete(currentTime)) {
                 tp.delete(currentTime);
                 it.remove();
+                if (pool != null) {
+                    pool.release(tp);
+                }
             }
 
         }
@@ -0,0 +1,112 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import fr.inria.papart.procam.Screen;
+import fr.inria.papart.procam.display.BaseDisplay;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+/**
+ * Touches projected on a screen, kept for one TouchFrame version. The
+ * projection is done again when the frame, the location of the screen
+ * (given as a signature) or the rendering frame for the predictions change.
+ * The screens are weak keys, they are removed with their screen.
+ *
+ * @author Jeremy Laviole
+ */
+class TouchProjectionCache {
+
+    private final WeakHashMap<Screen, ArrayList<Entry>> entries = new WeakHashMap<>();
+
+    private static class Entry {
+
+        final BaseDisplay display;
+        int version;
+        int renderFrame;
+        float[] signature;
+        TouchList touchList;
+
+        Entry(BaseDisplay display) {
+            this.display = display;
+        }
+    }
+
+    /**
+     * @param screen
+     * @param display
+     * @param version version of the TouchFrame.
+     * @param renderFrame rendering frame, or 0 when the projection does not
+     * depend on it.
+     * @param signature values the projection depends on, compared in place.
+     * @return the cached list, or null.
+     */
+    public synchronized TouchList get(Screen screen, BaseDisplay display,
+            int version, int renderFrame, float[] signature) {
+        Entry entry = find(screen, display);
+        if (entry == null
+                || entry.version != version
+                || entry.renderFrame != renderFrame
+                || !Arrays.equals(entry.signature, signature)) {
+            return null;
+        }
+        return entry.touchList;
+    }
+
+    public synchronized void put(Screen screen, BaseDisplay display,
+            int version, int renderFrame, float[] signature, TouchList touchList) {
+        Entry entry = find(screen, display);
+        if (entry == null) {
+            entry = new Entry(display);
+            ArrayList<Entry> screenEntries = entries.get(screen);
+            if (screenEntries == null) {
+                screenEntries = new ArrayList<>(1);
+                entries.put(screen, screenEntries);
+            }
+            screenEntries.add(entry);
+        }
+        entry.version = version;
+        entry.renderFrame = renderFrame;
+        // The array of the entry is reused, the signature is not kept.
+        if (entry.signature == null || entry.signature.length != signature.length) {
+            entry.signature = new float[signature.length];
+        }
+        System.arraycopy(signature, 0, entry.signature, 0, signature.length);
+        entry.touchList = touchList;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private Entry find(Screen screen, BaseDisplay display) {
+        ArrayList<Entry> screenEntries = entries.get(screen);
+        if (screenEntries == null) {
+            return null;
+        }
+        for (Entry entry : screenEntries) {
+            if (entry.display == display) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
@@ -33,6 +33,12 @@ import processing.core.PVector;
 public class TwoFingersRST extends RSTTransform {
 
     protected Touch[] touchs = new Touch[2];
+    // Attached to the tracked points of the touchs, to find their Touch in
+    // the list of each frame.
+    private final TouchHandler[] handlers = new TouchHandler[2];
+    // Positions of the last movement, the touchs are the same until the
+    // next touch frame.
+    private final PVector[] appliedPositions = {new PVector(), new PVector()};
     protected TouchList touchList;
 
     class TouchHandler implements TouchPointEventHandler {
@@ -80,9 +86,13 @@ public class TwoFingersRST extends RSTTransform {
 
         for (int i = 0; i < touchs.length; i++) {
 
+            if (touchs[i] != Touch.INVALID) {
+                touchs[i] = findCurrentTouch(touchs[i], handlers[i]);
+            }
+
             if (touchs[i] != Touch.INVALID) {
                 if (isInValidTouch(touchs[i])) {
-                    touchs[i].touchPoint.attachedObject = null;
+                    touchs[i].setAttachedObject(null);
 //                    System.out.println("Touch " + i + " not valid anymore." + touchs[i]);
                     touchs[i] = Touch.INVALID;
                 }
@@ -119,19 +129,36 @@ public class TwoFingersRST extends RSTTransform {
         return t.isGhost || t.isObject || !validBounds(t);
     }
 
+    /**
+     * @param previous touch of the previous frame.
+     * @param handler attached to its tracked point.
+     * @return the touch of the tracked point in the current list, or INVALID
+     * if it is not in the list anymore.
+     */
+    private Touch findCurrentTouch(Touch previous, TouchHandler handler) {
+        for (Touch touch : touchList) {
+            if (touch.getAttachedObject() == handler) {
+                return touch;
+            }
+        }
+        previous.setAttachedObject(null);
+        return Touch.INVALID;
+    }
+
     private Touch getNewTouch(int id) {
         for (Touch touch : touchList) {
 
             if (!validBounds(touch)
-                    || touch.touchPoint.attachedObject != null
+                    || touch.getAttachedObject() != null
                     || touch.isGhost) {
                 continue;
             }
 
             // touch without "attachment"
-            if (touch.touchPoint.attachedObject == null) {
+            if (touch.getAttachedObject() == null) {
                 // tag it.
-                touch.touchPoint.attachedObject = new TouchHandler(id);
+                handlers[id] = new TouchHandler(id);
+                touch.setAttachedObject(handlers[id]);
                 return touch;
             }
         }
@@ -145,6 +172,15 @@ public class TwoFingersRST extends RSTTransform {
             return;
         }
 
+        // Same positions as the last movement, it is already applied.
+        if (touchs[0].position.equals(appliedPositions[0])
+                && touchs[1].position.equals(appliedPositions[1])) {
+            emptyUpdate();
+            return;
+        }
+        appliedPositions[0].set(touchs[0].position);
+        appliedPositions[1].set(touchs[1].position);
+
 //        System.out.println("Full Update");
         // Every values needs to be divided by 2... for some reason.
         float rot = computeRotation(touchs[0], touchs[1]);
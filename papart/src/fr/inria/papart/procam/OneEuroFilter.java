@@ -72,6 +72,10 @@ class LowPassFilter {
         return filter(value);
     }
 
+    void reset() {
+        initialized = false;
+    }
+
     public boolean hasLastRawValue() {
         return initialized;
     }
@@ -150,6 +154,15 @@ public class OneEuroFilter {
         lasttime = UndefinedTime;
     }
 
+    /**
+     * Forget the previous values.
+     */
+    public void reset() {
+        x.reset();
+        dx.reset();
+        lasttime = UndefinedTime;
+    }
+
     public double filter(double value) throws Exception {
         return filter(value, UndefinedTime);
     }
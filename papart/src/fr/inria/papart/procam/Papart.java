@@ -36,9 +36,11 @@ import fr.inria.papart.depthcam.devices.Kinect360;
 import fr.inria.papart.depthcam.analysis.KinectDepthAnalysis;
 import fr.inria.papart.depthcam.devices.KinectDevice;
 import fr.inria.papart.depthcam.devices.KinectOne;
+import fr.inria.papart.depthcam.devices.KinectReplay;
 import fr.inria.papart.multitouch.TouchInput;
 import fr.inria.papart.multitouch.TUIOTouchInput;
 import fr.inria.papart.multitouch.KinectTouchInput;
+import fr.inria.papart.multitouch.TouchLatency;
 import fr.inria.papart.procam.camera.CameraFactory;
 import java.io.File;
 import java.lang.reflect.Constructor;
@@ -305,6 +307,9 @@ public class Papart {
         if (kinectConfiguration.getCameraType() == Camera.Type.KINECT2_RGB) {
             return new KinectOne(applet);
         }
+        if (kinectConfiguration.getCameraType() == Camera.Type.REPLAY) {
+            return new KinectReplay(applet, kinectConfiguration.getCameraName());
+        }
         System.err.println("Papart: Could not identify default Kinect Device.");
         return null;
     }
@@ -777,6 +782,9 @@ public class Papart {
                 return new KinectOne(applet, cameraTracking);
             }
         }
+        if (kinectConfiguration.getCameraType() == Camera.Type.REPLAY) {
+            return new KinectReplay(applet, kinectConfiguration.getCameraName());
+        }
         System.err.println("Could not load the Kinect !" + "Camera Type " + kinectConfiguration.getCameraType());
         return null;
     }
@@ -926,6 +934,17 @@ public class Papart {
         return this.touchInput;
     }
 
+    /**
+     * @return the latency of the touch pipeline stages, null without a depth
+     * camera touch input.
+     */
+    public TouchLatency getTouchLatency() {
+        if (touchInput instanceof KinectTouchInput) {
+            return ((KinectTouchInput) touchInput).getLatency();
+        }
+        return null;
+    }
+
     public PVector getFrameSize() {
         assert (this.frameSize != null);
         return this.frameSize.get();
@@ -25,8 +25,8 @@ import fr.inria.papart.multitouch.TouchInput;
 import fr.inria.papart.multitouch.Touch;
 import fr.inria.papart.multitouch.KinectTouchInput;
 import fr.inria.papart.multitouch.TUIOTouchInput;
+import fr.inria.papart.multitouch.TouchLatency;
 import fr.inria.papart.multitouch.TouchList;
-import fr.inria.papart.multitouch.TouchPoint;
 import fr.inria.papart.procam.display.ProjectorDisplay;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -85,6 +85,17 @@ public class PaperTouchScreen extends PaperScreen {
         updateTouch();
     }
 
+    @Override
+    public void draw() {
+        if (!(touchInput instanceof KinectTouchInput)) {
+            super.draw();
+            return;
+        }
+        long start = System.nanoTime();
+        super.draw();
+        ((KinectTouchInput) touchInput).getLatency().record(TouchLatency.Stage.DRAW, start);
+    }
+
     public void updateTouch() {
         if (!(touchInput instanceof TUIOTouchInput)) {
             if (!screen.isDrawing()) {
@@ -102,7 +113,9 @@ public class PaperTouchScreen extends PaperScreen {
             touchInput.computeOutsiders(true);
         }
 
-        touchList = touchInput.projectTouchToScreen(screen, getDisplay());
+        // The list is shared between the calls, it is copied at each frame
+        // so that the edits of the application do not last.
+        touchList = touchInput.projectTouchToScreen(screen, getDisplay()).copy();
         touchList.sortAlongYAxis();
 
         if (touchInput instanceof KinectTouchInput) {
@@ -166,6 +179,10 @@ public class PaperTouchScreen extends PaperScreen {
         }
     }
 
+    /**
+     * @return the touches of this screen, copied at each frame. The
+     * application can modify them, the changes are lost at the next frame.
+     */
     public TouchList getTouchList() {
         return touchList;
     }
@@ -184,8 +201,7 @@ public class PaperTouchScreen extends PaperScreen {
     public PVector getCameraViewOf(Touch t) {
         ProjectorDisplay projector = (ProjectorDisplay) getDisplay();
 
-        TouchPoint tp = t.touchPoint;
-        PVector screenPos = tp.getPosition();
+        PVector screenPos = t.pointPosition;
         PVector tablePos = projector.projectPointer3D(screen, screenPos.x, screenPos.y);
         ProjectiveDeviceP pdp = cameraTracking.getProjectiveDevice();
         PVector coord = pdp.worldToPixelCoord(tablePos);
@@ -55,6 +55,10 @@ public class ProjectiveDeviceP implements PConstants, HasExtrinsics {
     private boolean hasExtrinsics = false;
     private boolean handleDistorsion = false;
 
+    // Direction of each pixel at depth 1, packed as x, y.
+    private volatile float[] rays = null;
+    private volatile float[] undistortedRays = null;
+
     private ProjectiveDeviceP() {
     }
 
@@ -139,6 +143,83 @@ public class ProjectiveDeviceP implements PConstants, HasExtrinsics {
         result.z = depth;
     }
 
+    /**
+     * Direction of each pixel at depth 1: (x - cx) / fx and (y - cy) / fy
+     * packed as x, y. A 3D point is ray * depth. The table is computed at the
+     * first call, and again when the intrinsics change.
+     *
+     * @param undistort use the distortion coefficients of the calibration,
+     * when there are some.
+     * @return the table of rays, 2 values per pixel.
+     */
+    public float[] getRays(boolean undistort) {
+        if (undistort && handleDistorsion && device != null && device.distortionCoeffs != null) {
+            float[] table = undistortedRays;
+            if (table == null) {
+                table = computeRays(device.distortionCoeffs.get());
+                undistortedRays = table;
+            }
+            return table;
+        }
+
+        float[] table = rays;
+        if (table == null) {
+            table = computeRays(null);
+            rays = table;
+        }
+        return table;
+    }
+
+    private float[] computeRays(double[] distortion) {
+        float[] table = new float[w * h * 2];
+        int k = 0;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                float rx = (x - cx) * ifx;
+                float ry = (y - cy) * ify;
+                if (distortion != null) {
+                    float[] undistorted = undistortNormalized(rx, ry, distortion);
+                    rx = undistorted[0];
+                    ry = undistorted[1];
+                }
+                table[k++] = rx;
+                table[k++] = ry;
+            }
+        }
+        return table;
+    }
+
+    private static final int UNDISTORT_ITERATIONS = 20;
+
+    /**
+     * Iterative inversion of the distortion model (k1, k2, p1, p2, k3), like
+     * OpenCV's undistortPoints.
+     *
+     * @param xd distorted normalized coordinate
+     * @param yd distorted normalized coordinate
+     * @param k distortion coefficients
+     * @return undistorted normalized coordinates
+     */
+    private static float[] undistortNormalized(float xd, float yd, double[] k) {
+        double k1 = k.length > 0 ? k[0] : 0;
+        double k2 = k.length > 1 ? k[1] : 0;
+        double p1 = k.length > 2 ? k[2] : 0;
+        double p2 = k.length > 3 ? k[3] : 0;
+        double k3 = k.length > 4 ? k[4] : 0;
+
+        double x = xd;
+        double y = yd;
+        for (int i = 0; i < UNDISTORT_ITERATIONS; i++) {
+            double r2 = x * x + y * y;
+            double icdist = 1 / (1 + ((k3 * r2 + k2) * r2 + k1) * r2);
+            double deltaX = 2 * p1 * x * y + p2 * (r2 + 2 * x * x);
+            double deltaY = p1 * (r2 + 2 * y * y) + 2 * p2 * x * y;
+            x = (xd - deltaX) * icdist;
+            y = (yd - deltaY) * icdist;
+        }
+        return new float[]{(float) x, (float) y};
+    }
+
     /* * Working, use this one for Low error !
         
      */
@@ -561,6 +642,8 @@ public class ProjectiveDeviceP implements PConstants, HasExtrinsics {
         ify = 1f / intrinsics.m11;
         cx = intrinsics.m02;
         cy = intrinsics.m12;
+        rays = null;
+        undistortedRays = null;
     }
 
     public String toString() {
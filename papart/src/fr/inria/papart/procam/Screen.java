@@ -209,6 +209,23 @@ public class Screen implements HasExtrinsics {
         return combinedTransfos;
     }
     
+    /**
+     * Same as getLocation(camera), without allocation.
+     *
+     * @param camera
+     * @param out filled with the overall transform.
+     * @return out
+     */
+    public PMatrix3D getLocation(Camera camera, PMatrix3D out) {
+        if (!markerBoard.isTrackedBy(camera)) {
+            out.set(extrinsics);
+            return out;
+        }
+        out.set(markerBoard.getTransfoMat(camera));
+        out.apply(extrinsics);
+        return out;
+    }
+
     protected PMatrix3D getMainLocation(Camera camera){
         return markerBoard.getTransfoMat(camera).get();
     }
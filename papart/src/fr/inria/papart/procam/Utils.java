@@ -20,6 +20,7 @@
 package fr.inria.papart.procam;
 
 import fr.inria.papart.procam.camera.Camera.PixelFormat;
+import fr.inria.papart.procam.camera.ImageConverter;
 
 import org.bytedeco.javacv.CameraDevice;
 import org.bytedeco.javacv.ProjectorDevice;
@@ -507,169 +508,44 @@ public class Utils {
     }
 
     static public void IplImageToPImage(IplImage img, PixelFormat format, PImage ret) {
-        if (format == PixelFormat.RGB) {
-            IplImageToPImage(img, true, ret);
-        }
-        if (format == PixelFormat.BGR) {
-            IplImageToPImage(img, false, ret);
-        }
+        assert (img.width() == ret.width);
+        assert (img.height() == ret.height);
+        ret.loadPixels();
+        converters.get().toPixels(img, format, ret.pixels);
+        ret.updatePixels();
     }
 
     static public void IplImageToPImage(IplImage img, PImage ret) {
         IplImageToPImage(img, true, ret);
     }
-    static int conversionCount = 0;
-
-    static public void IplImageToPImage(IplImage img, boolean RGB, PImage ret) {
-
-//        conversionCount++;
-//        if (conversionCount % 600 == 0) {
-//            System.gc();
-//        }
-        assert (img.width() == ret.width);
-        assert (img.height() == ret.height);
-        //= new BufferedImage();
-
-        if (img.nChannels() == 3) {
-            ByteBuffer buff = img.getByteBuffer();
-
-            //  PImage ret = new PImage(img.width(), img.height(), PApplet.RGB);
-            ret.loadPixels();
-            if (RGB) {
-                for (int i = 0; i < img.width() * img.height(); i++) {
-                    int offset = i * 3;
-                    ret.pixels[i] = (buff.get(offset) & 0xFF) << 16
-                            | (buff.get(offset + 1) & 0xFF) << 8
-                            | (buff.get(offset + 2) & 0xFF);
-
-                }
-            } else {
-                for (int i = 0; i < img.width() * img.height(); i++) {
-                    int offset = i * 3;
-                    ret.pixels[i] = (buff.get(offset + 2) & 0xFF) << 16
-                            | (buff.get(offset + 1) & 0xFF) << 8
-                            | (buff.get(offset) & 0xFF);
-
-                }
-            }
-        }
-
-        if (img.nChannels() == 4) {
-            ByteBuffer buff = img.getByteBuffer();
-            //  PImage ret = new PImage(img.width(), img.height(), PApplet.RGB);
-            ret.loadPixels();
-            for (int i = 0; i < img.width() * img.height(); i++) {
-                int offset = i * 4;
-//            ret.pixels[i] = applet.color(buff.get(offset + 0) & 0xff, buff.get(offset + 1) & 0xFF, buff.get(offset + 2) & 0xff);
-
-                ret.pixels[i] = (0xFF) << 24
-                        | (buff.get(offset) & 0xFF) << 16
-                        | (buff.get(offset + 1) & 0xFF) << 8
-                        | (buff.get(offset + 2) & 0xFF);
 
-            }
+    // One converter per thread, the conversions reuse their memory.
+    private static final ThreadLocal<ImageConverter> converters = new ThreadLocal<ImageConverter>() {
+        @Override
+        protected ImageConverter initialValue() {
+            return new ImageConverter();
         }
+    };
 
-        if (img.nChannels() == 1) {
-            // TODO: no more allocations. 
-            ByteBuffer buff = img.getByteBuffer();
-            byte[] arr = new byte[img.width() * img.height()];
-            buff.get(arr);
-
-            for (int i = 0; i < img.width() * img.height(); i++) {
-                int d = (arr[i] & 0xFF);
-                ret.pixels[i] = d;
-            }
+    /**
+     * Converter of the calling thread, to set its parallel mode.
+     *
+     * @return
+     */
+    static public ImageConverter getImageConverter() {
+        return converters.get();
+    }
 
-        }
-        ret.updatePixels();
+    static public void IplImageToPImage(IplImage img, boolean RGB, PImage ret) {
+        IplImageToPImage(img, RGB ? PixelFormat.RGB : PixelFormat.BGR, ret);
     }
 
     static public void byteBufferBRGtoARGB(ByteBuffer bgr, ByteBuffer argb) {
-        byte[] tmpArr = new byte[3];
-
-        for (int i = 0; i < bgr.capacity(); i += 3) {
-            bgr.get(tmpArr);
-
-            argb.put(tmpArr[2]);
-            argb.put(tmpArr[1]);
-            argb.put(tmpArr[0]);
-            argb.put((byte) 255);
-        }
-        argb.rewind();
+        converters.get().bgrToRGBA(bgr, argb);
     }
 
-    // TODO
-    private static byte[] kinectByteArray = null;
-
     static public void IplImageToPImageKinect(IplImage img, boolean RGB, PImage ret) {
-
-//        conversionCount++;
-//        if (conversionCount % 30 == 0) {
-//            System.gc();
-//        }
-        assert (img.width() == ret.width);
-        assert (img.height() == ret.height);
-//        BufferedImage bimg = new BufferedImage();
-
-        if (img.nChannels() == 3) {
-
-            System.out.println("3 channels");
-            ByteBuffer buff = img.getByteBuffer();
-
-            //  PImage ret = new PImage(img.width(), img.height(), PApplet.RGB);
-            ret.loadPixels();
-            if (RGB) {
-                for (int i = 0; i < img.width() * img.height(); i++) {
-                    int offset = i * 3;
-//            ret.pixels[i] = applet.color(buff.get(offset + 0) & 0xff, buff.get(offset + 1) & 0xFF, buff.get(offset + 2) & 0xff);
-
-                    ret.pixels[i] = (buff.get(offset) & 0xFF) << 16
-                            | (buff.get(offset + 1) & 0xFF) << 8
-                            | (buff.get(offset + 2) & 0xFF);
-
-                }
-            } else {
-                for (int i = 0; i < img.width() * img.height(); i++) {
-                    int offset = i * 3;
-//            ret.pixels[i] = applet.color(buff.get(offset + 0) & 0xff, buff.get(offset + 1) & 0xFF, buff.get(offset + 2) & 0xff);
-
-                    ret.pixels[i] = (buff.get(offset + 2) & 0xFF) << 16
-                            | (buff.get(offset + 1) & 0xFF) << 8
-                            | (buff.get(offset) & 0xFF);
-
-                }
-
-            }
-        } else if (img.nChannels() == 1) {
-
-            ////////////// Kinect Depth //////////////
-            ByteBuffer buff = img.getByteBuffer();
-
-            if (Utils.kinectByteArray == null) {
-                kinectByteArray = new byte[2 * img.width() * img.height()];
-            }
-//                else {
-//                    Arrays.fill(kinectByteArray, (byte) 0);
-//                }
-
-            buff.get(kinectByteArray);
-
-            for (int i = 0; i < img.width() * img.height() * 2; i += 2) {
-                int d = (kinectByteArray[i] & 0xFF) << 8
-                        | (kinectByteArray[i + 1] & 0xFF);
-
-                ret.pixels[i / 2] = d;
-//                    ret.pixels[i] =
-//                            (buff.get(i) & 0xFF) << 16
-//                            | (buff.get(i) & 0xFF) << 8
-//                            | (buff.get(i) & 0xFF);
-            }
-
-        }
-
-//        buff = null;
-        ret.updatePixels();
+        IplImageToPImage(img, RGB, ret);
     }
 
     /**
@@ -680,29 +556,7 @@ public class Utils {
 //        dst.copyFrom((BufferedImage) src.getImage());
 //    }
     static public void PImageToIplImage2(IplImage img, boolean RGB, PImage ret) {
-
-        ByteBuffer buff = img.getByteBuffer();
-
-        ret.loadPixels();
-        if (RGB) {
-            for (int i = 0; i < img.width() * img.height(); i++) {
-                int offset = i * 3;
-                ret.pixels[i] = (buff.get(offset) & 0xFF) << 16
-                        | (buff.get(offset + 1) & 0xFF) << 8
-                        | (buff.get(offset + 2) & 0xFF);
-
-            }
-        } else {
-            for (int i = 0; i < img.width() * img.height(); i++) {
-                int offset = i * 3;
-                ret.pixels[i] = (buff.get(offset + 2) & 0xFF) << 16
-                        | (buff.get(offset + 1) & 0xFF) << 8
-                        | (buff.get(offset) & 0xFF);
-
-            }
-
-        }
-        ret.updatePixels();
+        IplImageToPImage(img, RGB, ret);
     }
 
     static public void convertARParam2(PApplet pa, String inputYAML, String outputDAT) throws Exception {
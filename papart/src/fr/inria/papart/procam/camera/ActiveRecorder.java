@@ -0,0 +1,58 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import java.io.IOException;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+
+/**
+ * Recorder of a depth camera. It is set by the application and used by the
+ * grabbing thread, the recording stops at the first error.
+ *
+ * @author Jeremy Laviole
+ */
+class ActiveRecorder {
+
+    private volatile FrameRecorder recorder = null;
+
+    /**
+     * @param recorder null to stop.
+     */
+    public void set(FrameRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
+    public void record(IplImage depthImage, IplImage colorImage, long grabStart) {
+        FrameRecorder current = recorder;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.record(depthImage, colorImage, grabStart);
+        } catch (IOException e) {
+            System.err.println("Camera: recording error, the recording stops. " + e);
+            recorder = null;
+        }
+    }
+}
@@ -34,6 +34,10 @@ public abstract class CamImage extends PImage {
     protected Object bufferSink = null;
     protected ByteBuffer natBuffer = null;
 
+    protected final TextureUploader uploader = new TextureUploader();
+    protected boolean directUpload = true;
+    private int frameId = -1;
+
     protected CamImage(PApplet parent, int width, int height, int format) {
         super(width, height, format);
         camInit(parent);
@@ -48,6 +52,36 @@ public abstract class CamImage extends PImage {
 
     public abstract void update(IplImage iplImage);
 
+    /**
+     * Update with a frame of a camera, nothing is done when this frame was
+     * already uploaded.
+     *
+     * @param iplImage
+     * @param frameId number of the frame, see Camera.getFrameId().
+     */
+    public void update(IplImage iplImage, int frameId) {
+        if (frameId == this.frameId) {
+            return;
+        }
+        this.frameId = frameId;
+        update(iplImage);
+    }
+
+    /**
+     * @param directUpload true to give the image buffer to OpenGL without
+     * conversion, when the OpenGL context allows it.
+     */
+    public void setDirectUpload(boolean directUpload) {
+        this.directUpload = directUpload;
+    }
+
+    /**
+     * @param usePixelBuffers true to upload through pixel buffer objects.
+     */
+    public void setUsePixelBuffers(boolean usePixelBuffers) {
+        uploader.setUsePixelBuffers(usePixelBuffers);
+    }
+
     public synchronized void disposeBuffer(Object buf) {
 
     }
@@ -19,7 +19,7 @@
  */
 package fr.inria.papart.procam.camera;
 
-import fr.inria.papart.procam.Utils;
+import com.jogamp.opengl.GL2;
 import java.awt.Image;
 import java.nio.ByteBuffer;
 import org.bytedeco.javacpp.opencv_core.IplImage;
@@ -35,6 +35,7 @@ import processing.opengl.Texture;
 public class CamImageColor extends CamImage {
 
     protected ByteBuffer argbBuffer;
+    protected final ImageConverter converter = new ImageConverter();
 
         
     public CamImageColor(PApplet parent, Image img) {
@@ -63,10 +64,20 @@ public class CamImageColor extends CamImage {
 
     @Override
     public void update(IplImage iplImage) {
-        Texture tex = ((PGraphicsOpenGL) parent.g).getTexture(this);
-        ByteBuffer bgrBuffer = iplImage.getByteBuffer();
-        Utils.byteBufferBRGtoARGB(bgrBuffer, argbBuffer);
+        PGraphicsOpenGL pg = (PGraphicsOpenGL) parent.g;
+        Texture tex = pg.getTexture(this);
+        if (directUpload && uploader.upload(pg, tex, iplImage, GL2.GL_BGR)) {
+            return;
+        }
+        converter.toRGBA(iplImage, Camera.PixelFormat.BGR, argbBuffer);
         tex.copyBufferFromSource(null, argbBuffer, width, height);
     }
 
+    /**
+     * @return the converter of the frames, to set its parallel mode.
+     */
+    public ImageConverter getConverter() {
+        return converter;
+    }
+
 }
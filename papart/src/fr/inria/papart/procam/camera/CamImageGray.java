@@ -19,6 +19,7 @@
  */
 package fr.inria.papart.procam.camera;
 
+import com.jogamp.opengl.GL2;
 import java.awt.Image;
 import java.nio.ByteBuffer;
 import org.bytedeco.javacpp.opencv_core;
@@ -58,7 +59,11 @@ public class CamImageGray extends CamImage {
     @Override
     public void update(opencv_core.IplImage iplImage) {
 
-        Texture tex = ((PGraphicsOpenGL) parent.g).getTexture(this);
+        PGraphicsOpenGL pg = (PGraphicsOpenGL) parent.g;
+        Texture tex = pg.getTexture(this);
+        if (directUpload && uploader.upload(pg, tex, iplImage, GL2.GL_LUMINANCE)) {
+            return;
+        }
         ByteBuffer buffer = iplImage.getByteBuffer();
         
 //         Utils.byteBufferBRGtoARGB(bgrBuffer, argbBuffer);
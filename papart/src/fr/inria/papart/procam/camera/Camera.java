@@ -39,6 +39,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,6 +55,8 @@ public abstract class Camera extends Node implements PConstants, HasExtrinsics {
 
     // Images
     protected IplImage currentImage, copyUndist;
+    // Number of the current image, increased at each new image.
+    private final AtomicInteger frameId = new AtomicInteger(0);
 
     protected CamImage camImage = null;
     protected DetectedMarker[] lastMarkers = null;
@@ -66,7 +69,7 @@ public abstract class Camera extends Node implements PConstants, HasExtrinsics {
 
     public enum Type {
 
-        OPENCV, FFMPEG, OPENCV_DEPTH, PROCESSING, OPEN_KINECT, FLY_CAPTURE, KINECT2_RGB, KINECT2_IR, FAKE
+        OPENCV, FFMPEG, OPENCV_DEPTH, PROCESSING, OPEN_KINECT, FLY_CAPTURE, KINECT2_RGB, KINECT2_IR, FAKE, REPLAY
     }
 
     public enum PixelFormat {
@@ -107,6 +110,10 @@ public abstract class Camera extends Node implements PConstants, HasExtrinsics {
     protected String calibrationARToolkit;
 
     private CameraThread thread = null;
+    private volatile FrameRing frameRing = null;
+    // Frames kept for the boards still running, see MarkerBoardScheduler.
+    private static final int NB_RETAINED_FRAMES = 2;
+    private FrameRing.Consumer displayConsumer = null;
 
     abstract public void start();
 
@@ -306,6 +313,7 @@ public abstract class Camera extends Node implements PConstants, HasExtrinsics {
      */
     public void setThread() {
         if (thread == null) {
+            frameRing = new FrameRing(FrameRing.DEFAULT_SIZE + NB_RETAINED_FRAMES);
             thread = new CameraThread(this);
             thread.setCompute(this.trackSheets);
             thread.start();
@@ -321,6 +329,8 @@ public abstract class Camera extends Node implements PConstants, HasExtrinsics {
         if (thread != null) {
             thread.stopThread();
             thread = null;
+            frameRing = null;
+            displayConsumer = null;
         }
     }
 
@@ -328,6 +338,15 @@ public abstract class Camera extends Node implements PConstants, HasExtrinsics {
         return thread != null;
     }
 
+    /**
+     * @return the parallel update of the tracked boards, with their
+     * statistics. Null when the camera is not threaded.
+     */
+    public MarkerBoardScheduler getMarkerBoardScheduler() {
+        CameraThread cameraThread = thread;
+        return cameraThread == null ? null : cameraThread.getScheduler();
+    }
+
     public void forceCurrentImage(IplImage img) {
         updateCurrentImage(img);
     }
@@ -361,6 +380,55 @@ public abstract class Camera extends Node implements PConstants, HasExtrinsics {
         } else {
             currentImage = img;
         }
+        frameUpdated();
+    }
+
+    /**
+     * To call when the current image is set without updateCurrentImage().
+     */
+    protected void frameUpdated() {
+        int id = frameId.incrementAndGet();
+        FrameRing ring = frameRing;
+        if (ring != null) {
+            ring.publish(currentImage, id);
+        }
+    }
+
+    /**
+     * @return the number of the current image, it changes with each new
+     * image. The CamImage uses it to upload a frame only once.
+     */
+    public int getFrameId() {
+        return frameId.get();
+    }
+
+    /**
+     * @return the copies of the last frames when the camera is threaded,
+     * null otherwise. Its consumers get frames that the grabbing thread does
+     * not overwrite.
+     */
+    public FrameRing getFrameRing() {
+        return frameRing;
+    }
+
+    /**
+     * Upload the current image to the CamImage. When the camera is threaded,
+     * the last frame of the FrameRing is used instead: it is not overwritten
+     * during the upload.
+     */
+    protected void updateCamImage() {
+        FrameRing ring = frameRing;
+        if (ring == null) {
+            camImage.update(currentImage, getFrameId());
+            return;
+        }
+        if (displayConsumer == null) {
+            displayConsumer = ring.createConsumer(FrameRing.Policy.LATEST);
+        }
+        FrameRing.Frame frame = displayConsumer.poll();
+        if (frame != null) {
+            camImage.update(frame.getImage(), frame.getId());
+        }
     }
 
     /**
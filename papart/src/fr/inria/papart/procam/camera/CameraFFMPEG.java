@@ -116,7 +116,7 @@ public class CameraFFMPEG extends Camera {
 
         if (currentImage != null) {
             this.checkCamImage();
-            camImage.update(currentImage);
+            updateCamImage();
             return camImage;
         }
         // TODO: exceptions !!!
@@ -37,6 +37,9 @@ public class CameraFactory {
         if (type == Type.PROCESSING) {
             throw new RuntimeException("PROCESSING_VIDEO requires a String describing the camera.");
         }
+        if (type == Type.REPLAY) {
+            throw new RuntimeException("REPLAY requires the file name of the recording.");
+        }
 
         Camera camera;
         switch (type) {
@@ -72,7 +75,8 @@ public class CameraFactory {
      *
      * @param type must be PROCESSING_VIDEO or FFMPEG
      * @param description device of the camera (/dev/video0) or name. see the
-     * Processing GettingStartedCamera example to get the name.
+     * Processing GettingStartedCamera example to get the name. File name of
+     * the recording for REPLAY.
      * @return
      */
     public static Camera createCamera(Camera.Type type, String description, String format) {
@@ -82,6 +86,9 @@ public class CameraFactory {
             case FFMPEG:
                 camera = new CameraFFMPEG(description, format);
                 break;
+            case REPLAY:
+                camera = new CameraReplay(description);
+                break;
             case PROCESSING:
                 camera = new CameraProcessing(description);
             default:
@@ -113,7 +113,7 @@ public class CameraFlyCapture extends Camera {
 
         if (currentImage != null) {
             this.checkCamImage();
-            camImage.update(currentImage);
+            updateCamImage();
             return camImage;
         }
         // TODO: exceptions !!!
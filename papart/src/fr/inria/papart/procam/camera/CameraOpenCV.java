@@ -85,7 +85,7 @@ public class CameraOpenCV extends Camera {
 
         if (currentImage != null) {
             this.checkCamImage();
-            camImage.update(currentImage);
+            updateCamImage();
             return camImage;
         }
         // TODO: exceptions !!!
@@ -36,6 +36,7 @@ public class CameraOpenCVDepth extends Camera {
     private  OpenCV16BitFrameGrabber grabber;
     private final OpenCVFrameConverter.ToIplImage converter;
     private KinectTouchInput touchInput;
+    private final ActiveRecorder recorder = new ActiveRecorder();
     public Camera colorCamera;
     
     protected CameraOpenCVDepth(int cameraNo) {
@@ -77,19 +78,35 @@ public class CameraOpenCVDepth extends Camera {
             return;
         }
         try {
+            long grabStart = System.nanoTime();
             IplImage img = converter.convertToIplImage(grabber.grab());
+            if (touchInput != null) {
+                touchInput.frameGrabbed(grabStart);
+            }
+
+            long storeStart = System.nanoTime();
             if (img != null) {
                 this.updateCurrentImage(img);
             }
             
 //            System.out.println("Grabbing Depth Kinect2...");
             this.currentImage = img;
+            // No color camera when it is created alone by the CameraFactory.
+            IplImage colorImage = colorCamera == null ? null : colorCamera.getIplImage();
+            recorder.record(img, colorImage, grabStart);
             if (touchInput != null) {
+                touchInput.frameStored(storeStart);
+            }
+            if (touchInput != null && touchInput.isAnalysisThreaded()) {
+                touchInput.publishFrame(img, colorImage);
+            } else if (touchInput != null) {
                 touchInput.lock();
                       System.out.println("Touch input update...");
                 touchInput.update();
             
-                touchInput.getTouch2DColors(colorCamera.getIplImage());
+                if (colorImage != null) {
+                    touchInput.getTouch2DColors(colorImage);
+                }
                 touchInput.unlock();
             } else {
                 if (touchInput != null) {
@@ -107,7 +124,7 @@ public class CameraOpenCVDepth extends Camera {
 
         if (currentImage != null) {
             this.checkCamImage();
-            camImage.update(currentImage);
+            updateCamImage();
             return camImage;
         }
         // TODO: exceptions !!!
@@ -128,6 +145,15 @@ public class CameraOpenCVDepth extends Camera {
         }
     }
 
+    /**
+     * Record the depth frames and the color frames of the Kinect.
+     *
+     * @param recorder null to stop.
+     */
+    public void setRecorder(FrameRecorder recorder) {
+        this.recorder.set(recorder);
+    }
+
     public void setTouchInput(KinectTouchInput kinectTouchInput) {
         this.touchInput = kinectTouchInput;
     }
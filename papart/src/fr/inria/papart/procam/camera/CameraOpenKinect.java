@@ -92,7 +92,7 @@ public class CameraOpenKinect extends Camera implements Displayable {
     public PImage getPImage() {
         this.checkCamImage();
         if (currentImage != null) {
-            camImage.update(currentImage);
+            updateCamImage();
             return camImage;
         }
         // TODO: exceptions !!!
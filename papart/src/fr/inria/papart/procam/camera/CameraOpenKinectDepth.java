@@ -38,6 +38,7 @@ public class CameraOpenKinectDepth extends Camera {
 
     private IplImage depthImage;
     private KinectTouchInput touchInput;
+    private final ActiveRecorder recorder = new ActiveRecorder();
     private PImage camImageDepth = null;
 
     protected CameraOpenKinectDepth(CameraOpenKinect parent) {
@@ -54,10 +55,22 @@ public class CameraOpenKinectDepth extends Camera {
     @Override
     public void grab() {
         try {
+            long grabStart = System.nanoTime();
             IplImage img = parent.grabber.grabDepth();
+            if (touchInput != null) {
+                touchInput.frameGrabbed(grabStart);
+            }
 
+            long storeStart = System.nanoTime();
             this.currentImage = img;
+            frameUpdated();
+            recorder.record(img, parent.currentImage, grabStart);
             if (touchInput != null) {
+                touchInput.frameStored(storeStart);
+            }
+            if (touchInput != null && touchInput.isAnalysisThreaded()) {
+                touchInput.publishFrame(img, parent.currentImage);
+            } else if (touchInput != null) {
                 touchInput.lock();
                 touchInput.update();
                 touchInput.getTouch2DColors(parent.currentImage);
@@ -95,6 +108,15 @@ public class CameraOpenKinectDepth extends Camera {
         return touchInput;
     }
 
+    /**
+     * Record the depth frames and the color frames of the Kinect.
+     *
+     * @param recorder null to stop.
+     */
+    public void setRecorder(FrameRecorder recorder) {
+        this.recorder.set(recorder);
+    }
+
     public void setTouchInput(KinectTouchInput touchInput) {
         this.touchInput = touchInput;
     }
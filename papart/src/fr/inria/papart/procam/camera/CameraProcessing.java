@@ -19,7 +19,6 @@
  */
 package fr.inria.papart.procam.camera;
 
-import java.util.concurrent.TimeUnit;
 import org.bytedeco.javacpp.opencv_core.IplImage;
 import processing.core.PImage;
 
@@ -29,11 +28,14 @@ import processing.core.PImage;
  */
 public class CameraProcessing extends Camera {
 
+    // Time to check the closing flag when no frame arrives, in ms.
+    private static final int WAIT_TIMEOUT = 100;
+
     protected CaptureIpl captureIpl;
 
     protected CameraProcessing(String description) {
         this.cameraDescription = description;
-        this.setPixelFormat(PixelFormat.ARGB);
+        this.setPixelFormat(CaptureIpl.PIXEL_FORMAT);
     }
 
     @Override
@@ -57,8 +59,15 @@ public class CameraProcessing extends Camera {
         if (this.isClosing()) {
             return;
         }
-        while (!this.captureIpl.available()) {
-            waitForNextFrame();
+        try {
+            while (!this.captureIpl.waitAvailable(WAIT_TIMEOUT)) {
+                if (this.isClosing()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
         }
 
         captureIpl.read();
@@ -68,20 +77,15 @@ public class CameraProcessing extends Camera {
         }
     }
 
+    /**
+     * @return the capture, its pixels are updated from the last frame.
+     */
     @Override
     public PImage getPImage() {
+        this.captureIpl.updateImage();
         return this.captureIpl;
     }
 
-    private void waitForNextFrame() {
-        try {
-            // TimeUnit.MILLISECONDS.sleep((long) (1f / frameRate));
-            TimeUnit.MILLISECONDS.sleep((long) (5));
-        } catch (Exception e) {
-            System.out.println("Sleep interrupted." + e);
-        }
-    }
-
     @Override
     public void close() {
         this.setClosing();
@@ -0,0 +1,211 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import fr.inria.papart.multitouch.KinectTouchInput;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import processing.core.PImage;
+
+/**
+ * Color camera replaying a FrameRecording, with its depth camera. The frames
+ * are replayed in order, at the recorded speed or as fast as they are used.
+ *
+ * The depth camera reads the frames when it has a thread, so that the touch
+ * input analyses each of them, this camera then waits for them. Otherwise
+ * this camera reads the frames.
+ *
+ * @author Jeremy Laviole
+ */
+public class CameraReplay extends Camera {
+
+    private final String fileName;
+    private FrameRecording recording;
+    private final CameraReplayDepth depthCamera;
+    private IplImage colorImage, depthImage;
+
+    private boolean realTime = true;
+    private boolean loop = false;
+
+    // Index of the next frame, and number of frames read.
+    private int nextFrame = 0;
+    private int nbFramesRead = 0;
+    // Last frame given by grab(), when the depth camera reads them.
+    private int lastFrameGrabbed = 0;
+    private long replayStart, recordStart;
+    // System.nanoTime() at the read of the last frame.
+    private long readTime;
+
+    protected CameraReplay(String fileName) {
+        this.fileName = fileName;
+        this.setPixelFormat(PixelFormat.BGR);
+        depthCamera = new CameraReplayDepth(this);
+    }
+
+    @Override
+    public void start() {
+        try {
+            recording = new FrameRecording(fileName);
+            depthImage = recording.createDepthImage();
+            colorImage = recording.createColorImage();
+            depthCamera.start();
+            this.isConnected = true;
+        } catch (IOException e) {
+            System.err.println("Could not open the recording " + fileName + " " + e);
+        }
+    }
+
+    /**
+     * Replay at the recorded speed, or as fast as possible.
+     *
+     * @param realTime
+     */
+    public void setRealTime(boolean realTime) {
+        this.realTime = realTime;
+    }
+
+    public boolean isRealTime() {
+        return realTime;
+    }
+
+    /**
+     * Restart at the first frame after the last one.
+     *
+     * @param loop
+     */
+    public void setLoop(boolean loop) {
+        this.loop = loop;
+    }
+
+    /**
+     * @return true when the last frame is read, and the replay does not
+     * loop.
+     */
+    public synchronized boolean isFinished() {
+        return recording != null && nextFrame >= recording.getNbFrames() && !loop;
+    }
+
+    public synchronized int getNbFramesRead() {
+        return nbFramesRead;
+    }
+
+    long getReadTime() {
+        return readTime;
+    }
+
+    public FrameRecording getRecording() {
+        return recording;
+    }
+
+    @Override
+    public void grab() {
+        if (this.isClosing()) {
+            return;
+        }
+        if (depthCamera.useThread()) {
+            waitFrame();
+            return;
+        }
+        if (readFrame()) {
+            depthCamera.frameRead();
+        }
+    }
+
+    /**
+     * Read the next frame, waiting for its time in real time mode.
+     *
+     * @return false when there is no more frame.
+     */
+    boolean readFrame() {
+        if (isFinished() || recording.getNbFrames() == 0) {
+            // Nothing to replay, do not spin the grabbing threads.
+            LockSupport.parkNanos(10000000L);
+            return false;
+        }
+        if (nextFrame >= recording.getNbFrames()) {
+            nextFrame = 0;
+        }
+        if (nextFrame == 0) {
+            replayStart = System.nanoTime();
+            recordStart = recording.getGrabTime(0);
+        }
+
+        if (realTime) {
+            long frameTime = replayStart + recording.getGrabTime(nextFrame) - recordStart;
+            long wait;
+            while ((wait = frameTime - System.nanoTime()) > 0 && !isClosing()) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+
+        readTime = System.nanoTime();
+        synchronized (this) {
+            recording.read(nextFrame, depthImage, colorImage);
+            updateCurrentImage(colorImage);
+            depthCamera.setCurrentImage(depthImage);
+            nextFrame++;
+            nbFramesRead++;
+            notifyAll();
+        }
+        return true;
+    }
+
+    private synchronized void waitFrame() {
+        try {
+            while (nbFramesRead == lastFrameGrabbed && !isClosing()) {
+                wait(100);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        lastFrameGrabbed = nbFramesRead;
+    }
+
+    @Override
+    public PImage getPImage() {
+        this.checkCamImage();
+        if (currentImage != null) {
+            updateCamImage();
+            return camImage;
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        setClosing();
+        depthCamera.close();
+        if (recording != null) {
+            try {
+                recording.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    public void setTouch(KinectTouchInput touchInput) {
+        depthCamera.setTouchInput(touchInput);
+    }
+
+    public CameraReplayDepth getDepthCamera() {
+        return this.depthCamera;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import fr.inria.papart.multitouch.KinectTouchInput;
+import fr.inria.papart.procam.Utils;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import processing.core.PApplet;
+import processing.core.PImage;
+
+/**
+ * Depth frames of a CameraReplay, given to the touch input as a live Kinect
+ * does.
+ *
+ * @author Jeremy Laviole
+ */
+public class CameraReplayDepth extends Camera {
+
+    private final CameraReplay parent;
+    private KinectTouchInput touchInput;
+    private PImage camImageDepth = null;
+
+    protected CameraReplayDepth(CameraReplay parent) {
+        this.parent = parent;
+        this.setPixelFormat(PixelFormat.DEPTH_KINECT_MM);
+    }
+
+    @Override
+    public void start() {
+        this.isConnected = true;
+    }
+
+    /**
+     * With a thread, the depth camera reads the frames of the recording.
+     */
+    @Override
+    public void grab() {
+        if (this.isClosing()) {
+            return;
+        }
+        if (parent.readFrame()) {
+            frameRead();
+        }
+    }
+
+    void setCurrentImage(IplImage depthImage) {
+        this.currentImage = depthImage;
+        frameUpdated();
+    }
+
+    /**
+     * Analysis of the frame just read.
+     */
+    void frameRead() {
+        if (touchInput == null) {
+            return;
+        }
+        touchInput.frameGrabbed(parent.getReadTime());
+        if (touchInput.isAnalysisThreaded()) {
+            touchInput.publishFrame(currentImage, parent.getIplImage());
+        } else {
+            touchInput.lock();
+            touchInput.update(currentImage, parent.getIplImage());
+            touchInput.getTouch2DColors(parent.getIplImage());
+            touchInput.unlock();
+        }
+    }
+
+    @Override
+    public PImage getPImage() {
+        if (camImageDepth == null) {
+            camImageDepth = parent.parent.createImage(width, height, PApplet.ALPHA);
+        }
+        if (currentImage != null) {
+            Utils.IplImageToPImageKinect(currentImage, false, camImageDepth);
+        }
+        return camImageDepth;
+    }
+
+    @Override
+    public void close() {
+        setClosing();
+    }
+
+    public KinectTouchInput getTouchInput() {
+        return touchInput;
+    }
+
+    public void setTouchInput(KinectTouchInput touchInput) {
+        this.touchInput = touchInput;
+    }
+}
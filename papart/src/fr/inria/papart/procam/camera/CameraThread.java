@@ -22,181 +22,206 @@ package fr.inria.papart.procam.camera;
 import fr.inria.papart.tracking.MarkerBoard;
 import fr.inria.papart.tracking.DetectedMarker;
 import java.util.ArrayList;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.FutureTask;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import org.bytedeco.javacpp.opencv_core.IplImage;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import org.bytedeco.javacpp.ARToolKitPlus;
-import static org.bytedeco.javacpp.ARToolKitPlus.MARKER_ID_BCH;
-import static org.bytedeco.javacpp.ARToolKitPlus.PIXEL_FORMAT_LUM;
-import static org.bytedeco.javacpp.ARToolKitPlus.UNDIST_NONE;
 import static org.bytedeco.javacpp.opencv_core.IPL_DEPTH_8U;
 import static org.bytedeco.javacpp.opencv_imgproc.CV_BGR2GRAY;
 import static org.bytedeco.javacpp.opencv_imgproc.cvCvtColor;
 
 /**
+ * Grabbing thread of a camera. The frames are published in the FrameRing of
+ * the camera, the marker tracking runs in its own thread on the last frame:
+ * the grab never waits for the tracking. The boards are updated in parallel
+ * by a MarkerBoardScheduler.
  *
  * @author jeremylaviole
  */
 class CameraThread extends Thread {
 
+    // Time to check the stop flag when no frame arrives, in ms.
+    private static final int WAIT_TIMEOUT = 100;
+
     private final Camera camera;
     private boolean compute;
-    private IplImage image, grayImage;
-    private DetectedMarker[] detectedMarkers;
+    private TrackingThread trackingThread = null;
+    private final MarkerBoardScheduler scheduler = new MarkerBoardScheduler();
+    // Gray images of the frames no board uses.
+    private final ConcurrentLinkedQueue<IplImage> grayImages = new ConcurrentLinkedQueue<>();
 
-    public boolean stop;
+    public volatile boolean stop;
 
     public CameraThread(Camera camera) {
         this.camera = camera;
         stop = false;
-
-        // Thread version... No bonus whatsoever for now.
-        initThreadPool();
-    }
-
-    private final int nbThreads = 4;
-    private ExecutorService threadPool = null;
-
-    private void tryInitThreadPool() {
-        if (threadPool == null) {
-            this.initThreadPool();
-        }
-    }
-
-    private void initThreadPool() {
-        threadPool = Executors.newFixedThreadPool(nbThreads);
-//        threadPool = Executors.newCachedThreadPool();
     }
 
     @Override
     public void run() {
         while (!stop) {
             camera.grab();
-            image = camera.getIplImage();
-            // TODO: check if img can be null...        
-            if (image != null && compute && !camera.getTrackedSheets().isEmpty()) {
-                this.compute();
-            }
-
         }
     }
 
-    public void compute() {
-        try {
-            camera.sheetsSemaphore.acquire();
-
-            tryComputeGrayScale();
-            tryToFindMarkers();
+    /**
+     * Tracking of the last frame of the ring, the frames grabbed during the
+     * tracking are dropped.
+     */
+    private class TrackingThread extends Thread {
 
-            // updateSequential();
-            updateParallel();
+        private final FrameRing ring;
+        private final FrameRing.Consumer frames;
+        private volatile boolean stopTracking = false;
 
-            camera.sheetsSemaphore.release();
-        } catch (InterruptedException ex) {
-            Logger.getLogger(CameraThread.class.getName()).log(Level.SEVERE, null, ex);
+        public TrackingThread(FrameRing ring) {
+            super("Marker tracking");
+            this.ring = ring;
+            this.frames = ring.createConsumer(FrameRing.Policy.LATEST);
+            setDaemon(true);
         }
-    }
 
-    private void tryComputeGrayScale() {
-        for (MarkerBoard sheet : camera.getTrackedSheets()) {
-            if (sheet.useGrayscaleImages()) {
-                if (grayImage == null) {
-                    initGrayScale();
+        @Override
+        public void run() {
+            try {
+                while (!stopTracking) {
+                    FrameRing.Frame frame = frames.take(WAIT_TIMEOUT);
+                    if (frame == null) {
+                        continue;
+                    }
+                    if (!camera.getTrackedSheets().isEmpty()) {
+                        compute(ring, frame);
+                    }
                 }
-                computeGrayScaleImage();
-                break;
+            } catch (InterruptedException ex) {
+                // Stopped.
+            } finally {
+                ring.removeConsumer(frames);
             }
         }
-    }
 
-    private void tryToFindMarkers() {
-        for (MarkerBoard sheet : camera.getTrackedSheets()) {
-            if (sheet.useCustomARToolkitBoard()) {
-                if (tracker == null) {
-                    initMarkerTracking();
-                }
-                this.detectedMarkers = computeMarkerLocations();
-                camera.setMarkers(this.detectedMarkers);
-                break;
-            }
+        public void stopTracking() {
+            this.stopTracking = true;
+            interrupt();
         }
     }
 
-    private void initGrayScale() {
-        int width = image.width();
-        int height = image.height();
-        grayImage = IplImage.create(width, height, IPL_DEPTH_8U, 1);
-    }
-
-    private ARToolKitPlus.MultiTracker tracker = null;
-
-    private void initMarkerTracking() {
-        int cameraWidth = camera.width();
-        int cameraHeight = camera.height();
-        tracker = DetectedMarker.createDetector(cameraWidth, cameraHeight);
+    private void startTracking() {
+        FrameRing ring = camera.getFrameRing();
+        if (trackingThread == null && ring != null) {
+            trackingThread = new TrackingThread(ring);
+            trackingThread.start();
+        }
     }
 
-    private void computeGrayScaleImage() {
-        // TODO BRG2Gray or RGB 2 gray ?
-        cvCvtColor(image, grayImage, CV_BGR2GRAY);
+    private void stopTracking() {
+        if (trackingThread != null) {
+            trackingThread.stopTracking();
+            trackingThread = null;
+        }
     }
 
-    private DetectedMarker[] computeMarkerLocations() {
-        return DetectedMarker.detect(tracker, grayImage);
-    }
+    private void compute(FrameRing ring, FrameRing.Frame frame) throws InterruptedException {
+        List<MarkerBoard> boards;
+        camera.sheetsSemaphore.acquire();
+        try {
+            boards = new ArrayList<>(camera.getTrackedSheets());
+        } finally {
+            camera.sheetsSemaphore.release();
+        }
 
-    protected void updateSequential() {
-        for (MarkerBoard markerBoard : camera.getTrackedSheets()) {
-            updateBoardLocation(markerBoard);
+        TrackedFrame trackedFrame = new TrackedFrame(ring, frame);
+        trackedFrame.computeGrayScale(boards);
+        trackedFrame.findMarkers(boards);
+        // The consumer holds the frame until this update returns.
+        scheduler.update(boards, trackedFrame, !trackedFrame.retained);
+    }
+
+    /**
+     * Images and markers of a frame, kept until its last board is updated.
+     */
+    private class TrackedFrame implements MarkerBoardScheduler.FrameUpdate {
+
+        private final FrameRing ring;
+        private final FrameRing.Frame frame;
+        private final IplImage image;
+        private IplImage grayImage = null;
+        private DetectedMarker[] detectedMarkers = null;
+        // Held after the tracking thread takes the next frame, when the
+        // running boards are skipped and the ring has a slot left.
+        private final boolean retained;
+
+        public TrackedFrame(FrameRing ring, FrameRing.Frame frame) {
+            this.ring = ring;
+            this.frame = frame;
+            this.image = frame.getImage();
+            this.retained = scheduler.isSkipRunningBoards() && ring.tryRetain(frame);
         }
-    }
 
-    protected void updateBoardLocation(MarkerBoard markerBoard) {
-        if (markerBoard.useGrayscaleImages()) {
-            markerBoard.updateLocation(camera, grayImage, this.detectedMarkers);
-        } else {
-            markerBoard.updateLocation(camera, image, null);
+        private void computeGrayScale(List<MarkerBoard> boards) {
+            for (MarkerBoard sheet : boards) {
+                if (sheet.useGrayscaleImages()) {
+                    grayImage = getGrayImage(image);
+                    // TODO BRG2Gray or RGB 2 gray ?
+                    cvCvtColor(image, grayImage, CV_BGR2GRAY);
+                    break;
+                }
+            }
         }
-    }
 
-    protected void updateParallel() {
-        tryInitThreadPool();
+        private void findMarkers(List<MarkerBoard> boards) {
+            for (MarkerBoard sheet : boards) {
+                if (sheet.useCustomARToolkitBoard()) {
+                    if (tracker == null) {
+                        initMarkerTracking();
+                    }
+                    this.detectedMarkers = DetectedMarker.detect(tracker, grayImage);
+                    camera.setMarkers(this.detectedMarkers);
+                    break;
+                }
+            }
+        }
 
-        ArrayList<FutureTask<ARTrackingTask>> tasks = new ArrayList<>();
-        for (MarkerBoard sheet : camera.getTrackedSheets()) {
-            ARTrackingTask depthPixelTask = new ARTrackingTask(sheet);
-            FutureTask<ARTrackingTask> task = new FutureTask<ARTrackingTask>(depthPixelTask);
-            threadPool.submit(task);
-            tasks.add(task);
+        @Override
+        public void update(MarkerBoard markerBoard) {
+            if (markerBoard.useGrayscaleImages()) {
+                markerBoard.updateLocation(camera, grayImage, this.detectedMarkers);
+            } else {
+                markerBoard.updateLocation(camera, image, null);
+            }
         }
-//        try {
-//            for (FutureTask<DepthPixelTask> task : tasks) {
-//                task.get();
-//            }
-//        } catch (ExecutionException e) {
-//        } catch (InterruptedException e) {
-//        }
 
+        @Override
+        public void done() {
+            if (grayImage != null) {
+                grayImages.add(grayImage);
+            }
+            if (retained) {
+                ring.release(frame);
+            }
+        }
     }
 
-    class ARTrackingTask implements Callable {
-
-        private final MarkerBoard markerBoard;
-
-        public ARTrackingTask(MarkerBoard markerBoard) {
-            this.markerBoard = markerBoard;
+    private IplImage getGrayImage(IplImage image) {
+        IplImage grayImage = grayImages.poll();
+        if (grayImage == null
+                || grayImage.width() != image.width()
+                || grayImage.height() != image.height()) {
+            grayImage = IplImage.create(image.width(), image.height(), IPL_DEPTH_8U, 1);
         }
+        return grayImage;
+    }
 
-        @Override
-        public Object call() {
-            updateBoardLocation(markerBoard);
-            return null;
-        }
+    private ARToolKitPlus.MultiTracker tracker = null;
 
+    private void initMarkerTracking() {
+        int cameraWidth = camera.width();
+        int cameraHeight = camera.height();
+        tracker = DetectedMarker.createDetector(cameraWidth, cameraHeight);
+    }
+
+    public MarkerBoardScheduler getScheduler() {
+        return scheduler;
     }
 
     public boolean isCompute() {
@@ -206,13 +231,17 @@ class CameraThread extends Thread {
     public void setCompute(boolean compute) {
         this.compute = compute;
 
-        if (compute == false && this.threadPool != null) {
-            this.threadPool.shutdown();
-            this.threadPool = null;
+        if (compute) {
+            startTracking();
+        } else {
+            stopTracking();
+            scheduler.shutdown();
         }
     }
 
     public void stopThread() {
         stop = true;
+        stopTracking();
+        scheduler.shutdown();
     }
 }
@@ -19,9 +19,15 @@
  */
 package fr.inria.papart.procam.camera;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+import org.bytedeco.javacpp.BytePointer;
 import org.bytedeco.javacpp.opencv_core;
 import org.bytedeco.javacpp.opencv_core.IplImage;
-import java.nio.ByteBuffer;
+import static org.bytedeco.javacpp.opencv_core.cvSetData;
+import org.gstreamer.Buffer;
 import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.video.Capture;
@@ -30,13 +36,32 @@ import processing.video.Capture;
  *
  * @author jeremylaviole
  * 
- * The same as Capture, except that the read method also 
- * copies the image into an IplImage. 
+ * The same as Capture, except that the read method also gives the image as
+ * an IplImage. The pixels are updated from it only when updateImage() is
+ * called. With setZeroCopy(true) the GStreamer buffer is wrapped without
+ * copy when its rows have the size of the IplImage rows, it is kept until
+ * the next read().
  * 
  */
 public class CaptureIpl extends Capture implements PConstants {
 
+    /**
+     * Layout of the IplImage with both GStreamer sinks: one byte of alpha,
+     * then red, green and blue.
+     */
+    public static final Camera.PixelFormat PIXEL_FORMAT = Camera.PixelFormat.ARGB;
+
     protected IplImage iplImage;
+    // Image given when the GStreamer buffer is wrapped.
+    private IplImage header = null;
+    private BytePointer headerData = null;
+    // GStreamer buffer of the last frame read, wrapped by the header.
+    private Buffer heldBuffer = null;
+    private IplImage copy;
+
+    private boolean zeroCopy = false;
+    private boolean pixelsOutdated = false;
+    private final ImageConverter converter = new ImageConverter();
 
     public CaptureIpl(PApplet parent, int requestWidth, int requestHeight) {
         super(parent, requestWidth, requestHeight);
@@ -53,7 +78,39 @@ public class CaptureIpl extends Capture implements PConstants {
 
     private void init() {
 
-        iplImage = IplImage.create(width, height, opencv_core.IPL_DEPTH_8U, 4);
+        copy = IplImage.create(width, height, opencv_core.IPL_DEPTH_8U, 4);
+        iplImage = copy;
+    }
+
+    @Override
+    protected synchronized void invokeEvent(int w, int h, IntBuffer buffer) {
+        super.invokeEvent(w, h, buffer);
+        notifyAll();
+    }
+
+    @Override
+    protected synchronized void invokeEvent(int w, int h, Buffer buffer) {
+        super.invokeEvent(w, h, buffer);
+        notifyAll();
+    }
+
+    /**
+     * Wait for a new frame, instead of polling available().
+     *
+     * @param timeout in milliseconds.
+     * @return true when a frame is available.
+     * @throws InterruptedException
+     */
+    public synchronized boolean waitAvailable(int timeout) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (!available) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
     }
 
     @Override
@@ -64,22 +121,9 @@ public class CaptureIpl extends Capture implements PConstants {
             frameRate = getSourceFrameRate();
         }
 
-        // Try catch to allow proper exit. 
+        // Try catch to allow proper exit. 
         try {
-            // TODO: check the sinkcopy methods to do this.
-            ByteBuffer byteBuffer = natBuffer.getByteBuffer();
-            ByteBuffer imageBuffer = iplImage.getByteBuffer();
-            ByteBuffer incomingBuffer = byteBuffer;
-            imageBuffer.put(incomingBuffer);
-
-            byteBuffer.rewind();
-            imageBuffer.rewind();
-
-            available = false;
-            newFrame = true;
-        
-            // Not working...
-            if (useBufferSink) { // The native buffer from gstreamer is copied to the buffer sink.
+            if (useBufferSink) { // The native buffer from gstreamer is kept for the IplImage.
                 if (natBuffer == null) {
                     System.out.println("No nat Buffer.");
                     return;
@@ -90,26 +134,8 @@ public class CaptureIpl extends Capture implements PConstants {
                     firstFrame = false;
                 }
 
-                if (bufferSink == null) {
-                    Object cache = parent.g.getCache(this);
-                    if (cache == null) {
-                        System.out.println("No cache.");
-                        return;
-                    }
-                    setBufferSink(cache);
-                    getSinkMethods();
-                }
-
-                // ByteBuffer byteBuffer = natBuffer.getByteBuffer();
-
-                try {
-                    sinkCopyMethod.invoke(bufferSink,
-                            new Object[]{natBuffer, byteBuffer, bufWidth, bufHeight});
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-
-
+                setBuffer(natBuffer);
+                // Not disposed by Capture, it is ours now.
                 natBuffer = null;
             } else { // The pixels just read from gstreamer are copied to the pixels array.
                 
@@ -127,21 +153,95 @@ public class CaptureIpl extends Capture implements PConstants {
                 pixels = copyPixels;
                 updatePixels();
                 copyPixels = temp;
+
+                // The 0xAARRGGBB pixels are written as A, R, G, B bytes.
+                IntBuffer imageBuffer = copy.getByteBuffer().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+                imageBuffer.put(pixels, 0, Math.min(pixels.length, imageBuffer.capacity()));
+                iplImage = copy;
             }
 
+            available = false;
+            newFrame = true;
+
         } catch (Exception e) {
             System.out.println("Error " + e);
             e.printStackTrace();
         }
 
     }
+
+    private void setBuffer(Buffer buffer) {
+        ByteBuffer byteBuffer = buffer.getByteBuffer();
+        int widthStep = bufWidth * 4;
+
+        if (zeroCopy && byteBuffer.isDirect()
+                && byteBuffer.capacity() == widthStep * bufHeight) {
+            if (header == null
+                    || header.width() != bufWidth
+                    || header.height() != bufHeight) {
+                header = IplImage.createHeader(bufWidth, bufHeight, opencv_core.IPL_DEPTH_8U, 4);
+            }
+            headerData = new BytePointer(byteBuffer);
+            cvSetData(header, headerData, widthStep);
+            iplImage = header;
+        } else {
+            ByteBuffer imageBuffer = copy.getByteBuffer();
+            byteBuffer.limit(Math.min(byteBuffer.capacity(), imageBuffer.capacity()));
+            imageBuffer.put(byteBuffer);
+            byteBuffer.rewind();
+            imageBuffer.rewind();
+            iplImage = copy;
+        }
+
+        // The previous frame is no longer used.
+        if (heldBuffer != null) {
+            heldBuffer.dispose();
+        }
+        heldBuffer = buffer;
+        pixelsOutdated = true;
+    }
+
+    /**
+     * Update the pixels with the last frame read, when they are not up to
+     * date.
+     */
+    public synchronized void updateImage() {
+        if (!pixelsOutdated || pixels == null) {
+            return;
+        }
+        converter.toPixels(iplImage, PIXEL_FORMAT, pixels);
+        updatePixels();
+        pixelsOutdated = false;
+    }
+
+    /**
+     * @param zeroCopy true to wrap the GStreamer buffer instead of copying
+     * each frame: the IplImage is disposed at the next read(), it must not
+     * be kept (getIplImage, Camera.getIplImage). Only for cameras read by the
+     * FrameRing consumers, which copy the frames. False by default.
+     */
+    public synchronized void setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
     
     @Override
     public void stop(){
         super.stop();
-        iplImage.release();
+        synchronized (this) {
+            if (heldBuffer != null) {
+                heldBuffer.dispose();
+                heldBuffer = null;
+            }
+            iplImage = copy;
+            copy.release();
+            notifyAll();
+        }
     }
 
+    /**
+     * @return the last frame read. When it wraps the GStreamer buffer, it is
+     * valid until the next read().
+     */
     public IplImage getIplImage() {
         return this.iplImage;
     }
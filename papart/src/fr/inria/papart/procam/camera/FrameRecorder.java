@@ -0,0 +1,206 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import static fr.inria.papart.procam.camera.FrameRecording.*;
+import fr.inria.papart.depthcam.devices.KinectDevice;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.Deflater;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+
+/**
+ * Records the depth and color frames of a Kinect, with their grab time, in
+ * a file read by FrameRecording and replayed by CameraReplay. The frames can
+ * be compressed (deflate, fastest level): the depth frames are about 3 times
+ * smaller, recording costs a few ms per frame on the grabbing thread.
+ *
+ * @author Jeremy Laviole
+ */
+public class FrameRecorder {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final KinectDevice.Type deviceType;
+    private final boolean compress;
+
+    private boolean headerWritten = false;
+    private boolean closed = false;
+    private boolean withColor;
+    private int nbFrames = 0;
+
+    private final ByteBuffer frameHeader = ByteBuffer.allocate(CHUNK_HEADER_SIZE + FRAME_HEADER_SIZE);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] rawBuffer = new byte[0];
+    private byte[] depthCompressed = new byte[0];
+    private byte[] colorCompressed = new byte[0];
+
+    /**
+     * @param fileName file created or replaced.
+     * @param deviceType type of Kinect, to decode the depth frames.
+     * @param compress compress each image.
+     * @throws IOException
+     */
+    public FrameRecorder(String fileName, KinectDevice.Type deviceType,
+            boolean compress) throws IOException {
+        this.file = new RandomAccessFile(fileName, "rw");
+        this.file.setLength(0);
+        this.channel = file.getChannel();
+        this.deviceType = deviceType;
+        this.compress = compress;
+    }
+
+    /**
+     * Add a frame. The header of the file is written with the first frame:
+     * the size and format of the images must not change during the
+     * recording.
+     *
+     * @param depthImage
+     * @param colorImage can be null, recorded only if the first one was not.
+     * @param grabTime System.nanoTime() at the grab of the frame.
+     * @throws IOException
+     */
+    public synchronized void record(IplImage depthImage, IplImage colorImage,
+            long grabTime) throws IOException {
+        if (closed) {
+            return;
+        }
+        if (!headerWritten) {
+            writeHeader(depthImage, colorImage);
+        }
+        if (!withColor) {
+            colorImage = null;
+        }
+
+        int flags = 0;
+        int depthSize = depthImage.imageSize();
+        int depthStored = depthSize;
+        int colorSize = colorImage == null ? 0 : colorImage.imageSize();
+        int colorStored = colorSize;
+
+        if (compress) {
+            depthCompressed = compress(depthImage, depthCompressed);
+            depthStored = deflater.getTotalOut();
+            flags |= DEPTH_COMPRESSED;
+            if (colorImage != null) {
+                colorCompressed = compress(colorImage, colorCompressed);
+                colorStored = deflater.getTotalOut();
+                flags |= COLOR_COMPRESSED;
+            }
+        }
+
+        frameHeader.clear();
+        frameHeader.putInt(FRAME_TAG);
+        frameHeader.putInt(FRAME_HEADER_SIZE + depthStored + colorStored);
+        frameHeader.putLong(grabTime);
+        frameHeader.putInt(flags);
+        frameHeader.putInt(depthSize);
+        frameHeader.putInt(depthStored);
+        frameHeader.putInt(colorSize);
+        frameHeader.putInt(colorStored);
+        frameHeader.flip();
+        writeFully(frameHeader);
+
+        if (compress) {
+            writeFully(ByteBuffer.wrap(depthCompressed, 0, depthStored));
+            if (colorImage != null) {
+                writeFully(ByteBuffer.wrap(colorCompressed, 0, colorStored));
+            }
+        } else {
+            writeImage(depthImage);
+            if (colorImage != null) {
+                writeImage(colorImage);
+            }
+        }
+        nbFrames++;
+    }
+
+    private void writeHeader(IplImage depthImage, IplImage colorImage) throws IOException {
+        withColor = colorImage != null;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(deviceType.ordinal());
+        header.putInt(depthImage.width());
+        header.putInt(depthImage.height());
+        header.putInt(depthImage.depth());
+        header.putInt(depthImage.nChannels());
+        header.putInt(withColor ? colorImage.width() : 0);
+        header.putInt(withColor ? colorImage.height() : 0);
+        header.putInt(withColor ? colorImage.depth() : 0);
+        header.putInt(withColor ? colorImage.nChannels() : 0);
+        header.position(0);
+        writeFully(header);
+        headerWritten = true;
+    }
+
+    /**
+     * @return the compressed image in out, or in a new array if out is too
+     * small. The size is deflater.getTotalOut().
+     */
+    private byte[] compress(IplImage image, byte[] out) {
+        int size = image.imageSize();
+        if (rawBuffer.length < size) {
+            rawBuffer = new byte[size];
+        }
+        ByteBuffer src = image.getByteBuffer();
+        src.get(rawBuffer, 0, size);
+
+        deflater.reset();
+        deflater.setInput(rawBuffer, 0, size);
+        deflater.finish();
+        // Worst case of deflate: a few bytes per 16 kB block.
+        int bound = size + (size >> 12) + 64;
+        if (out.length < bound) {
+            out = new byte[bound];
+        }
+        while (!deflater.finished()) {
+            deflater.deflate(out, deflater.getTotalOut(), out.length - deflater.getTotalOut());
+        }
+        return out;
+    }
+
+    private void writeImage(IplImage image) throws IOException {
+        ByteBuffer src = image.getByteBuffer();
+        src.limit(image.imageSize());
+        writeFully(src);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public int getNbFrames() {
+        return nbFrames;
+    }
+
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        deflater.end();
+        file.close();
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import fr.inria.papart.depthcam.devices.KinectDevice;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+
+/**
+ * Depth and color frames recorded by a FrameRecorder, read from a memory
+ * mapped file.
+ *
+ * The file is a header followed by chunks: a tag, the size of the content
+ * and the content. The FRAME chunks hold the grab time, then the depth and
+ * the color image, each one compressed or not. The chunks of unknown tags
+ * are skipped, an incomplete last chunk (interrupted recording) is ignored.
+ *
+ * @author Jeremy Laviole
+ */
+public class FrameRecording {
+
+    public static final int MAGIC = 0x50415254; // "PART"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+
+    public static final int CHUNK_HEADER_SIZE = 8;
+    public static final int FRAME_TAG = 0x4652414D; // "FRAM"
+    // Grab time, flags, depth raw and stored sizes, color raw and stored sizes.
+    public static final int FRAME_HEADER_SIZE = 8 + 4 * 5;
+
+    public static final int DEPTH_COMPRESSED = 1;
+    public static final int COLOR_COMPRESSED = 2;
+
+    // Mapped segments are split between chunks.
+    private static final long MAX_SEGMENT_SIZE = 1 << 30;
+
+    private final RandomAccessFile file;
+    private final ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+
+    private KinectDevice.Type deviceType;
+    private int depthWidth, depthHeight, depthIplDepth, depthChannels;
+    private int colorWidth, colorHeight, colorIplDepth, colorChannels;
+
+    // Index of the frames.
+    private int nbFrames = 0;
+    private int[] frameSegments = new int[256];
+    private int[] frameOffsets = new int[256];
+    private long[] grabTimes = new long[256];
+
+    private final Inflater inflater = new Inflater();
+    private byte[] compressedBuffer = new byte[0];
+    private byte[] rawBuffer = new byte[0];
+
+    /**
+     * @param fileName recording of a FrameRecorder.
+     * @throws IOException if the file is not a recording.
+     */
+    public FrameRecording(String fileName) throws IOException {
+        file = new RandomAccessFile(fileName, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            readHeader(channel);
+            index(channel);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private void readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.read(header, 0) != HEADER_SIZE) {
+            throw new IOException("Not a frame recording, the header is incomplete.");
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a frame recording.");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported frame recording version " + version);
+        }
+        deviceType = KinectDevice.Type.values()[header.getInt()];
+        depthWidth = header.getInt();
+        depthHeight = header.getInt();
+        depthIplDepth = header.getInt();
+        depthChannels = header.getInt();
+        colorWidth = header.getInt();
+        colorHeight = header.getInt();
+        colorIplDepth = header.getInt();
+        colorChannels = header.getInt();
+    }
+
+    private void index(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_SIZE + 8);
+
+        long segmentStart = HEADER_SIZE;
+        long position = HEADER_SIZE;
+        while (position + CHUNK_HEADER_SIZE <= fileSize) {
+            chunkHeader.clear();
+            channel.read(chunkHeader, position);
+            chunkHeader.flip();
+            int tag = chunkHeader.getInt();
+            int size = chunkHeader.getInt();
+            long chunkEnd = position + CHUNK_HEADER_SIZE + size;
+            if (size < 0 || chunkEnd > fileSize) {
+                break;
+            }
+
+            if (chunkEnd - segmentStart > MAX_SEGMENT_SIZE) {
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, position - segmentStart));
+                segmentStart = position;
+            }
+
+            if (tag == FRAME_TAG && size >= FRAME_HEADER_SIZE) {
+                addFrame(segments.size(), (int) (position - segmentStart), chunkHeader.getLong());
+            }
+            position = chunkEnd;
+        }
+        segments.add(channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, position - segmentStart));
+    }
+
+    private void addFrame(int segment, int offset, long grabTime) {
+        if (nbFrames == grabTimes.length) {
+            int size = nbFrames * 2;
+            frameSegments = Arrays.copyOf(frameSegments, size);
+            frameOffsets = Arrays.copyOf(frameOffsets, size);
+            grabTimes = Arrays.copyOf(grabTimes, size);
+        }
+        frameSegments[nbFrames] = segment;
+        frameOffsets[nbFrames] = offset;
+        grabTimes[nbFrames] = grabTime;
+        nbFrames++;
+    }
+
+    public int getNbFrames() {
+        return nbFrames;
+    }
+
+    /**
+     * @param frame
+     * @return System.nanoTime() at the grab of the frame, during the
+     * recording.
+     */
+    public long getGrabTime(int frame) {
+        return grabTimes[frame];
+    }
+
+    /**
+     * @return duration between the first and the last frame, in ns.
+     */
+    public long getDuration() {
+        return nbFrames == 0 ? 0 : grabTimes[nbFrames - 1] - grabTimes[0];
+    }
+
+    public KinectDevice.Type getDeviceType() {
+        return deviceType;
+    }
+
+    public int getDepthWidth() {
+        return depthWidth;
+    }
+
+    public int getDepthHeight() {
+        return depthHeight;
+    }
+
+    public int getColorWidth() {
+        return colorWidth;
+    }
+
+    public int getColorHeight() {
+        return colorHeight;
+    }
+
+    public boolean hasColor() {
+        return colorChannels != 0;
+    }
+
+    /**
+     * @return an image for the depth frames.
+     */
+    public IplImage createDepthImage() {
+        return IplImage.create(depthWidth, depthHeight, depthIplDepth, depthChannels);
+    }
+
+    /**
+     * @return an image for the color frames, null if there is no color.
+     */
+    public IplImage createColorImage() {
+        if (!hasColor()) {
+            return null;
+        }
+        return IplImage.create(colorWidth, colorHeight, colorIplDepth, colorChannels);
+    }
+
+    /**
+     * Read the images of a frame. Not thread safe.
+     *
+     * @param frame
+     * @param depthImage from createDepthImage().
+     * @param colorImage from createColorImage(), can be null.
+     */
+    public void read(int frame, IplImage depthImage, IplImage colorImage) {
+        ByteBuffer chunk = segments.get(frameSegments[frame]).duplicate();
+        chunk.position(frameOffsets[frame] + CHUNK_HEADER_SIZE + 8);
+
+        int flags = chunk.getInt();
+        int depthSize = chunk.getInt();
+        int depthStored = chunk.getInt();
+        int colorSize = chunk.getInt();
+        int colorStored = chunk.getInt();
+
+        readImage(chunk, depthImage, depthSize, depthStored,
+                (flags & DEPTH_COMPRESSED) != 0);
+        if (colorImage != null && colorSize > 0) {
+            readImage(chunk, colorImage, colorSize, colorStored,
+                    (flags & COLOR_COMPRESSED) != 0);
+        }
+    }
+
+    private void readImage(ByteBuffer chunk, IplImage image,
+            int size, int stored, boolean compressed) {
+        ByteBuffer dst = image.getByteBuffer();
+        if (size != image.imageSize()) {
+            throw new IllegalArgumentException("The image does not match the recording: "
+                    + image.imageSize() + " bytes instead of " + size);
+        }
+        ByteBuffer src = chunk.slice();
+        src.limit(stored);
+        chunk.position(chunk.position() + stored);
+
+        if (!compressed) {
+            dst.put(src);
+            return;
+        }
+
+        if (compressedBuffer.length < stored) {
+            compressedBuffer = new byte[stored];
+        }
+        if (rawBuffer.length < size) {
+            rawBuffer = new byte[size];
+        }
+        src.get(compressedBuffer, 0, stored);
+        inflater.reset();
+        inflater.setInput(compressedBuffer, 0, stored);
+        try {
+            int length = inflater.inflate(rawBuffer, 0, size);
+            if (length != size) {
+                throw new IllegalStateException("Incomplete compressed frame.");
+            }
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Corrupted compressed frame.", ex);
+        }
+        dst.put(rawBuffer, 0, size);
+    }
+
+    public void close() throws IOException {
+        inflater.end();
+        file.close();
+    }
+}
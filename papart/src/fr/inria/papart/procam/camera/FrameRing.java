@@ -0,0 +1,336 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import fr.inria.papart.procam.Utils;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import static org.bytedeco.javacpp.opencv_core.cvCopy;
+
+/**
+ * Ring of pre-allocated frames between the grabbing thread of a camera and
+ * its consumers (tracking, display...). The grabbing thread never waits: it
+ * copies each frame in a slot that no consumer holds, the oldest one. A
+ * consumer holds one frame at a time, this frame is not overwritten until
+ * it takes the next one or releases it.
+ *
+ * The frames are copied only when there is at least one consumer.
+ *
+ * @author Jeremy Laviole
+ */
+public class FrameRing {
+
+    public static final int DEFAULT_SIZE = 4;
+
+    /**
+     * Frames given to a consumer.
+     */
+    public enum Policy {
+        /**
+         * Only the last frame, the ones grabbed in between are dropped.
+         */
+        LATEST,
+        /**
+         * All the frames still in the ring, in order.
+         */
+        EVERY_FRAME,
+        /**
+         * The frames among the N last ones, in order.
+         */
+        WINDOW
+    }
+
+    public static class Frame {
+
+        private IplImage image = null;
+        private int id = -1;
+        private long timestamp = 0;
+        private int nbHolders = 0;
+        private boolean writing = false;
+
+        /**
+         * @return the image, do not modify it.
+         */
+        public IplImage getImage() {
+            return image;
+        }
+
+        /**
+         * @return the number of the frame, see Camera.getFrameId().
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return System.nanoTime() at the publication of the frame.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    public class Consumer {
+
+        private final int window;
+        private Frame frame = null;
+        private int lastId = -1;
+        private int nbDropped = 0;
+
+        private Consumer(int window) {
+            this.window = window;
+        }
+
+        /**
+         * Take the next frame, the previous one is released.
+         *
+         * @return the frame, or null when there is no new frame.
+         */
+        public Frame poll() {
+            synchronized (FrameRing.this) {
+                return takeNext();
+            }
+        }
+
+        /**
+         * Take the next frame, waiting for it when there is none. The previous
+         * one is released.
+         *
+         * @param timeout in milliseconds.
+         * @return the frame, or null if there is no new frame after the timeout.
+         * @throws InterruptedException
+         */
+        public Frame take(int timeout) throws InterruptedException {
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            synchronized (FrameRing.this) {
+                Frame next = takeNext();
+                while (next == null) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    FrameRing.this.wait(remaining);
+                    next = takeNext();
+                }
+                return next;
+            }
+        }
+
+        private Frame takeNext() {
+            if (lastPublished == null || lastPublished.id == lastId) {
+                return null;
+            }
+            Frame next = lastPublished;
+            if (window > 1) {
+                // Oldest frame after the last one taken, in the window.
+                int first = Math.max(lastId + 1, lastPublished.id - window + 1);
+                for (Frame f : frames) {
+                    if (!f.writing && f.id >= first && f.id < next.id) {
+                        next = f;
+                    }
+                }
+            }
+            if (lastId >= 0) {
+                nbDropped += next.id - lastId - 1;
+            }
+            release();
+            next.nbHolders++;
+            frame = next;
+            lastId = next.id;
+            return next;
+        }
+
+        /**
+         * Release the frame held, it can be overwritten.
+         */
+        public void release() {
+            synchronized (FrameRing.this) {
+                if (frame != null) {
+                    frame.nbHolders--;
+                    frame = null;
+                }
+            }
+        }
+
+        /**
+         * @return the number of frames this consumer did not get.
+         */
+        public int getNbDroppedFrames() {
+            return nbDropped;
+        }
+    }
+
+    private final Frame[] frames;
+    private final ArrayList<Consumer> consumers = new ArrayList<>();
+    private Frame lastPublished = null;
+    private int nbDropped = 0;
+    private int nbRetained = 0;
+
+    /**
+     * @param size number of frames, at least the number of consumers plus
+     * two: the last frame published is not overwritten, and the grabbing
+     * thread needs one to write. Add the number of frames retained.
+     */
+    public FrameRing(int size) {
+        if (size < 2) {
+            throw new IllegalArgumentException("FrameRing: at least 2 frames are required.");
+        }
+        frames = new Frame[size];
+        for (int i = 0; i < size; i++) {
+            frames[i] = new Frame();
+        }
+    }
+
+    public FrameRing() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param policy LATEST or EVERY_FRAME.
+     * @return a new consumer.
+     */
+    public Consumer createConsumer(Policy policy) {
+        if (policy == Policy.WINDOW) {
+            throw new IllegalArgumentException("FrameRing: the WINDOW policy needs a size.");
+        }
+        return createConsumer(policy, policy == Policy.LATEST ? 1 : frames.length);
+    }
+
+    /**
+     * @param policy
+     * @param window number of frames for the WINDOW policy.
+     * @return a new consumer.
+     */
+    public synchronized Consumer createConsumer(Policy policy, int window) {
+        switch (policy) {
+            case LATEST:
+                window = 1;
+                break;
+            case EVERY_FRAME:
+                window = frames.length;
+                break;
+            default:
+                window = Math.max(1, Math.min(window, frames.length));
+        }
+        Consumer consumer = new Consumer(window);
+        consumers.add(consumer);
+        return consumer;
+    }
+
+    public synchronized void removeConsumer(Consumer consumer) {
+        consumer.release();
+        consumers.remove(consumer);
+    }
+
+    /**
+     * Hold a frame until release(frame), also after its consumer takes the
+     * next one. The frame is not held when the grabbing thread could be left
+     * without a slot to write: each consumer can hold a frame, and the last
+     * frame published is not overwritten.
+     *
+     * @param frame a frame held by a consumer.
+     * @return true if the frame is held, release(frame) has to be called.
+     */
+    public synchronized boolean tryRetain(Frame frame) {
+        if (nbRetained + 1 + consumers.size() + 2 > frames.length) {
+            return false;
+        }
+        nbRetained++;
+        frame.nbHolders++;
+        return true;
+    }
+
+    /**
+     * @param frame a frame held by tryRetain(frame).
+     */
+    public synchronized void release(Frame frame) {
+        nbRetained--;
+        frame.nbHolders--;
+    }
+
+    /**
+     * Copy and publish a frame, called by the grabbing thread.
+     *
+     * @param image
+     * @param id number of the frame, increasing.
+     */
+    public void publish(IplImage image, int id) {
+        Frame slot;
+        synchronized (this) {
+            if (consumers.isEmpty() || image == null) {
+                return;
+            }
+            slot = freeSlot();
+            if (slot == null) {
+                nbDropped++;
+                return;
+            }
+            slot.writing = true;
+        }
+
+        slot.image = copy(image, slot.image);
+
+        synchronized (this) {
+            slot.id = id;
+            slot.timestamp = System.nanoTime();
+            slot.writing = false;
+            lastPublished = slot;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return the oldest frame that no consumer holds.
+     */
+    private Frame freeSlot() {
+        Frame free = null;
+        for (Frame f : frames) {
+            if (f.nbHolders == 0 && f != lastPublished
+                    && (free == null || f.id < free.id)) {
+                free = f;
+            }
+        }
+        return free;
+    }
+
+    private static IplImage copy(IplImage src, IplImage dst) {
+        if (dst == null
+                || dst.width() != src.width()
+                || dst.height() != src.height()
+                || dst.nChannels() != src.nChannels()
+                || dst.depth() != src.depth()) {
+            dst = Utils.createImageFrom(src);
+        }
+        cvCopy(src, dst);
+        return dst;
+    }
+
+    /**
+     * @return the number of frames not copied, all the frames were held.
+     */
+    public synchronized int getNbDroppedFrames() {
+        return nbDropped;
+    }
+
+    public int size() {
+        return frames.length;
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import fr.inria.papart.procam.camera.Camera.PixelFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import static org.bytedeco.javacpp.opencv_core.IPL_DEPTH_16U;
+
+/**
+ * Conversion of camera images to Processing pixels (ARGB ints) or to texture
+ * buffers (RGBA bytes). The native buffer is read in bulk in a reused array,
+ * then converted by simple loops on arrays. Large images can be split in row
+ * stripes converted in parallel.
+ *
+ * Camera images are opaque: the alpha of 4 channels images is not read. The
+ * Kinect depth (16 bits, high byte first) is given as the raw value.
+ *
+ * An ImageConverter is not thread safe, use one per thread.
+ *
+ * @author Jeremy Laviole
+ */
+public class ImageConverter {
+
+    static final int RGB = 0;
+    static final int BGR = 1;
+    static final int RGBX = 2;
+    static final int XRGB = 3;
+    static final int GRAY = 4;
+    static final int DEPTH16 = 5;
+
+    private static final int OPAQUE = 0xFF000000;
+    // Below this size, the threads cost more than they save.
+    private static final int MIN_PARALLEL_PIXELS = 640 * 480;
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private static final int NB_THREADS = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService threadPool = null;
+    private static boolean defaultParallel = false;
+
+    private boolean parallel = defaultParallel;
+
+    // Reused memory.
+    private byte[] bytes = new byte[0];
+    private int[] ints = new int[0];
+    private ByteBuffer outputBuffer = null;
+    private IntBuffer outputInts = null;
+    private final ArrayList<StripeTask> tasks = new ArrayList<>();
+
+    // Current conversion, read by the tasks.
+    private ByteBuffer source;
+    private int width, rowSize, widthStep, layout;
+    private int[] output;
+    private boolean toRGBA;
+
+    /**
+     * Parallel mode of the new converters.
+     *
+     * @param parallel
+     */
+    public static void setDefaultParallel(boolean parallel) {
+        defaultParallel = parallel;
+    }
+
+    /**
+     * Split the large images in row stripes converted by a shared thread
+     * pool.
+     *
+     * @param parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Processing pixels of a camera image.
+     *
+     * @param image
+     * @param format format of the image, for the order of the channels.
+     * @param pixels ARGB pixels, at least width * height.
+     */
+    public void toPixels(IplImage image, PixelFormat format, int[] pixels) {
+        toPixels(image.getByteBuffer(), image.width(), image.height(),
+                image.widthStep(), layout(image, format), pixels);
+    }
+
+    /**
+     * RGBA bytes of a camera image, for a texture.
+     *
+     * @param image
+     * @param format format of the image, for the order of the channels.
+     * @param rgba filled with width * height * 4 bytes, rewound.
+     */
+    public void toRGBA(IplImage image, PixelFormat format, ByteBuffer rgba) {
+        toRGBA(image.getByteBuffer(), image.width(), image.height(),
+                image.widthStep(), layout(image, format), rgba);
+    }
+
+    /**
+     * RGBA bytes of a packed BGR buffer.
+     *
+     * @param bgr read from 0 to its capacity.
+     * @param rgba filled with 4 bytes per pixel, rewound.
+     */
+    public void bgrToRGBA(ByteBuffer bgr, ByteBuffer rgba) {
+        int nbPixels = bgr.capacity() / 3;
+        toRGBA(bgr, nbPixels, 1, nbPixels * 3, BGR, rgba);
+    }
+
+    private static int layout(IplImage image, PixelFormat format) {
+        switch (image.nChannels()) {
+            case 1:
+                return image.depth() == IPL_DEPTH_16U ? DEPTH16 : GRAY;
+            case 3:
+                return format == PixelFormat.RGB ? RGB : BGR;
+            case 4:
+                return format == PixelFormat.ARGB ? XRGB : RGBX;
+            default:
+                throw new IllegalArgumentException("Unsupported number of channels: "
+                        + image.nChannels());
+        }
+    }
+
+    private static int channels(int layout) {
+        switch (layout) {
+            case GRAY:
+                return 1;
+            case DEPTH16:
+                return 2;
+            case RGB:
+            case BGR:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    private void toPixels(ByteBuffer src, int width, int height, int widthStep,
+            int layout, int[] pixels) {
+        convert(src, width, height, widthStep, layout, pixels, false);
+    }
+
+    private void toRGBA(ByteBuffer src, int width, int height, int widthStep,
+            int layout, ByteBuffer rgba) {
+        int size = width * height;
+        if (ints.length < size) {
+            ints = new int[size];
+        }
+        convert(src, width, height, widthStep, layout, ints, true);
+
+        // The view is created once per output buffer.
+        if (rgba != outputBuffer) {
+            outputBuffer = rgba;
+            // The byte order of the caller's buffer is not changed.
+            outputInts = rgba.duplicate().order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        outputInts.clear();
+        outputInts.put(ints, 0, size);
+        rgba.rewind();
+    }
+
+    private void convert(ByteBuffer src, int width, int height, int widthStep,
+            int layout, int[] output, boolean toRGBA) {
+        this.source = src;
+        this.width = width;
+        this.rowSize = width * channels(layout);
+        this.widthStep = widthStep;
+        this.layout = layout;
+        this.output = output;
+        this.toRGBA = toRGBA;
+
+        if (bytes.length < rowSize * height) {
+            bytes = new byte[rowSize * height];
+        }
+
+        if (!parallel || width * height < MIN_PARALLEL_PIXELS) {
+            convertRows(src, 0, height);
+        } else {
+            convertParallel(height);
+        }
+        this.source = null;
+        this.output = null;
+    }
+
+    private void convertRows(ByteBuffer src, int rowBegin, int rowEnd) {
+        // Bulk read of the rows, the padding is skipped.
+        if (widthStep == rowSize) {
+            src.position(rowBegin * rowSize);
+            src.get(bytes, rowBegin * rowSize, (rowEnd - rowBegin) * rowSize);
+        } else {
+            for (int row = rowBegin; row < rowEnd; row++) {
+                src.position(row * widthStep);
+                src.get(bytes, row * rowSize, rowSize);
+            }
+        }
+        src.rewind();
+
+        int begin = rowBegin * width;
+        int end = rowEnd * width;
+        convertPixels(layout, bytes, output, begin, end);
+        if (toRGBA) {
+            argbToRGBA(output, begin, end);
+        }
+    }
+
+    static void convertPixels(int layout, byte[] src, int[] dst, int begin, int end) {
+        switch (layout) {
+            case RGB:
+                for (int i = begin, k = begin * 3; i < end; i++, k += 3) {
+                    dst[i] = OPAQUE
+                            | (src[k] & 0xFF) << 16
+                            | (src[k + 1] & 0xFF) << 8
+                            | (src[k + 2] & 0xFF);
+                }
+                break;
+            case BGR:
+                for (int i = begin, k = begin * 3; i < end; i++, k += 3) {
+                    dst[i] = OPAQUE
+                            | (src[k + 2] & 0xFF) << 16
+                            | (src[k + 1] & 0xFF) << 8
+                            | (src[k] & 0xFF);
+                }
+                break;
+            case RGBX:
+                for (int i = begin, k = begin * 4; i < end; i++, k += 4) {
+                    dst[i] = OPAQUE
+                            | (src[k] & 0xFF) << 16
+                            | (src[k + 1] & 0xFF) << 8
+                            | (src[k + 2] & 0xFF);
+                }
+                break;
+            case XRGB:
+                for (int i = begin, k = begin * 4; i < end; i++, k += 4) {
+                    dst[i] = OPAQUE
+                            | (src[k + 1] & 0xFF) << 16
+                            | (src[k + 2] & 0xFF) << 8
+                            | (src[k + 3] & 0xFF);
+                }
+                break;
+            case GRAY:
+                for (int i = begin; i < end; i++) {
+                    dst[i] = OPAQUE | (src[i] & 0xFF) * 0x010101;
+                }
+                break;
+            case DEPTH16:
+                for (int i = begin, k = begin * 2; i < end; i++, k += 2) {
+                    dst[i] = (src[k] & 0xFF) << 8
+                            | (src[k + 1] & 0xFF);
+                }
+                break;
+        }
+    }
+
+    /**
+     * ARGB ints to native ints with the R, G, B, A bytes order.
+     */
+    static void argbToRGBA(int[] pixels, int begin, int end) {
+        if (LITTLE_ENDIAN) {
+            for (int i = begin; i < end; i++) {
+                int argb = pixels[i];
+                // ABGR
+                pixels[i] = (argb & 0xFF00FF00)
+                        | (argb & 0xFF) << 16
+                        | (argb >> 16) & 0xFF;
+            }
+        } else {
+            for (int i = begin; i < end; i++) {
+                int argb = pixels[i];
+                pixels[i] = argb << 8 | argb >>> 24;
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getThreadPool() {
+        if (threadPool == null) {
+            threadPool = Executors.newFixedThreadPool(NB_THREADS, new ThreadFactory() {
+                private int count = 0;
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Image conversion " + count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return threadPool;
+    }
+
+    private void convertParallel(int height) {
+        while (tasks.size() < NB_THREADS) {
+            tasks.add(new StripeTask());
+        }
+        int stripeHeight = (height + NB_THREADS - 1) / NB_THREADS;
+        for (int i = 0; i < NB_THREADS; i++) {
+            StripeTask task = tasks.get(i);
+            task.rowBegin = Math.min(height, i * stripeHeight);
+            task.rowEnd = Math.min(height, (i + 1) * stripeHeight);
+            task.src = source.duplicate();
+        }
+        try {
+            for (Future<Object> future : getThreadPool().invokeAll(tasks.subList(0, NB_THREADS))) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.getLogger(ImageConverter.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (ExecutionException ex) {
+            Logger.getLogger(ImageConverter.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private class StripeTask implements Callable<Object> {
+
+        int rowBegin, rowEnd;
+        ByteBuffer src;
+
+        @Override
+        public Object call() {
+            if (rowBegin < rowEnd) {
+                convertRows(src, rowBegin, rowEnd);
+            }
+            src = null;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import fr.inria.papart.multitouch.LatencyHistogram;
+import fr.inria.papart.tracking.MarkerBoard;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parallel update of the MarkerBoards tracked by a camera. The pool has one
+ * thread per board, up to the number of processors.
+ *
+ * By default update() waits for all the boards of the frame: the buffers of
+ * the frame can be reused when it returns. With setSkipRunningBoards(true)
+ * it does not wait, a board still running is skipped for the next frames,
+ * and FrameUpdate.done() tells when the buffers can be reused.
+ *
+ * @author Jeremy Laviole
+ */
+public class MarkerBoardScheduler {
+
+    /**
+     * Update of the boards for one frame.
+     */
+    public interface FrameUpdate {
+
+        void update(MarkerBoard board);
+
+        /**
+         * Called once, after the update of the last board of the frame.
+         */
+        void done();
+    }
+
+    public static class BoardStats {
+
+        private final LatencyHistogram durations = new LatencyHistogram();
+        private final AtomicBoolean running = new AtomicBoolean(false);
+        private final AtomicInteger nbSkipped = new AtomicInteger(0);
+
+        /**
+         * @return the durations of the updates.
+         */
+        public LatencyHistogram getDurations() {
+            return durations;
+        }
+
+        /**
+         * @return the number of frames not tracked, the previous update was
+         * still running.
+         */
+        public int getNbSkipped() {
+            return nbSkipped.get();
+        }
+
+        public boolean isRunning() {
+            return running.get();
+        }
+    }
+
+    private ThreadPoolExecutor threadPool = null;
+    private final WeakHashMap<MarkerBoard, BoardStats> stats = new WeakHashMap<>();
+    private volatile boolean skipRunningBoards = false;
+
+    /**
+     * Update the boards for a frame.
+     *
+     * @param boards
+     * @param frameUpdate
+     * @throws InterruptedException
+     */
+    public void update(List<MarkerBoard> boards, final FrameUpdate frameUpdate)
+            throws InterruptedException {
+        update(boards, frameUpdate, !skipRunningBoards);
+    }
+
+    /**
+     * Update the boards for a frame.
+     *
+     * @param boards
+     * @param frameUpdate
+     * @param wait true to wait for the boards of this frame, also when the
+     * running boards are skipped.
+     * @throws InterruptedException
+     */
+    public void update(List<MarkerBoard> boards, final FrameUpdate frameUpdate,
+            boolean wait) throws InterruptedException {
+        ThreadPoolExecutor pool = getThreadPool(boards.size());
+
+        // One more for the submission, done() is not called before its end.
+        final AtomicInteger pending = new AtomicInteger(1);
+        ArrayList<Future<?>> tasks = new ArrayList<>(boards.size());
+
+        for (final MarkerBoard board : boards) {
+            final BoardStats boardStats = getStats(board);
+            if (!boardStats.running.compareAndSet(false, true)) {
+                boardStats.nbSkipped.incrementAndGet();
+                continue;
+            }
+            pending.incrementAndGet();
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    try {
+                        frameUpdate.update(board);
+                    } catch (RuntimeException e) {
+                        Logger.getLogger(MarkerBoardScheduler.class.getName()).log(Level.SEVERE, null, e);
+                    } finally {
+                        boardStats.durations.recordNanos(System.nanoTime() - start);
+                        boardStats.running.set(false);
+                        if (pending.decrementAndGet() == 0) {
+                            frameUpdate.done();
+                        }
+                    }
+                }
+            };
+            try {
+                tasks.add(pool.submit(task));
+            } catch (RejectedExecutionException e) {
+                // Shutdown during the submission.
+                boardStats.running.set(false);
+                pending.decrementAndGet();
+            }
+        }
+
+        if (pending.decrementAndGet() == 0) {
+            frameUpdate.done();
+        }
+
+        if (!wait) {
+            return;
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException ex) {
+                Logger.getLogger(MarkerBoardScheduler.class.getName()).log(Level.SEVERE, null, ex.getCause());
+            }
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getThreadPool(int nbBoards) {
+        int nbThreads = Math.max(1, Math.min(nbBoards,
+                Runtime.getRuntime().availableProcessors()));
+
+        if (threadPool == null) {
+            threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(nbThreads, new ThreadFactory() {
+                private int threadId = 0;
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Marker board " + threadId++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else if (nbThreads > threadPool.getMaximumPoolSize()) {
+            threadPool.setMaximumPoolSize(nbThreads);
+            threadPool.setCorePoolSize(nbThreads);
+        } else if (nbThreads < threadPool.getCorePoolSize()) {
+            threadPool.setCorePoolSize(nbThreads);
+            threadPool.setMaximumPoolSize(nbThreads);
+        }
+        return threadPool;
+    }
+
+    /**
+     * @param board
+     * @return the statistics of the board, created on its first update.
+     */
+    public synchronized BoardStats getStats(MarkerBoard board) {
+        BoardStats boardStats = stats.get(board);
+        if (boardStats == null) {
+            boardStats = new BoardStats();
+            stats.put(board, boardStats);
+        }
+        return boardStats;
+    }
+
+    /**
+     * @param skip true to not wait for the boards, the boards still running
+     * skip the next frames.
+     */
+    public void setSkipRunningBoards(boolean skip) {
+        this.skipRunningBoards = skip;
+    }
+
+    public boolean isSkipRunningBoards() {
+        return skipRunningBoards;
+    }
+
+    /**
+     * @return one line per board: p50, p99 and max in milliseconds, and the
+     * number of skipped frames.
+     */
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<MarkerBoard, BoardStats> entry : stats.entrySet()) {
+            LatencyHistogram durations = entry.getValue().durations;
+            sb.append(String.format("%-30s p50 %6.2f  p99 %6.2f  max %6.2f ms  skipped %d%n",
+                    entry.getKey().getFileName(),
+                    durations.getValueAtPercentile(50) / 1000f,
+                    durations.getValueAtPercentile(99) / 1000f,
+                    durations.getMax() / 1000f,
+                    entry.getValue().getNbSkipped()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stop the threads, the running updates end.
+     */
+    public synchronized void shutdown() {
+        if (threadPool != null) {
+            threadPool.shutdown();
+            threadPool = null;
+        }
+    }
+}
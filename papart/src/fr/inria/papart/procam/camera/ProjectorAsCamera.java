@@ -35,6 +35,7 @@ public class ProjectorAsCamera extends Camera {
 
     public void setImage(IplImage image) {
         this.currentImage = image;
+        frameUpdated();
     }
 
     public void setCalibration(String fileName) {
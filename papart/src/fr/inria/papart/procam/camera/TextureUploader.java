@@ -0,0 +1,170 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import java.nio.ByteBuffer;
+import static org.bytedeco.javacpp.opencv_core.IPL_DEPTH_8U;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import processing.opengl.PGL;
+import processing.opengl.PGraphicsOpenGL;
+import processing.opengl.PJOGL;
+import processing.opengl.Texture;
+
+/**
+ * Upload of the IplImage buffers to a Processing texture, without conversion
+ * on the CPU. The rows are given to OpenGL in their own layout (GL_BGR or
+ * GL_LUMINANCE), the texture unit does the swizzle to RGBA. The frames are
+ * written in a mapped pixel buffer object, two are used in turn: the
+ * transfer to the texture is done by the driver after glTexSubImage2D
+ * returns, and the next frame is written in the other buffer.
+ *
+ * It needs a desktop OpenGL 2 context, upload() returns false otherwise and
+ * the image has to be converted.
+ *
+ * @author Jeremy Laviole
+ */
+class TextureUploader {
+
+    private final int[] pixelBuffers = new int[2];
+    private final int[] bufferSizes = new int[2];
+    private boolean buffersCreated = false;
+    private int currentBuffer = 0;
+    private boolean usePixelBuffers = true;
+
+    private final int[] previousAlignment = new int[1];
+    private final int[] previousRowLength = new int[1];
+
+    /**
+     * @param usePixelBuffers false to upload from the image buffer directly.
+     */
+    public void setUsePixelBuffers(boolean usePixelBuffers) {
+        this.usePixelBuffers = usePixelBuffers;
+    }
+
+    /**
+     * Upload an image to a texture of the same size, in the OpenGL thread.
+     *
+     * @param pg
+     * @param tex
+     * @param img 8 bits image.
+     * @param glFormat GL_BGR, GL_RGB or GL_LUMINANCE.
+     * @return false when the image could not be uploaded.
+     */
+    public boolean upload(PGraphicsOpenGL pg, Texture tex, IplImage img, int glFormat) {
+        GL2 gl = getGL2(pg.pgl);
+        if (gl == null
+                || img.depth() != IPL_DEPTH_8U
+                || img.width() != tex.width
+                || img.height() != tex.height
+                || img.nChannels() != nbChannels(glFormat)
+                || img.widthStep() % img.nChannels() != 0) {
+            return false;
+        }
+        if (tex.usingMipmaps() && !PGraphicsOpenGL.autoMipmapGenSupported) {
+            return false;
+        }
+
+        ByteBuffer buffer = img.getByteBuffer();
+        int size = img.widthStep() * img.height();
+
+        tex.bind();
+        gl.glGetIntegerv(GL2.GL_UNPACK_ALIGNMENT, previousAlignment, 0);
+        gl.glGetIntegerv(GL2.GL_UNPACK_ROW_LENGTH, previousRowLength, 0);
+        gl.glPixelStorei(GL2.GL_UNPACK_ALIGNMENT, 1);
+        gl.glPixelStorei(GL2.GL_UNPACK_ROW_LENGTH, img.widthStep() / img.nChannels());
+
+        if (!usePixelBuffers || !uploadMapped(gl, tex, img, glFormat, buffer, size)) {
+            gl.glTexSubImage2D(tex.glTarget, 0, 0, 0, img.width(), img.height(),
+                    glFormat, GL.GL_UNSIGNED_BYTE, buffer);
+        }
+
+        gl.glPixelStorei(GL2.GL_UNPACK_ROW_LENGTH, previousRowLength[0]);
+        gl.glPixelStorei(GL2.GL_UNPACK_ALIGNMENT, previousAlignment[0]);
+
+        if (tex.usingMipmaps()) {
+            gl.glGenerateMipmap(tex.glTarget);
+        }
+        tex.unbind();
+        return true;
+    }
+
+    private boolean uploadMapped(GL2 gl, Texture tex, IplImage img,
+            int glFormat, ByteBuffer buffer, int size) {
+        if (!buffersCreated) {
+            if (!gl.isFunctionAvailable("glMapBufferRange")) {
+                usePixelBuffers = false;
+                return false;
+            }
+            gl.glGenBuffers(pixelBuffers.length, pixelBuffers, 0);
+            buffersCreated = true;
+        }
+        gl.glBindBuffer(GL2.GL_PIXEL_UNPACK_BUFFER, pixelBuffers[currentBuffer]);
+        if (bufferSizes[currentBuffer] != size) {
+            gl.glBufferData(GL2.GL_PIXEL_UNPACK_BUFFER, size, null, GL2.GL_STREAM_DRAW);
+            bufferSizes[currentBuffer] = size;
+        }
+
+        // The previous content is invalidated, the driver does not wait for
+        // its transfer.
+        ByteBuffer mapped = gl.glMapBufferRange(GL2.GL_PIXEL_UNPACK_BUFFER, 0, size,
+                GL.GL_MAP_WRITE_BIT | GL.GL_MAP_INVALIDATE_BUFFER_BIT);
+        if (mapped == null) {
+            gl.glBindBuffer(GL2.GL_PIXEL_UNPACK_BUFFER, 0);
+            return false;
+        }
+        ByteBuffer frame = buffer.duplicate();
+        frame.clear();
+        frame.limit(size);
+        mapped.put(frame);
+        boolean written = gl.glUnmapBuffer(GL2.GL_PIXEL_UNPACK_BUFFER);
+        if (written) {
+            gl.glTexSubImage2D(tex.glTarget, 0, 0, 0, img.width(), img.height(),
+                    glFormat, GL.GL_UNSIGNED_BYTE, 0L);
+        }
+        gl.glBindBuffer(GL2.GL_PIXEL_UNPACK_BUFFER, 0);
+        currentBuffer = (currentBuffer + 1) % pixelBuffers.length;
+        return written;
+    }
+
+    private static GL2 getGL2(PGL pgl) {
+        if (!(pgl instanceof PJOGL)) {
+            return null;
+        }
+        GL gl = ((PJOGL) pgl).gl;
+        if (gl == null || !gl.isGL2()) {
+            return null;
+        }
+        return gl.getGL2();
+    }
+
+    private static int nbChannels(int glFormat) {
+        switch (glFormat) {
+            case GL2.GL_BGR:
+            case GL2.GL_RGB:
+                return 3;
+            case GL2.GL_LUMINANCE:
+                return 1;
+            default:
+                return -1;
+        }
+    }
+}
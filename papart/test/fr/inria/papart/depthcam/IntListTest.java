@@ -0,0 +1,93 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.depthcam;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jeremy Laviole jeremy.laviole@inria.fr
+ */
+public class IntListTest {
+
+    @Test
+    public void addAndGrow() {
+        IntList list = new IntList(2);
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        assertEquals(100, list.size());
+        assertEquals(42, list.get(42));
+        assertTrue(list.contains(99));
+        assertFalse(list.contains(100));
+    }
+
+    @Test
+    public void clearKeepsMemory() {
+        IntList list = new IntList(10);
+        for (int i = 0; i < 10; i++) {
+            list.add(i);
+        }
+        int[] array = list.getArray();
+        list.clear();
+        assertTrue(list.isEmpty());
+        list.add(5);
+        assertSame(array, list.getArray());
+        assertEquals(5, list.get(0));
+    }
+
+    @Test
+    public void addAll() {
+        IntList list1 = new IntList();
+        IntList list2 = new IntList();
+        for (int i = 0; i < 10; i++) {
+            list1.add(i);
+            list2.add(i * 10);
+        }
+        list1.addAll(list2);
+        assertEquals(20, list1.size());
+        assertEquals(90, list1.get(19));
+
+        IntList list3 = new IntList();
+        list3.addAll(list2, 3);
+        assertEquals(3, list3.size());
+        assertEquals(20, list3.get(2));
+    }
+
+    @Test
+    public void stableSort() {
+        IntList list = new IntList();
+        int[] values = {13, 4, 21, 7, 1, 10, 3, 14};
+        for (int v : values) {
+            list.add(v);
+        }
+        // Sort by value modulo 7, equal keys keep their order.
+        list.sort(new IntList.IntComparator() {
+            @Override
+            public int compare(int a, int b) {
+                return Integer.compare(a % 7, b % 7);
+            }
+        });
+        int[] expected = {21, 7, 14, 1, 10, 3, 4, 13};
+        assertArrayEquals(expected, list.toArray());
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jeremy Laviole jeremy.laviole@inria.fr
+ */
+public class HungarianAssignmentTest {
+
+    @Test
+    public void optimalNotGreedy() {
+        // Greedy takes (0, 0) = 1 first, then (1, 1) = 10. Optimal is 2 + 3.
+        float[] cost = {
+            1, 2,
+            3, 10};
+        int[] result = new int[2];
+        new HungarianAssignment().solve(cost, 2, result);
+        assertEquals(1, result[0]);
+        assertEquals(0, result[1]);
+    }
+
+    @Test
+    public void reuseForDifferentSizes() {
+        HungarianAssignment hungarian = new HungarianAssignment();
+        int[] result = new int[3];
+
+        float[] cost3 = {
+            4, 1, 3,
+            2, 0, 5,
+            3, 2, 2};
+        hungarian.solve(cost3, 3, result);
+        // 1 + 2 + 2 = 5
+        assertArrayEquals(new int[]{1, 0, 2}, result);
+
+        float[] cost1 = {7};
+        hungarian.solve(cost1, 1, result);
+        assertEquals(0, result[0]);
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.multitouch;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jeremy Laviole jeremy.laviole@inria.fr
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 100);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(50050, histogram.getMean(), 0.001);
+        assertEquals(100000, histogram.getMax());
+        // Less than 2% error.
+        assertEquals(50000, histogram.getValueAtPercentile(50), 1000);
+        assertEquals(99000, histogram.getValueAtPercentile(99), 2000);
+        assertEquals(100000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void bucketsCoverTheValues() {
+        for (long value = 0; value < (1L << 34); value += 1 + value / 50) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long highest = LatencyHistogram.bucketValue(index);
+            assertTrue(highest >= value);
+            assertTrue(highest <= value * 1.02 + 1);
+        }
+    }
+
+    @Test
+    public void emptyAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        histogram.recordNanos(2000000);
+        assertEquals(2000, histogram.getMax());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import fr.inria.papart.depthcam.devices.KinectDevice;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import static org.bytedeco.javacpp.opencv_core.IPL_DEPTH_16U;
+import static org.bytedeco.javacpp.opencv_core.IPL_DEPTH_8U;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jeremy Laviole jeremy.laviole@inria.fr
+ */
+public class FrameRecordingTest {
+
+    private static final int NB_FRAMES = 3;
+
+    private static void fill(IplImage image, int frame) {
+        ByteBuffer buffer = image.getByteBuffer();
+        for (int i = 0; i < image.imageSize(); i++) {
+            buffer.put(i, (byte) (i * 7 + frame * 13));
+        }
+    }
+
+    private static void assertFrame(IplImage image, int frame) {
+        ByteBuffer buffer = image.getByteBuffer();
+        for (int i = 0; i < image.imageSize(); i++) {
+            assertEquals((byte) (i * 7 + frame * 13), buffer.get(i));
+        }
+    }
+
+    private static File record(boolean compress, boolean withColor) throws IOException {
+        File file = File.createTempFile("papart-recording", ".bin");
+        file.deleteOnExit();
+        IplImage depth = IplImage.create(16, 8, IPL_DEPTH_16U, 1);
+        IplImage color = withColor ? IplImage.create(16, 8, IPL_DEPTH_8U, 3) : null;
+
+        FrameRecorder recorder = new FrameRecorder(file.getPath(),
+                KinectDevice.Type.X360, compress);
+        for (int frame = 0; frame < NB_FRAMES; frame++) {
+            fill(depth, frame);
+            if (color != null) {
+                fill(color, frame + 100);
+            }
+            recorder.record(depth, color, 1000L + frame * 33);
+        }
+        assertEquals(NB_FRAMES, recorder.getNbFrames());
+        recorder.close();
+        return file;
+    }
+
+    private static void readBack(File file, boolean withColor) throws IOException {
+        FrameRecording recording = new FrameRecording(file.getPath());
+        assertEquals(NB_FRAMES, recording.getNbFrames());
+        assertEquals(KinectDevice.Type.X360, recording.getDeviceType());
+        assertEquals(16, recording.getDepthWidth());
+        assertEquals(8, recording.getDepthHeight());
+        assertEquals(withColor, recording.hasColor());
+        assertEquals(66L, recording.getDuration());
+
+        IplImage depth = recording.createDepthImage();
+        IplImage color = recording.createColorImage();
+        assertEquals(withColor, color != null);
+        for (int frame = 0; frame < NB_FRAMES; frame++) {
+            recording.read(frame, depth, color);
+            assertEquals(1000L + frame * 33, recording.getGrabTime(frame));
+            assertFrame(depth, frame);
+            if (color != null) {
+                assertFrame(color, frame + 100);
+            }
+        }
+        recording.close();
+    }
+
+    @Test
+    public void uncompressed() throws IOException {
+        readBack(record(false, true), true);
+    }
+
+    @Test
+    public void compressed() throws IOException {
+        readBack(record(true, true), true);
+    }
+
+    @Test
+    public void withoutColor() throws IOException {
+        readBack(record(true, false), false);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import static org.bytedeco.javacpp.opencv_core.IPL_DEPTH_8U;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jeremy Laviole jeremy.laviole@inria.fr
+ */
+public class FrameRingTest {
+
+    private final IplImage image = IplImage.create(8, 4, IPL_DEPTH_8U, 1);
+
+    @Test
+    public void noCopyWithoutConsumer() {
+        FrameRing ring = new FrameRing();
+        ring.publish(image, 1);
+        FrameRing.Consumer consumer = ring.createConsumer(FrameRing.Policy.LATEST);
+        assertNull(consumer.poll());
+    }
+
+    @Test
+    public void latest() {
+        FrameRing ring = new FrameRing();
+        FrameRing.Consumer consumer = ring.createConsumer(FrameRing.Policy.LATEST);
+        for (int id = 1; id <= 5; id++) {
+            ring.publish(image, id);
+        }
+        FrameRing.Frame frame = consumer.poll();
+        assertEquals(5, frame.getId());
+        assertNotSame(image, frame.getImage());
+        assertNull(consumer.poll());
+
+        ring.publish(image, 6);
+        assertEquals(6, consumer.poll().getId());
+        assertEquals(0, consumer.getNbDroppedFrames());
+    }
+
+    @Test
+    public void everyFrame() {
+        FrameRing ring = new FrameRing(4);
+        FrameRing.Consumer consumer = ring.createConsumer(FrameRing.Policy.EVERY_FRAME);
+        ring.publish(image, 1);
+        ring.publish(image, 2);
+        ring.publish(image, 3);
+        assertEquals(1, consumer.poll().getId());
+        assertEquals(2, consumer.poll().getId());
+        assertEquals(3, consumer.poll().getId());
+        assertNull(consumer.poll());
+        assertEquals(0, consumer.getNbDroppedFrames());
+    }
+
+    @Test
+    public void window() {
+        FrameRing ring = new FrameRing(4);
+        FrameRing.Consumer consumer = ring.createConsumer(FrameRing.Policy.WINDOW, 2);
+        ring.publish(image, 1);
+        assertEquals(1, consumer.poll().getId());
+        for (int id = 2; id <= 5; id++) {
+            ring.publish(image, id);
+        }
+        // 2 and 3 are out of the window.
+        assertEquals(4, consumer.poll().getId());
+        assertEquals(5, consumer.poll().getId());
+        assertEquals(2, consumer.getNbDroppedFrames());
+    }
+
+    @Test
+    public void heldFrameNotOverwritten() {
+        FrameRing ring = new FrameRing(3);
+        FrameRing.Consumer slow = ring.createConsumer(FrameRing.Policy.LATEST);
+        ring.publish(image, 1);
+        FrameRing.Frame held = slow.poll();
+        for (int id = 2; id <= 10; id++) {
+            ring.publish(image, id);
+        }
+        assertEquals(1, held.getId());
+        assertEquals(10, slow.poll().getId());
+        assertEquals(0, ring.getNbDroppedFrames());
+    }
+
+    @Test
+    public void retainLeavesASlotToWrite() {
+        assertEquals(0, trackAndRetain(new FrameRing(4)));
+        assertEquals(2, trackAndRetain(new FrameRing(6)));
+    }
+
+    // Display and tracking consumers, the tracked frames are never released.
+    private int trackAndRetain(FrameRing ring) {
+        FrameRing.Consumer display = ring.createConsumer(FrameRing.Policy.LATEST);
+        FrameRing.Consumer tracking = ring.createConsumer(FrameRing.Policy.LATEST);
+        int nbRetained = 0;
+        for (int id = 1; id <= 10; id++) {
+            ring.publish(image, id);
+            FrameRing.Frame tracked = tracking.poll();
+            if (id % 2 == 0) {
+                display.poll();
+            }
+            if (ring.tryRetain(tracked)) {
+                nbRetained++;
+            }
+        }
+        assertEquals(0, ring.getNbDroppedFrames());
+        return nbRetained;
+    }
+
+    @Test
+    public void take() throws InterruptedException {
+        final FrameRing ring = new FrameRing();
+        FrameRing.Consumer consumer = ring.createConsumer(FrameRing.Policy.LATEST);
+        assertNull(consumer.take(10));
+
+        Thread grabber = new Thread() {
+            @Override
+            public void run() {
+                ring.publish(image, 1);
+            }
+        };
+        grabber.start();
+        FrameRing.Frame frame = consumer.take(5000);
+        assertNotNull(frame);
+        assertEquals(1, frame.getId());
+        grabber.join();
+    }
+}
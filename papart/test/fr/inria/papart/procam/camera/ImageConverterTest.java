@@ -0,0 +1,85 @@
+/*
+ * Part of the PapARt project - https://project.inria.fr/papart/
+ *
+ * Copyright (C) 2014-2016 Inria
+ * Copyright (C) 2011-2013 Bordeaux University
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, version 2.1.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package fr.inria.papart.procam.camera;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jeremy Laviole jeremy.laviole@inria.fr
+ */
+public class ImageConverterTest {
+
+    private static ByteBuffer randomBGR(int nbPixels) {
+        ByteBuffer bgr = ByteBuffer.allocateDirect(nbPixels * 3);
+        Random random = new Random(42);
+        for (int i = 0; i < nbPixels * 3; i++) {
+            bgr.put((byte) random.nextInt(256));
+        }
+        bgr.rewind();
+        return bgr;
+    }
+
+    @Test
+    public void bgrToRGBABytes() {
+        int nbPixels = 640 * 480;
+        ByteBuffer bgr = randomBGR(nbPixels);
+        ByteBuffer rgba = ByteBuffer.allocateDirect(nbPixels * 4);
+
+        ImageConverter converter = new ImageConverter();
+        converter.bgrToRGBA(bgr, rgba);
+        // Twice, with the reused memory.
+        converter.bgrToRGBA(bgr, rgba);
+
+        assertEquals(0, rgba.position());
+        for (int i = 0; i < nbPixels; i++) {
+            assertEquals(bgr.get(i * 3 + 2), rgba.get(i * 4));
+            assertEquals(bgr.get(i * 3 + 1), rgba.get(i * 4 + 1));
+            assertEquals(bgr.get(i * 3), rgba.get(i * 4 + 2));
+            assertEquals((byte) 255, rgba.get(i * 4 + 3));
+        }
+    }
+
+    @Test
+    public void pixelLayouts() {
+        byte[] src = {10, 20, 30, 40, 50, 60, 70, 80};
+        int[] dst = new int[2];
+
+        ImageConverter.convertPixels(ImageConverter.RGB, src, dst, 0, 2);
+        assertEquals(0xFF0A141E, dst[0]);
+        assertEquals(0xFF28323C, dst[1]);
+
+        ImageConverter.convertPixels(ImageConverter.BGR, src, dst, 0, 2);
+        assertEquals(0xFF1E140A, dst[0]);
+
+        ImageConverter.convertPixels(ImageConverter.RGBX, src, dst, 0, 2);
+        assertEquals(0xFF0A141E, dst[0]);
+        assertEquals(0xFF323C46, dst[1]);
+
+        ImageConverter.convertPixels(ImageConverter.GRAY, src, dst, 0, 2);
+        assertEquals(0xFF0A0A0A, dst[0]);
+
+        ImageConverter.convertPixels(ImageConverter.DEPTH16, new byte[]{0x12, 0x34}, dst, 0, 1);
+        assertEquals(0x1234, dst[0]);
+    }
+}